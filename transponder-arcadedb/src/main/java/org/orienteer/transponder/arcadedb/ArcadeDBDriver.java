@@ -5,15 +5,22 @@ import static org.orienteer.transponder.arcadedb.ArcadeDBUtils.*;
 
 import java.lang.reflect.AnnotatedElement;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.ICloseableIterator;
 import org.orienteer.transponder.IDriver;
+import org.orienteer.transponder.Instantiators;
 
 import com.arcadedb.database.Database;
 import com.arcadedb.database.Identifiable;
+import com.arcadedb.database.RID;
 import com.arcadedb.query.sql.executor.ResultSet;
 import com.arcadedb.schema.DocumentType;
 import com.arcadedb.schema.Schema;
@@ -35,7 +42,12 @@ public class ArcadeDBDriver implements IDriver {
 	public static final String INDEX_LSM_TREE_NONUNIQUE = "LSM_TREE_NONUNIQUE";
 	public static final String INDEX_FULL_TEXT_NONUNIQUE = "FULL_TEXT_NONUNIQUE";
 	
+	private static final String PAGE_AFTER = "transponderAfter";
+	
 	private static final BiMap<String, Class<?>> TYPE_TO_MAIN_CLASS = HashBiMap.create(); 
+	private static final ClassValue<BiFunction<Object, Object, Object>> CREATORS
+											= Instantiators.forConstructor(Database.class, String.class);
+	private static final ClassValue<Function<Object, Object>> WRAPPERS = Instantiators.forConstructor(Identifiable.class);
 	
 	private final Database database;
 	private final boolean overrideSchema;
@@ -127,10 +139,15 @@ public class ArcadeDBDriver implements IDriver {
 		((DocumentWrapper)wrapper).set(property, value);
 	}
 
+	@Override
+	public Collection<?> getPropertyCollection(Object wrapper, String property, java.lang.reflect.Type type) {
+		return ((DocumentWrapper)wrapper).getLiveList(property);
+	}
+
 	@Override
 	public <T> T newEntityInstance(Class<T> proxyClass, String type) {
 		try {
-			return proxyClass.getConstructor(Database.class, String.class).newInstance(getDatabase(), type);
+			return (T) CREATORS.get(proxyClass).apply(getDatabase(), type);
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Can't create new entityInstance for class "+proxyClass+" with DocumentType "+type, e);
 		}
@@ -140,16 +157,57 @@ public class ArcadeDBDriver implements IDriver {
 	public void saveEntityInstance(Object wrapper) {
 		((DocumentWrapper)wrapper).save();
 	}
+	
+	@Override
+	public void saveEntityInstances(Collection<?> wrappers, int batchSize) {
+		if(database.isTransactionActive()) {
+			//Let external transaction to control commits
+			wrappers.forEach(this::saveEntityInstance);
+			return;
+		}
+		int inBatch = 0;
+		database.begin();
+		try {
+			for (Object wrapper : wrappers) {
+				saveEntityInstance(wrapper);
+				if(++inBatch>=batchSize) {
+					database.commit();
+					database.begin();
+					inBatch = 0;
+				}
+			}
+			database.commit();
+		} catch (RuntimeException e) {
+			if(database.isTransactionActive()) database.rollback();
+			throw e;
+		}
+	}
 
 	@Override
 	public <T> T wrapEntityInstance(Class<T> proxyClass, Object seed) {
 		try {
-			return proxyClass.getConstructor(Identifiable.class).newInstance((Identifiable)seed);
+			return (T) WRAPPERS.get(proxyClass).apply((Identifiable)seed);
 		}catch (Exception e) {
 			throw new IllegalArgumentException("Can't wrap seed by class "+proxyClass+". Seed: "+seed, e);
 		}
 	}
 
+	@Override
+	public <T> T wrapLazyEntityInstance(Class<T> proxyClass, Object reference) {
+		if(!(reference instanceof RID)) return null;
+		T ret = Instantiators.newInstance(proxyClass);
+		((DocumentWrapper)ret).setReference((RID)reference);
+		return ret;
+	}
+
+	@Override
+	public Class<?> getReferenceMainClass(Object reference) {
+		//Type of a record is defined by its bucket: so document is not loaded
+		return reference instanceof RID
+				? TYPE_TO_MAIN_CLASS.get(getSchema().getTypeNameByBucketId(((RID)reference).getBucketId()))
+				: null;
+	}
+
 	@Override
 	public Class<?> getDefaultEntityBaseClass() {
 		return DocumentWrapper.class;
@@ -159,6 +217,17 @@ public class ArcadeDBDriver implements IDriver {
 	public Class<?> getEntityMainClass(Object seed) {
 		return TYPE_TO_MAIN_CLASS.get(((Identifiable)seed).asDocument().getTypeName());
 	}
+	
+	@Override
+	public Object getSeedId(Object seed) {
+		//Not yet persisted documents don't have identity
+		return seed instanceof Identifiable ? ((Identifiable)seed).getIdentity() : null;
+	}
+	
+	@Override
+	public Object getEntitySchemaKey(Object seed) {
+		return seed instanceof Identifiable ? ((Identifiable)seed).asDocument().getTypeName() : null;
+	}
 
 	@Override
 	public boolean isSeedClass(Class<?> seedClass) {
@@ -167,7 +236,7 @@ public class ArcadeDBDriver implements IDriver {
 
 	@Override
 	public Object toSeed(Object wrapped) {
-		return ((DocumentWrapper)wrapped).getDocument();
+		return ((DocumentWrapper)wrapped).getIdentifiable();
 	}
 
 	@Override
@@ -177,6 +246,102 @@ public class ArcadeDBDriver implements IDriver {
 		}
 	}
 	
+	@Override
+	public List<Object> queryPage(String language, String query, Map<String, Object> params, java.lang.reflect.Type type,
+								  long offset, int limit) {
+		language = CommonUtils.defaultIfNullOrEmpty(language, "sql");
+		if(!"sql".equalsIgnoreCase(language)) return IDriver.super.queryPage(language, query, params, type, offset, limit);
+		String sql = trimQuery(query);
+		//Skip and limit are appended to the query itself, so it's not evaluated completely for every page
+		if(hasTopLevelKeyword(sql, "skip", "limit", "offset")) sql = "select from ("+sql+")";
+		return query(language, sql+" skip "+offset+" limit "+limit, params, type);
+	}
+	
+	@Override
+	public List<Object> querySlice(String language, String query, Map<String, Object> params, java.lang.reflect.Type type,
+								   Object after, int limit) {
+		language = CommonUtils.defaultIfNullOrEmpty(language, "sql");
+		if(!"sql".equalsIgnoreCase(language)) return IDriver.super.querySlice(language, query, params, type, after, limit);
+		String sql = trimQuery(query);
+		//Keyset is applied to identities of records: so pages are ordered by @rid
+		if(hasTopLevelKeyword(sql, "order"))
+			throw new IllegalArgumentException("Keyset pages are ordered by @rid, so query should not have ORDER BY: "+query);
+		//Predicate on @rid can't be applied to results of aggregation or expansion: so such queries are wrapped
+		if(hasTopLevelKeyword(sql, "group", "expand", "unwind", "skip", "limit", "offset")) sql = "select from ("+sql+")";
+		Map<String, Object> pageParams = params;
+		if(after!=null) {
+			pageParams = new HashMap<>(params);
+			pageParams.put(PAGE_AFTER, after);
+			int where = CommonUtils.indexOfTopLevelKeyword(sql, "where");
+			String predicate = "@rid > :"+PAGE_AFTER;
+			if(where<0) sql = sql+" where "+predicate;
+			else sql = sql.substring(0, where)+"where "+predicate+" and ("+sql.substring(where+"where".length())+")";
+		}
+		return query(language, sql+" order by @rid limit "+limit, pageParams, type);
+	}
+	
+	private static String trimQuery(String query) {
+		String ret = query.trim();
+		return ret.endsWith(";") ? ret.substring(0, ret.length()-1).trim() : ret;
+	}
+	
+	private static boolean hasTopLevelKeyword(String query, String... keywords) {
+		for (String keyword : keywords) {
+			if(CommonUtils.indexOfTopLevelKeyword(query, keyword)>=0) return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public long queryCount(String language, String query, Map<String, Object> params, java.lang.reflect.Type type) {
+		language = CommonUtils.defaultIfNullOrEmpty(language, "sql");
+		if(!"sql".equalsIgnoreCase(language)) return IDriver.super.queryCount(language, query, params, type);
+		try(ResultSet rs = database.query(language, "select count(*) as count from ("+query+")", params)) {
+			Number count = rs.hasNext() ? rs.next().getProperty("count") : null;
+			return count!=null ? count.longValue() : 0;
+		}
+	}
+	
+	@Override
+	public boolean queryExists(String language, String query, Map<String, Object> params, java.lang.reflect.Type type) {
+		language = CommonUtils.defaultIfNullOrEmpty(language, "sql");
+		if(!"sql".equalsIgnoreCase(language)) return IDriver.super.queryExists(language, query, params, type);
+		try(ResultSet rs = database.query(language, "select from ("+query+") limit 1", params)) {
+			return rs.hasNext();
+		}
+	}
+	
+	@Override
+	public ICloseableIterator<Object> queryStream(String language, String query, Map<String, Object> params, java.lang.reflect.Type type) {
+		ResultSet rs = database.query(CommonUtils.defaultIfNullOrEmpty(language, "sql"), query, params);
+		return ICloseableIterator.of(rs.stream().map(r -> (Object) r.getElement().orElse(null)).iterator(), rs);
+	}
+	
+	@Override
+	public List<Map<String, Object>> queryProjected(String language, String query, Map<String, Object> params,
+			java.lang.reflect.Type type, String... properties) {
+		language = CommonUtils.defaultIfNullOrEmpty(language, "sql");
+		if("sql".equalsIgnoreCase(language)) {
+			//Wrap original query to read only required properties
+			StringBuilder sql = new StringBuilder("select ");
+			for (int i = 0; i < properties.length; i++) {
+				if(i>0) sql.append(", ");
+				//Without alias ArcadeDB keeps quotes in names of projected properties
+				sql.append('`').append(properties[i]).append("` as ").append(properties[i]);
+			}
+			query = sql.append(" from (").append(query).append(")").toString();
+		}
+		try(ResultSet rs = database.query(language, query, params)) {
+			return rs.stream().map(r -> {
+				Map<String, Object> row = new HashMap<>();
+				for (String property : properties) {
+					row.put(property, r.getProperty(property));
+				}
+				return row;
+			}).collect(Collectors.toList());
+		}
+	}
+	
 	@Override
 	public Object querySingle(String language, String query, Map<String, Object> params, java.lang.reflect.Type type) {
 		try(ResultSet rs = database.query(CommonUtils.defaultIfNullOrEmpty(language, "sql"), query, params)) {
@@ -1,15 +1,24 @@
 package org.orienteer.transponder.arcadedb;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
 import com.arcadedb.database.Database;
 import com.arcadedb.database.Document;
 import com.arcadedb.database.Identifiable;
 import com.arcadedb.database.MutableDocument;
+import com.arcadedb.database.RID;
 
 /**
  * Base class for all ArcadeDB generated wrapper classes
  */
 public class DocumentWrapper {
 	protected Document document;
+	private Identifiable reference;
 
 	/**
 	 * Creates empty {@link DocumentWrapper} with no associated ArcadeDB {@link Document}
@@ -40,20 +49,42 @@ public class DocumentWrapper {
 	 */
 	public void setDocument(final Identifiable identifiable) {
 		this.document = identifiable.asDocument();
+		this.reference = null;
+	}
+
+	/**
+	 * Associate wrapper with a reference to a {@link Document} without loading it.
+	 * Document is loaded on first access
+	 * @param reference reference to a document
+	 */
+	public void setReference(final Identifiable reference) {
+		this.document = null;
+		this.reference = reference;
 	}
 
 	/**
 	 * @return {@link Document} with which current wrapper is associated with
 	 */
 	public Document getDocument() {
+		if(document==null && reference!=null) {
+			document = reference.asDocument();
+			reference = null;
+		}
 		return document;
 	}
 
+	/**
+	 * @return associated {@link Document} or reference to it, if document has not been loaded yet
+	 */
+	public Identifiable getIdentifiable() {
+		return reference!=null ? reference : document;
+	}
+
 	/**
 	 * @return true if current {@link Document} read-only. It can be changed by calling {@link #modify()}
 	 */
 	public boolean isReadOnly() {
-		return !(document instanceof MutableDocument);
+		return !(getDocument() instanceof MutableDocument);
 	}
 
 	/**
@@ -61,7 +92,7 @@ public class DocumentWrapper {
 	 * @return this wrapper for chaining
 	 */
 	public DocumentWrapper modify() {
-		document = document.modify();
+		document = getDocument().modify();
 		return this;
 	}
 
@@ -71,7 +102,7 @@ public class DocumentWrapper {
 	 * @return value of the property
 	 */
 	public Object get(String propertyName) {
-		return document.get(propertyName);
+		return getDocument().get(propertyName);
 	}
 
 	/**
@@ -86,6 +117,91 @@ public class DocumentWrapper {
 		return this;
 	}
 
+	/**
+	 * Obtain list stored in a property for in-place modifications.
+	 * Document is transformed to {@link MutableDocument} only on first modification of the list.
+	 * Changes of the list are saved together with the document
+	 * @param propertyName name of a property to obtain list from
+	 * @return live list of the property
+	 */
+	public List<Object> getLiveList(String propertyName) {
+		return new LiveList(propertyName);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object> getMutableList(String propertyName) {
+		modify();
+		MutableDocument mutableDocument = (MutableDocument) document;
+		Object value = mutableDocument.get(propertyName);
+		if(!(value instanceof List)) {
+			mutableDocument.set(propertyName, value instanceof Collection
+													? new ArrayList<>((Collection<Object>) value)
+													: new ArrayList<>());
+			value = mutableDocument.get(propertyName);
+		}
+		return (List<Object>) value;
+	}
+
+	/**
+	 * List of a property which reads the document as is and makes it mutable on first modification
+	 */
+	private class LiveList extends AbstractList<Object> implements RandomAccess {
+		private final String propertyName;
+		private List<Object> mutable;
+
+		LiveList(String propertyName) {
+			this.propertyName = propertyName;
+		}
+
+		@SuppressWarnings("unchecked")
+		private List<Object> read() {
+			if(mutable!=null) return mutable;
+			Object value = DocumentWrapper.this.get(propertyName);
+			if(value instanceof List) return (List<Object>) value;
+			else if(value instanceof Collection) return new ArrayList<>((Collection<Object>) value);
+			else return Collections.emptyList();
+		}
+
+		private List<Object> write() {
+			if(mutable==null) mutable = getMutableList(propertyName);
+			return mutable;
+		}
+
+		@Override
+		public Object get(int index) {
+			return read().get(index);
+		}
+
+		@Override
+		public int size() {
+			return read().size();
+		}
+
+		@Override
+		public Object set(int index, Object element) {
+			return write().set(index, element);
+		}
+
+		@Override
+		public void add(int index, Object element) {
+			write().add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public Object remove(int index) {
+			Object ret = write().remove(index);
+			modCount++;
+			return ret;
+		}
+
+		@Override
+		public void clear() {
+			write().clear();
+			modCount++;
+		}
+	}
+
 	/**
 	 * Reload associated document from the DB
 	 */
@@ -102,11 +218,24 @@ public class DocumentWrapper {
 		}
 	}
 
+	/**
+	 * Identity of the wrapped document which doesn't require loading of the document:
+	 * {@link RID} of a persisted document or the document itself if it doesn't have identity yet
+	 * @return key to be used for equality
+	 */
+	private Object getIdentityKey() {
+		Identifiable identifiable = getIdentifiable();
+		if(identifiable==null) return null;
+		RID rid = identifiable.getIdentity();
+		return rid!=null ? rid : identifiable;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((document == null) ? 0 : document.hashCode());
+		Object key = getIdentityKey();
+		result = prime * result + ((key == null) ? 0 : key.hashCode());
 		return result;
 	}
 
@@ -119,14 +248,16 @@ public class DocumentWrapper {
 		if (getClass() != obj.getClass())
 			return false;
 		final DocumentWrapper other = (DocumentWrapper) obj;
-		if (document == null) {
-			return other.document == null;
+		Object key = getIdentityKey();
+		if (key == null) {
+			return other.getIdentityKey() == null;
 		} else
-			return document.equals(other.document);
+			return key.equals(other.getIdentityKey());
 	}
 
 	@Override
 	public String toString() {
-		return document != null ? document.toString() : "?";
+		Identifiable identifiable = getIdentifiable();
+		return identifiable != null ? identifiable.toString() : "?";
 	}
 }
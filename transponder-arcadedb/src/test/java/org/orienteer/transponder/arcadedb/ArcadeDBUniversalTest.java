@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -92,4 +93,23 @@ public class ArcadeDBUniversalTest extends AbstractUniversalTest {
 		}
 	}
 
+	@Test
+	public void testLiveListDefersModification() {
+		database.getSchema().getOrCreateDocumentType("TestLiveList");
+		database.command("sql", "delete from TestLiveList");
+		MutableDocument doc = database.newDocument("TestLiveList");
+		doc.set("tags", Arrays.asList("a", "b"));
+		doc.save();
+		DocumentWrapper wrapper = new DocumentWrapper(database.lookupByRID(doc.getIdentity(), true));
+		assertTrue(wrapper.isReadOnly());
+		List<Object> tags = wrapper.getLiveList("tags");
+		assertEquals(2, tags.size());
+		assertEquals("b", tags.get(1));
+		assertTrue(wrapper.isReadOnly());
+		tags.add("c");
+		assertFalse(wrapper.isReadOnly());
+		assertEquals(3, tags.size());
+		assertEquals(Arrays.asList("a", "b", "c"), wrapper.get("tags"));
+	}
+
 }
@@ -0,0 +1,103 @@
+package org.orienteer.transponder.benchmark;
+
+import static net.bytebuddy.matcher.ElementMatchers.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.orienteer.transponder.BuilderScheduler;
+import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.InvocationPlan;
+import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.annotation.Lookup;
+import org.orienteer.transponder.annotation.Query;
+import org.orienteer.transponder.annotation.binder.QueryValue;
+import org.orienteer.transponder.mutator.LookupMutator.LookupDelegate;
+import org.orienteer.transponder.mutator.QueryMutator.QueryDelegate;
+
+/**
+ * Compares DAO methods implemented through {@link InvocationPlan} with generic delegates
+ * {@link QueryDelegate} and {@link LookupDelegate}. Driver doesn't do any real work,
+ * so only overhead of Transponder is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DAOInvocationBenchmark {
+
+	/**
+	 * DAO to be used for benchmarking
+	 */
+	public static interface IBenchmarkDAO {
+		/**
+		 * @param name name to search for
+		 * @param limit max number of results
+		 * @return list of found entities
+		 */
+		@Query("select from BenchmarkEntity where name = :name limit :limit")
+		public List<PropertyAccessBenchmark.IBenchmarkEntity> findByName(String name, int limit);
+		/**
+		 * @param name name to search for
+		 * @return true if something was found
+		 */
+		@Lookup("select from BenchmarkEntity where name = :name")
+		public boolean existsByName(String name);
+	}
+
+	/**
+	 * Implementation of DAO methods
+	 */
+	@Param({"plan", "delegate"})
+	public String implementation;
+
+	private IBenchmarkDAO dao;
+
+	/**
+	 * Prepare DAO for the benchmark
+	 */
+	@Setup
+	public void setup() {
+		MapDriver driver = "delegate".equals(implementation)
+								? new MapDriver(new IMutator() {
+									@Override
+									public void schedule(Transponder transponder, BuilderScheduler scheduler) {
+										scheduler.scheduleDelegate(isAnnotatedWith(Query.class).and(isAbstract()),
+																   QueryDelegate.class, new QueryValue.Binder(transponder));
+										scheduler.scheduleDelegate(isAnnotatedWith(Lookup.class).and(isAbstract()),
+																   LookupDelegate.class, new QueryValue.Binder(transponder));
+									}
+								})
+								: new MapDriver();
+		dao = new Transponder(driver).dao(IBenchmarkDAO.class);
+	}
+
+	/**
+	 * @return result of a query
+	 */
+	@Benchmark
+	public List<PropertyAccessBenchmark.IBenchmarkEntity> query() {
+		return dao.findByName("Name", 10);
+	}
+
+	/**
+	 * @return result of a lookup
+	 */
+	@Benchmark
+	public boolean lookup() {
+		return dao.existsByName("Name");
+	}
+}
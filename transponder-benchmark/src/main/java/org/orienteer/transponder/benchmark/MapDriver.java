@@ -0,0 +1,127 @@
+package org.orienteer.transponder.benchmark;
+
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.orienteer.transponder.IDriver;
+import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.Instantiators;
+
+/**
+ * Minimal in-memory {@link IDriver} which uses {@link HashMap} as a seed and as a base class for wrappers.
+ * Allows to isolate overhead of Transponder itself from overhead of actual data-source.
+ */
+@SuppressWarnings("unchecked")
+public class MapDriver implements IDriver {
+	
+	private static final ClassValue<Function<Object, Object>> WRAPPERS = Instantiators.forConstructor(Map.class);
+	
+	private final IMutator mutator;
+	
+	/**
+	 * Creates driver without additional mutator
+	 */
+	public MapDriver() {
+		this(null);
+	}
+	
+	/**
+	 * Creates driver with additional mutator
+	 * @param mutator mutator to be applied on top of default Transponder mutators
+	 */
+	public MapDriver(IMutator mutator) {
+		this.mutator = mutator;
+	}
+
+	@Override
+	public void createType(String typeName, boolean isAbstract, Class<?> mainWrapperClass, String... superTypes) {
+	}
+
+	@Override
+	public void createProperty(String typeName, String propertyName, Type propertyType, String referencedType,
+			int order, AnnotatedElement annotations) {
+	}
+
+	@Override
+	public void setupRelationship(String type1Name, String property1Name, String type2Name, String property2Name) {
+	}
+
+	@Override
+	public void createIndex(String typeName, String indexName, String indexType, AnnotatedElement annotations,
+			String... properties) {
+	}
+
+	@Override
+	public Object getPropertyValue(Object wrapper, String property, Type type) {
+		return ((Map<Object, Object>) wrapper).get(property);
+	}
+
+	@Override
+	public void setPropertyValue(Object wrapper, String property, Object value, Type type) {
+		((Map<Object, Object>) wrapper).put(property, value);
+	}
+	
+	@Override
+	public Object getCacheKey() {
+		return mutator==null ? IDriver.super.getCacheKey() : mutator;
+	}
+
+	@Override
+	public <T> T newEntityInstance(Class<T> proxyClass, String type) {
+		return newDAOInstance(proxyClass);
+	}
+
+	@Override
+	public void saveEntityInstance(Object wrapper) {
+	}
+
+	@Override
+	public <T> T wrapEntityInstance(Class<T> proxyClass, Object seed) {
+		try {
+			return (T) WRAPPERS.get(proxyClass).apply(seed);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Can't wrap entity ("+seed+") by class "+proxyClass.getName(), e);
+		}
+	}
+
+	@Override
+	public Class<?> getDefaultEntityBaseClass() {
+		return HashMap.class;
+	}
+
+	@Override
+	public Class<?> getEntityMainClass(Object seed) {
+		return seed.getClass();
+	}
+
+	@Override
+	public boolean isSeedClass(Class<?> seedClass) {
+		return Map.class.isAssignableFrom(seedClass);
+	}
+
+	@Override
+	public Object toSeed(Object wrapped) {
+		return new HashMap<>((Map<Object, Object>) wrapped);
+	}
+
+	@Override
+	public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
+		return new ArrayList<>();
+	}
+	
+	@Override
+	public IMutator getMutator() {
+		return mutator;
+	}
+
+	@Override
+	public String getDialect() {
+		return "benchmark";
+	}
+
+}
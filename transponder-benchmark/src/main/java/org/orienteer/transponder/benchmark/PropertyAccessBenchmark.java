@@ -0,0 +1,129 @@
+package org.orienteer.transponder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.mutator.GetterMutator;
+import org.orienteer.transponder.mutator.PropertyAccessorMutator;
+import org.orienteer.transponder.mutator.SetterMutator;
+import org.orienteer.transponder.mutator.StackedMutator;
+
+/**
+ * Compares specialized getters/setters generated by {@link PropertyAccessorMutator}
+ * with generic delegates of {@link GetterMutator} and {@link SetterMutator}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertyAccessBenchmark {
+	
+	/**
+	 * Entity to be used for benchmarking
+	 */
+	@EntityType("BenchmarkEntity")
+	public static interface IBenchmarkEntity {
+		/**
+		 * @return name
+		 */
+		public String getName();
+		/**
+		 * @param name name to set
+		 * @return this entity
+		 */
+		public IBenchmarkEntity setName(String name);
+		/**
+		 * @return count
+		 */
+		public int getCount();
+		/**
+		 * @param count count to set
+		 */
+		public void setCount(int count);
+		/**
+		 * @return other entity
+		 */
+		public IBenchmarkEntity getOther();
+		/**
+		 * @param other other entity to set
+		 */
+		public void setOther(IBenchmarkEntity other);
+	}
+	
+	/**
+	 * Implementation of getters and setters
+	 */
+	@Param({"specialized", "delegate"})
+	public String implementation;
+	
+	private IBenchmarkEntity entity;
+	
+	/**
+	 * Prepare entity for the benchmark
+	 */
+	@Setup
+	public void setup() {
+		MapDriver driver = "delegate".equals(implementation)
+								? new MapDriver(new StackedMutator(new GetterMutator(), new SetterMutator()))
+								: new MapDriver();
+		Transponder transponder = new Transponder(driver);
+		entity = transponder.create(IBenchmarkEntity.class);
+		entity.setName("Name");
+		entity.setCount(10);
+		entity.setOther(transponder.create(IBenchmarkEntity.class).setName("Other"));
+	}
+	
+	/**
+	 * @return value of scalar property
+	 */
+	@Benchmark
+	public String getScalar() {
+		return entity.getName();
+	}
+	
+	/**
+	 * @return value of primitive property
+	 */
+	@Benchmark
+	public int getPrimitive() {
+		return entity.getCount();
+	}
+	
+	/**
+	 * @return this entity
+	 */
+	@Benchmark
+	public IBenchmarkEntity setScalar() {
+		return entity.setName("Name");
+	}
+	
+	/**
+	 * Benchmark of primitive setter
+	 */
+	@Benchmark
+	public void setPrimitive() {
+		entity.setCount(20);
+	}
+	
+	/**
+	 * @return wrapped referenced entity
+	 */
+	@Benchmark
+	public IBenchmarkEntity getEntity() {
+		return entity.getOther();
+	}
+}
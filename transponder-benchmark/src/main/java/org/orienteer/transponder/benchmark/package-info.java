@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks for Transponder
+ */
+package org.orienteer.transponder.benchmark;
@@ -4,10 +4,13 @@ import static net.bytebuddy.matcher.ElementMatchers.*;
 import static org.orienteer.transponder.CommonUtils.*;
 
 import java.lang.annotation.Annotation;
-import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -161,49 +164,74 @@ public class BuilderScheduler {
 		builder = enhanceCasesByOverrides(builder, description, methods);
 		if(cases.isEmpty()) return builder;
 		Case[] cases = this.cases.toArray(new Case[this.cases.size()]);
-		//Lets cache presence of methods per condition
-		boolean[] hasMatchedMethods = new boolean[cases.length];
-		boolean[] hasOpositeMatchedMethods = new boolean[cases.length];
-		for (int i=0; i<cases.length; i++) {
-			hasMatchedMethods[i] = hasMatch(methods, cases[i].getMatcher());
-			hasOpositeMatchedMethods[i] = hasMatch(methods, not(cases[i].getMatcher()));
+		CaseSignatures signatures = new CaseSignatures(cases);
+		//Lets find combinations of cases which are actually present in the type: one interception per combination
+		Set<BitSet> combinations = new LinkedHashSet<>();
+		for (MethodDescription method : methods) {
+			BitSet signature = signatures.of(method);
+			if(!signature.isEmpty()) combinations.add(signature);
 		}
-		
-		BigInteger permutationsTotal = BigInteger.ONE.shiftLeft(cases.length).subtract(BigInteger.ONE);
-		for(BigInteger currentPermutation = BigInteger.ONE; 
-				currentPermutation.compareTo(permutationsTotal)<=0;
-				currentPermutation = currentPermutation.add(BigInteger.ONE)) {
-			//Finding Base Implementation: mostly recently added implementation (not Advice)
-			Implementation baseImplementation = null;
-			for(int i=cases.length-1; i>=0; i--) {
-				if(currentPermutation.testBit(i)) {
-					Implementation impl = cases[i].getImplementation();
-					if(baseImplementation==null) baseImplementation=cases[i].getImplementation();
-					if(!(impl instanceof Advice)) {
-						baseImplementation = impl;
-						break;
-					}
-				}
+		for (BitSet combination : combinations) {
+			builder = builder.method(m -> combination.equals(signatures.of(m)))
+							 .intercept(toImplementation(cases, combination));
+		}
+		return builder;
+	}
+	
+	/**
+	 * Combine implementations of provided cases into one: base implementation is wrapped by all {@link Advice}s
+	 * @param cases all scheduled cases
+	 * @param combination bits of cases to be combined
+	 * @return combined implementation
+	 */
+	private static Implementation toImplementation(Case[] cases, BitSet combination) {
+		//Finding Base Implementation: mostly recently added implementation (not Advice)
+		Implementation baseImplementation = null;
+		for(int i = combination.previousSetBit(cases.length-1); i>=0; i = combination.previousSetBit(i-1)) {
+			Implementation impl = cases[i].getImplementation();
+			if(baseImplementation==null) baseImplementation = impl;
+			if(!(impl instanceof Advice)) {
+				baseImplementation = impl;
+				break;
+			}
+		}
+		Implementation implementation = baseImplementation;
+		for(int i = combination.previousSetBit(cases.length-1); i>=0; i = combination.previousSetBit(i-1)) {
+			Implementation impl = cases[i].getImplementation();
+			if(impl instanceof Advice && impl != baseImplementation) {
+				implementation = ((Advice)impl).wrap(implementation);
 			}
-			ElementMatcher.Junction<? super MethodDescription> matcher = any();
-			Implementation implementation = baseImplementation;
-			int i = cases.length-1;
-			for(; i>=0; i--) {
-				Case c = cases[i];
-				boolean caseIncluded = currentPermutation.testBit(i); // Included or excluded
-				if(!caseIncluded) continue; //Advice will not be included in any case: moving forward
-				if(!(caseIncluded?hasMatchedMethods[i]:hasOpositeMatchedMethods[i])) break; //No such methods at all
-				matcher = matcher.and(caseIncluded?c.getMatcher():not(c.getMatcher()));
-				if(caseIncluded 
-						&& c.getImplementation() instanceof Advice
-						&& c.getImplementation() != baseImplementation) {
-					implementation = ((Advice)c.getImplementation()).wrap(implementation);
+		}
+		return implementation;
+	}
+	
+	/**
+	 * Memoized set of matched cases per method: every matcher is evaluated just once per method
+	 */
+	private static class CaseSignatures {
+		private final Case[] cases;
+		private final Map<MethodDescription, BitSet> signatures = new HashMap<>();
+		
+		CaseSignatures(Case[] cases) {
+			this.cases = cases;
+		}
+		
+		/**
+		 * Get bits of cases which are matching provided method
+		 * @param method method to check
+		 * @return bits of matched cases
+		 */
+		public BitSet of(MethodDescription method) {
+			BitSet signature = signatures.get(method);
+			if(signature==null) {
+				signature = new BitSet(cases.length);
+				for (int i = 0; i < cases.length; i++) {
+					if(cases[i].getMatcher().matches(method)) signature.set(i);
 				}
+				signatures.put(method, signature);
 			}
-			if(i<0)
-				builder = builder.method(matcher).intercept(implementation);
+			return signature;
 		}
-		return builder;
 	}
 	
 	protected void enhanceCasesByDynamicDefinitions(List<MethodDescription> methods) {
@@ -7,6 +7,7 @@ import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -17,6 +18,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -25,9 +27,12 @@ import java.util.Random;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import org.orienteer.transponder.annotation.EntityProperty;
 import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.annotation.Size;
 
 import com.google.common.base.Strings;
+import com.google.common.primitives.Primitives;
 
 import lombok.experimental.UtilityClass;
 import net.bytebuddy.description.annotation.AnnotationDescription;
@@ -388,6 +393,34 @@ public class CommonUtils {
 		return ret;
 	}
 	
+	/**
+	 * Find a keyword in SQL-like query which is not enclosed into brackets or quotes.
+	 * Useful to check whether query can be extended by additional clauses
+	 * @param query query to search in
+	 * @param keyword keyword to search for (case insensitive)
+	 * @return index of the first top-level occurrence of the keyword or -1 if it was not found
+	 */
+	public int indexOfTopLevelKeyword(String query, String keyword) {
+		int depth = 0;
+		char quote = 0;
+		int length = keyword.length();
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if(quote!=0) {
+				if(c==quote) quote = 0;
+				else if(c=='\\') i++;
+			} else if(c=='\'' || c=='"' || c=='`') quote = c;
+			else if(c=='(' || c=='[' || c=='{') depth++;
+			else if(c==')' || c==']' || c=='}') depth--;
+			else if(depth==0 && query.regionMatches(true, i, keyword, 0, length)
+					&& (i==0 || !Character.isJavaIdentifierPart(query.charAt(i-1)))
+					&& (i+length==query.length() || !Character.isJavaIdentifierPart(query.charAt(i+length)))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
 	/**
 	 * List of declared methods of a provided class in order according to source code
 	 * @param clazz class to list methods for
@@ -437,6 +470,128 @@ public class CommonUtils {
 		return false;
 	}
 	
+	/**
+	 * Resolve name of a property for getter or setter.
+	 * Uses {@link org.orienteer.transponder.annotation.EntityProperty} annotation or name of the method
+	 * @param method getter or setter to resolve property name for
+	 * @return name of a property or null if method is neither getter nor setter
+	 */
+	public String resolvePropertyName(MethodDescription method) {
+		String methodName = method.getName();
+		AnnotationDescription.Loadable<EntityProperty> entityProperty 
+					= method.getDeclaredAnnotations().ofType(EntityProperty.class);
+		String propertyName = null;
+		if(entityProperty!=null) {
+			propertyName = entityProperty.load().value();
+		}
+		if(Strings.isNullOrEmpty(propertyName)) {
+			int paramsCount = method.getParameters().size();
+			if(methodName.startsWith("set") && paramsCount==1) {
+				propertyName = decapitalize(methodName.substring(3));
+			} else if(methodName.startsWith("get") && paramsCount==0) {
+				propertyName = decapitalize(methodName.substring(3));
+			} else if(methodName.startsWith("is") && paramsCount==0) {
+				propertyName = decapitalize(methodName.substring(2));
+			}
+		}
+		return propertyName;
+	}
+	
+	/**
+	 * Resolve class of entities referenced by a property: getter of the property is looked up in provided class
+	 * @param clazz class/interface which declares getter of the property
+	 * @param property name of the property
+	 * @return class of referenced entities (see {@link #typeToRequiredClass(Type)}) or null if there is no such getter
+	 */
+	public Class<?> resolveReferencedClass(Class<?> clazz, String property) {
+		for (Method method : clazz.getMethods()) {
+			if(method.getParameterCount()==0 && !void.class.equals(method.getReturnType())
+					&& property.equals(resolvePropertyName(new MethodDescription.ForLoadedMethod(method)))) {
+				return typeToRequiredClass(method.getGenericReturnType());
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Resolve generic type of a property: getter of the property is looked up in provided class
+	 * @param clazz class/interface which declares getter of the property
+	 * @param property name of the property
+	 * @return type of the property or null if there is no such getter
+	 */
+	public Type resolvePropertyType(Class<?> clazz, String property) {
+		for (Method method : clazz.getMethods()) {
+			if(method.getParameterCount()==0 && !void.class.equals(method.getReturnType())
+					&& property.equals(resolvePropertyName(new MethodDescription.ForLoadedMethod(method)))) {
+				return method.getGenericReturnType();
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Resolve name of a collection property which size is returned by provided getter annotated by {@link Size}
+	 * @param method getter to check
+	 * @return name of a collection property or null if getter doesn't return size of a property
+	 */
+	public String resolveSizedProperty(Method method) {
+		Size size = method.getAnnotation(Size.class);
+		return size!=null ? size.value() : null;
+	}
+	
+	/**
+	 * Check that values of provided class can represent size of a collection
+	 * @param clazz class to check
+	 * @return true if class is int, long or their wrappers
+	 */
+	public boolean isSizeClass(Class<?> clazz) {
+		Class<?> wrapped = wrap(clazz);
+		return Integer.class.equals(wrapped) || Long.class.equals(wrapped);
+	}
+	
+	/**
+	 * Convert size of a collection to required class
+	 * @param size size of a collection
+	 * @param clazz required class: int, long or their wrappers
+	 * @return converted size
+	 */
+	public Object toSize(long size, Class<?> clazz) {
+		return Integer.class.equals(wrap(clazz)) ? (Object) Math.toIntExact(size) : (Object) size;
+	}
+	
+	/**
+	 * Resolve names of properties declared by getters of provided class/interface.
+	 * Getters with default implementation are skipped
+	 * @param clazz class/interface to analyze
+	 * @return names of properties in order of declaration
+	 */
+	public String[] resolveDeclaredProperties(Class<?> clazz) {
+		Set<String> ret = new LinkedHashSet<>();
+		for (Method method : clazz.getMethods()) {
+			if(method.getParameterCount()==0 && !void.class.equals(method.getReturnType())
+					&& Modifier.isAbstract(method.getModifiers())) {
+				String property = resolvePropertyName(new MethodDescription.ForLoadedMethod(method));
+				if(property!=null) ret.add(property);
+			}
+		}
+		return ret.toArray(new String[ret.size()]);
+	}
+	
+	/**
+	 * Check that values of provided class are scalars: they never require wrapping or unwrapping
+	 * @param clazz class to check
+	 * @return true if values of provided class are scalars
+	 */
+	public boolean isScalarClass(Class<?> clazz) {
+		if(clazz==null) return false;
+		return clazz.isPrimitive() 
+				|| Primitives.isWrapperType(clazz)
+				|| String.class.equals(clazz)
+				|| Number.class.isAssignableFrom(clazz)
+				|| Date.class.isAssignableFrom(clazz)
+				|| clazz.isEnum();
+	}
+	
 	/**
 	 * Get full list of methods of a specified class: including super classes/interfaces
 	 * @param type class to analyze
@@ -461,6 +616,18 @@ public class CommonUtils {
 		interfaces.forEach(intf -> collectMethodDescriptions(intf, list));
 	}
 	
+	/**
+	 * Obtain reflection {@link Method} for a method description if it was created for already loaded method
+	 * @param method method description
+	 * @return loaded method or null if description is not backed by a loaded method
+	 */
+	public Method toLoadedMethod(MethodDescription method) {
+		MethodDescription.InDefinedShape defined = method.asDefined();
+		return defined instanceof MethodDescription.ForLoadedMethod
+				? ((MethodDescription.ForLoadedMethod) defined).getLoadedMethod()
+				: null;
+	}
+	
 	/**
 	 * Try to create instance of a specified class with string based value
 	 * @param <T> type of an instance to be created
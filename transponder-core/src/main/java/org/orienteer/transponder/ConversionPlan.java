@@ -0,0 +1,462 @@
+package org.orienteer.transponder;
+
+import static org.orienteer.transponder.CommonUtils.*;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Member;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.orienteer.transponder.Transponder.ITransponderEntity;
+import org.orienteer.transponder.Transponder.ITransponderHolder;
+import org.orienteer.transponder.annotation.EntityType;
+
+/**
+ * Plan of conversion of values from/to a specific generic {@link Type}.
+ * Everything which can be derived from the type itself (master class, class of elements, kind of conversion)
+ * is calculated just once per type, so {@link #wrap(Transponder, Object)} and {@link #unwrap(Object)} need to analyze
+ * only actual value. Plans are cached: use {@link #of(Type)} to obtain a plan for a type.
+ */
+public abstract class ConversionPlan {
+
+	/**
+	 * Kind of conversion selected for a type
+	 */
+	public static enum Strategy {
+		/**
+		 * Values are scalars: no wrapping and unwrapping is required
+		 */
+		SCALAR,
+		/**
+		 * Value is a single entity
+		 */
+		ENTITY,
+		/**
+		 * Value is a collection of scalars: collection is passed through as a copy
+		 */
+		SCALAR_COLLECTION,
+		/**
+		 * Value is a collection which might contain entities
+		 */
+		COLLECTION,
+		/**
+		 * Value is a map which might contain entities
+		 */
+		MAP,
+		/**
+		 * Type can't be analyzed in advance
+		 */
+		GENERIC
+	}
+
+	private static final ClassValue<ConversionPlan> CLASS_PLANS = new ClassValue<ConversionPlan>() {
+		@Override
+		protected ConversionPlan computeValue(Class<?> type) {
+			return create(type);
+		}
+	};
+
+	/**
+	 * Plans for generic types are kept by the class which is loaded by the most specific class loader among classes
+	 * used in the type: so plans don't prevent unloading of classes and their class loaders
+	 */
+	private static final ClassValue<ConcurrentMap<Type, ConversionPlan>> TYPE_PLANS = new ClassValue<ConcurrentMap<Type, ConversionPlan>>() {
+		@Override
+		protected ConcurrentMap<Type, ConversionPlan> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private static final ConversionPlan NULL_TYPE_PLAN = new GenericPlan(null);
+
+	protected final Type type;
+	protected final Class<?> masterClass;
+	protected final Class<?> elementClass;
+	private final Supplier<Object> masterClassFactory;
+
+	protected ConversionPlan(Type type) {
+		this.type = type;
+		this.masterClass = typeToMasterClass(type);
+		this.elementClass = typeToRequiredClass(type);
+		this.masterClassFactory = toFactory(masterClass);
+	}
+
+	/**
+	 * Obtain plan for a type
+	 * @param type generic type to obtain plan for
+	 * @return cached conversion plan
+	 */
+	public static ConversionPlan of(Type type) {
+		if(type==null) return NULL_TYPE_PLAN;
+		else if(type instanceof Class) return CLASS_PLANS.get((Class<?>) type);
+		else {
+			Class<?> owner = toOwnerClass(type, null);
+			//Type refers classes from unrelated class loaders: there is no safe place to cache the plan
+			if(owner==null) return create(type);
+			ConcurrentMap<Type, ConversionPlan> plans = TYPE_PLANS.get(owner);
+			ConversionPlan ret = plans.get(type);
+			return ret!=null ? ret : plans.computeIfAbsent(type, ConversionPlan::create);
+		}
+	}
+	
+	/**
+	 * Find class used in the type which class loader can see all other classes used in the type
+	 * @param type type to analyze
+	 * @param owner owner class found so far
+	 * @return owner class or null if classes of the type are loaded by unrelated class loaders
+	 */
+	static Class<?> toOwnerClass(Type type, Class<?> owner) {
+		if(type instanceof Class) {
+			Class<?> clazz = (Class<?>) type;
+			if(owner==null || isVisibleFrom(owner, clazz.getClassLoader())) return clazz;
+			else return isVisibleFrom(clazz, owner.getClassLoader()) ? owner : null;
+		} else if(type instanceof ParameterizedType) {
+			ParameterizedType parameterizedType = (ParameterizedType) type;
+			owner = toOwnerClass(parameterizedType.getRawType(), owner);
+			if(owner!=null && parameterizedType.getOwnerType()!=null)
+				owner = toOwnerClass(parameterizedType.getOwnerType(), owner);
+			for (Type arg : parameterizedType.getActualTypeArguments()) {
+				if(owner==null) break;
+				owner = toOwnerClass(arg, owner);
+			}
+			return owner;
+		} else if(type instanceof GenericArrayType) {
+			return toOwnerClass(((GenericArrayType) type).getGenericComponentType(), owner);
+		} else if(type instanceof WildcardType) {
+			WildcardType wildcardType = (WildcardType) type;
+			for (Type bound : wildcardType.getUpperBounds()) {
+				if(owner==null) break;
+				owner = toOwnerClass(bound, owner);
+			}
+			for (Type bound : wildcardType.getLowerBounds()) {
+				if(owner==null) break;
+				owner = toOwnerClass(bound, owner);
+			}
+			return owner;
+		} else if(type instanceof TypeVariable) {
+			//Bounds of a type variable are visible from the class which declares the variable
+			GenericDeclaration declaration = ((TypeVariable<?>) type).getGenericDeclaration();
+			return toOwnerClass(declaration instanceof Class
+									? (Class<?>) declaration
+									: ((Member) declaration).getDeclaringClass(), owner);
+		}
+		return null;
+	}
+	
+	private static boolean isVisibleFrom(Class<?> clazz, ClassLoader classLoader) {
+		ClassLoader target = clazz.getClassLoader();
+		if(target==null) return true;
+		for (ClassLoader cl = classLoader; cl!=null; cl = cl.getParent()) {
+			if(cl==target) return true;
+		}
+		return false;
+	}
+
+	private static ConversionPlan create(Type type) {
+		Class<?> masterClass = typeToMasterClass(type);
+		if(masterClass==null) return new GenericPlan(type);
+		else if(isScalarClass(masterClass)) return new ScalarPlan(type);
+		else if(Iterable.class.isAssignableFrom(masterClass)) {
+			return isScalarClass(typeToRequiredClass(type)) && Collection.class.isAssignableFrom(masterClass)
+						? new ScalarCollectionPlan(type)
+						: new CollectionPlan(type);
+		}
+		else if(Map.class.isAssignableFrom(masterClass)) return new MapPlan(type);
+		else return new EntityPlan(type);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Supplier<Object> toFactory(Class<?> clazz) {
+		if(clazz==null) return null;
+		else if(clazz.isInterface()) {
+			if(clazz.isAssignableFrom(ArrayList.class)) return ArrayList::new;
+			else if(clazz.isAssignableFrom(HashSet.class)) return HashSet::new;
+			else if(clazz.isAssignableFrom(HashMap.class)) return HashMap::new;
+		}
+		return () -> newInstance((Class<Object>) clazz);
+	}
+
+	/**
+	 * Wrap if needed provided seed object
+	 * @param transponder transponder to be used for wrapping
+	 * @param seed object, or collection of seed objects to be wrapped
+	 * @return wrapped object
+	 */
+	public abstract Object wrap(Transponder transponder, Object seed);
+
+	/**
+	 * Wrap live collection of seeds: modifications of returned collection are written through to the seeds
+	 * @param transponder transponder to be used for wrapping
+	 * @param seeds live collection of seed objects
+	 * @return live collection of wrapped objects
+	 */
+	public Object wrapLive(Transponder transponder, Collection<?> seeds) {
+		return transponder.wrapLive(seeds, type, elementClass, masterClass);
+	}
+
+	/**
+	 * Unwrap provided object. If it's not a wrapper - return as is
+	 * @param wrapper object to be unwrapped
+	 * @return seed object or original object if nothing to unwrap
+	 */
+	public Object unwrap(Object wrapper) {
+		return Transponder.unwrap(wrapper);
+	}
+
+	/**
+	 * @return strategy of conversion
+	 */
+	public abstract Strategy getStrategy();
+
+	/**
+	 * @return type for which this plan was created
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Full conversion: analyze seed object completely
+	 * @param transponder transponder to be used for wrapping
+	 * @param seed object to be wrapped
+	 * @return wrapped object
+	 */
+	@SuppressWarnings("unchecked")
+	protected Object wrapGeneric(Transponder transponder, Object seed) {
+		if(seed==null) return null;
+		IDriver driver = transponder.getDriver();
+		if(seed instanceof ITransponderHolder) {
+			return seed;
+		} else if(driver.isSeed(seed)) {
+			return transponder.provide(seed, masterClass);
+		} else if(seed instanceof Iterable) {
+			return wrapIterable(transponder, (Iterable<?>)seed);
+		} else if(seed instanceof Map) {
+			return wrapMap(transponder, (Map<?, ?>)seed);
+		} else if(masterClass.isInstance(seed)) return seed;
+		return null;
+	}
+	
+	/**
+	 * Wrap iterable which is not a seed itself: elements are analyzed by the first not null element
+	 * @param transponder transponder to be used for wrapping
+	 * @param seed iterable of seeds or other objects
+	 * @return wrapped iterable
+	 */
+	@SuppressWarnings("unchecked")
+	protected Object wrapIterable(Transponder transponder, Iterable<?> seed) {
+		Iterator<?> it = seed.iterator();
+		if(!it.hasNext()) return newMasterClassInstance();
+		Object probe;
+		do {
+			probe = it.next();
+		} while(it.hasNext() && probe == null);
+		if(transponder.getDriver().isSeed(probe)) {
+			return transponder.wrapIterable(seed, type, elementClass, masterClass);
+		} else if(Collection.class.isAssignableFrom(masterClass)) {
+			Collection<Object> collection = (Collection<Object>)newMasterClassInstance();
+			if(probe!=null) collection.addAll((Collection<Object>)seed);
+			else {
+				if(elementClass==null
+						|| elementClass.getAnnotation(EntityType.class)==null) collection.addAll((Collection<Object>)seed);
+			}
+			return collection;
+		}
+		else throw new IllegalStateException("Can't prepare required return class: "+masterClass +" from "+seed.getClass());
+	}
+	
+	/**
+	 * Wrap map which is not a seed itself: values are analyzed by the first not null value
+	 * @param transponder transponder to be used for wrapping
+	 * @param seed map of seeds or other objects
+	 * @return wrapped map
+	 */
+	protected Object wrapMap(Transponder transponder, Map<?, ?> seed) {
+		if(seed.size()==0) return seed;
+		Iterator<?> it = seed.values().iterator();
+		Object probe;
+		do {
+			probe = it.next();
+		} while(it.hasNext() && probe == null);
+		if(transponder.getDriver().isSeed(probe)) {
+			return transponder.wrapMap(seed, type, elementClass, masterClass);
+		} else if(Map.class.isAssignableFrom(masterClass)) {
+			return seed;
+		}
+		else throw new IllegalStateException("Can't prepare required return class: "+masterClass +" from "+seed.getClass());
+	}
+
+	protected Object newMasterClassInstance() {
+		return masterClassFactory.get();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName()+"["+type+"]";
+	}
+
+	/**
+	 * Plan for types which can't be analyzed in advance
+	 */
+	private static class GenericPlan extends ConversionPlan {
+		private final Strategy strategy;
+
+		GenericPlan(Type type) {
+			this(type, Strategy.GENERIC);
+		}
+
+		GenericPlan(Type type, Strategy strategy) {
+			super(type);
+			this.strategy = strategy;
+		}
+
+		@Override
+		public Object wrap(Transponder transponder, Object seed) {
+			return wrapGeneric(transponder, seed);
+		}
+
+		@Override
+		public Strategy getStrategy() {
+			return strategy;
+		}
+	}
+
+	/**
+	 * Plan for scalars: values of required class are returned as is
+	 */
+	private static class ScalarPlan extends ConversionPlan {
+
+		ScalarPlan(Type type) {
+			super(type);
+		}
+
+		@Override
+		public Object wrap(Transponder transponder, Object seed) {
+			return seed==null || masterClass.isInstance(seed) ? seed : wrapGeneric(transponder, seed);
+		}
+
+		@Override
+		public Object unwrap(Object wrapper) {
+			return wrapper==null || masterClass.isInstance(wrapper) ? wrapper : Transponder.unwrap(wrapper);
+		}
+
+		@Override
+		public Strategy getStrategy() {
+			return Strategy.SCALAR;
+		}
+	}
+
+	/**
+	 * Plan for a single entity
+	 */
+	private static class EntityPlan extends ConversionPlan {
+
+		EntityPlan(Type type) {
+			super(type);
+		}
+
+		@Override
+		public Object wrap(Transponder transponder, Object seed) {
+			if(seed==null || seed instanceof ITransponderHolder) return seed;
+			else if(transponder.getDriver().isSeed(seed)) return transponder.provide(seed, masterClass);
+			else return wrapGeneric(transponder, seed);
+		}
+
+		@Override
+		public Object unwrap(Object wrapper) {
+			if(wrapper instanceof ITransponderEntity) {
+				return ((ITransponderHolder)wrapper).get$transponder().getDriver().toSeed(wrapper);
+			} else return Transponder.unwrap(wrapper);
+		}
+
+		@Override
+		public Strategy getStrategy() {
+			return Strategy.ENTITY;
+		}
+	}
+
+	/**
+	 * Plan for collections which might contain entities: only elements of a collection are analyzed
+	 */
+	private static class CollectionPlan extends ConversionPlan {
+
+		CollectionPlan(Type type) {
+			super(type);
+		}
+
+		@Override
+		public Object wrap(Transponder transponder, Object seed) {
+			if(seed instanceof Iterable
+					&& !(seed instanceof ITransponderHolder)
+					&& !transponder.getDriver().isSeed(seed)) return wrapIterable(transponder, (Iterable<?>) seed);
+			else return wrapGeneric(transponder, seed);
+		}
+
+		@Override
+		public Strategy getStrategy() {
+			return Strategy.COLLECTION;
+		}
+	}
+
+	/**
+	 * Plan for maps which might contain entities: only values of a map are analyzed
+	 */
+	private static class MapPlan extends ConversionPlan {
+
+		MapPlan(Type type) {
+			super(type);
+		}
+
+		@Override
+		public Object wrap(Transponder transponder, Object seed) {
+			if(seed instanceof Map
+					&& !(seed instanceof ITransponderHolder)
+					&& !transponder.getDriver().isSeed(seed)) return wrapMap(transponder, (Map<?, ?>) seed);
+			else return wrapGeneric(transponder, seed);
+		}
+
+		@Override
+		public Strategy getStrategy() {
+			return Strategy.MAP;
+		}
+	}
+
+	/**
+	 * Plan for collections of scalars: elements never require wrapping, so collection is just copied
+	 */
+	private static class ScalarCollectionPlan extends ConversionPlan {
+
+		ScalarCollectionPlan(Type type) {
+			super(type);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public Object wrap(Transponder transponder, Object seed) {
+			if(seed instanceof Collection
+					&& !(seed instanceof ITransponderHolder)
+					&& !transponder.getDriver().isSeed(seed)) {
+				Collection<Object> collection = (Collection<Object>)newMasterClassInstance();
+				collection.addAll((Collection<Object>)seed);
+				return collection;
+			} else return wrapGeneric(transponder, seed);
+		}
+
+		@Override
+		public Strategy getStrategy() {
+			return Strategy.SCALAR_COLLECTION;
+		}
+	}
+}
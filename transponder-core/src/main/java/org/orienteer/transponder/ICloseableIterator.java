@@ -0,0 +1,111 @@
+package org.orienteer.transponder;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link Iterator} over some underlying resource (for example DB cursor) which should be closed after use.
+ * Implementations created through {@link #of(Iterator, AutoCloseable)} close the resource automatically
+ * as soon as iteration is over.
+ * @param <T> type of elements
+ */
+public interface ICloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+	/**
+	 * Release underlying resource
+	 */
+	@Override
+	public void close();
+
+	/**
+	 * Create lazy iterator which converts elements of this iterator
+	 * @param <R> type of converted elements
+	 * @param mapper function to convert elements
+	 * @return iterator with converted elements
+	 */
+	public default <R> ICloseableIterator<R> map(Function<? super T, ? extends R> mapper) {
+		ICloseableIterator<T> source = this;
+		return new ICloseableIterator<R>() {
+			@Override
+			public boolean hasNext() {
+				return source.hasNext();
+			}
+
+			@Override
+			public R next() {
+				return mapper.apply(source.next());
+			}
+
+			@Override
+			public void close() {
+				source.close();
+			}
+		};
+	}
+
+	/**
+	 * Create sequential {@link Stream} over this iterator. Closing of the stream closes this iterator.
+	 * @return stream of elements
+	 */
+	public default Stream<T> toStream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+							.onClose(this::close);
+	}
+
+	/**
+	 * Create {@link ICloseableIterator} for an iterator which doesn't hold any resources
+	 * @param <T> type of elements
+	 * @param iterator iterator to adapt
+	 * @return closeable iterator
+	 */
+	public static <T> ICloseableIterator<T> of(Iterator<? extends T> iterator) {
+		return of(iterator, iterator instanceof AutoCloseable ? (AutoCloseable) iterator : null);
+	}
+
+	/**
+	 * Create {@link ICloseableIterator} for an iterator over some resource
+	 * @param <T> type of elements
+	 * @param iterator iterator to adapt
+	 * @param resource resource to be closed after iteration. Might be null
+	 * @return closeable iterator
+	 */
+	public static <T> ICloseableIterator<T> of(Iterator<? extends T> iterator, AutoCloseable resource) {
+		return new ICloseableIterator<T>() {
+			private boolean closed = false;
+
+			@Override
+			public boolean hasNext() {
+				if(closed) return false;
+				boolean ret = iterator.hasNext();
+				if(!ret) close();
+				return ret;
+			}
+
+			@Override
+			public T next() {
+				if(closed) throw new NoSuchElementException();
+				return iterator.next();
+			}
+
+			@Override
+			public void close() {
+				if(closed) return;
+				closed = true;
+				if(resource!=null) {
+					try {
+						resource.close();
+					} catch (RuntimeException e) {
+						throw e;
+					} catch (Exception e) {
+						throw new IllegalStateException("Can't close underlying resource", e);
+					}
+				}
+			}
+		};
+	}
+}
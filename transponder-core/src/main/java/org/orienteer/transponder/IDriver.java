@@ -1,9 +1,15 @@
 package org.orienteer.transponder;
 
 import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Array;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 
 /**
@@ -78,7 +84,50 @@ public interface IDriver {
 	 * @param type setter type. The driver can ignore it, because value should be already unwrapped
 	 */
 	public void setPropertyValue(Object wrapper, String property, Object value, Type type);
-	
+
+	/**
+	 * Get live collection of seeds stored in a collection property.
+	 * Modifications of returned collection should be applied to the data-source directly:
+	 * adding or removing of a single element should not rewrite the rest of the property.
+	 * Default implementation rewrites whole property value on every modification
+	 * @param wrapper wrapper object to get property collection from
+	 * @param property name of a property
+	 * @param type declared type of the property
+	 * @return live collection of seeds
+	 */
+	public default Collection<?> getPropertyCollection(Object wrapper, String property, Type type) {
+		return new PropertyCollection(this, wrapper, property, type);
+	}
+
+	/**
+	 * Get reference to an entity stored in a property without loading of the entity.
+	 * Default implementation returns value of the property
+	 * @param wrapper wrapper object to get reference from
+	 * @param property name of a property
+	 * @param type declared type of the property
+	 * @return reference to an entity: for example identity of a record
+	 */
+	public default Object getPropertyReference(Object wrapper, String property, Type type) {
+		return getPropertyValue(wrapper, property, type);
+	}
+
+	/**
+	 * Get number of elements in a collection property without wrapping of them.
+	 * Drivers should use native operations which don't load elements: for example, degree of a node.
+	 * Default implementation obtains value of the property by {@link #getPropertyValue(Object, String, Type)}
+	 * @param wrapper wrapper object to get size of the property for
+	 * @param property name of a collection property
+	 * @param type declared type of the property
+	 * @return number of elements or 0 if property is not set
+	 */
+	public default long getPropertySize(Object wrapper, String property, Type type) {
+		Object value = getPropertyValue(wrapper, property, type);
+		if(value instanceof Collection) return ((Collection<?>) value).size();
+		else if(value instanceof Map) return ((Map<?, ?>) value).size();
+		else if(value!=null && value.getClass().isArray()) return Array.getLength(value);
+		else return 0;
+	}
+
 	/**
 	 * Providing key for this instance of driver which will be used for caching of generated classes.
 	 * Be default key is defined by class of a driver.
@@ -103,6 +152,51 @@ public interface IDriver {
 	 */
 	public void saveEntityInstance(Object wrapper);
 	
+	/**
+	 * Persist multiple objects in an DB. Drivers should override this method to use bulk operations of a DB.
+	 * Default implementation saves objects one by one
+	 * @param wrappers entities to persist
+	 * @param batchSize max number of entities to be persisted within one bulk operation/transaction
+	 */
+	public default void saveEntityInstances(Collection<?> wrappers, int batchSize) {
+		for (Object wrapper : wrappers) {
+			saveEntityInstance(wrapper);
+		}
+	}
+	
+	/**
+	 * Obtain stable identity of a seed object. Used by {@link UnitOfWork} to reuse wrappers for the same seeds
+	 * @param seed seed object
+	 * @return identity of the seed or null if seed doesn't have stable identity (for example, it's not persisted yet)
+	 */
+	public default Object getSeedId(Object seed) {
+		return null;
+	}
+
+	/**
+	 * Invoked when {@link UnitOfWork} is started or flushed.
+	 * Driver can start a transaction to group all following modifications
+	 */
+	public default void beginUnitOfWork() {
+
+	}
+
+	/**
+	 * Persist entities queued by {@link UnitOfWork} within one transaction or bulk operation.
+	 * Default implementation saves all entities by {@link #saveEntityInstances(Collection, int)} as a single batch
+	 * @param wrappers entities to persist
+	 */
+	public default void commitUnitOfWork(Collection<?> wrappers) {
+		if(!wrappers.isEmpty()) saveEntityInstances(wrappers, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Invoked if persisting of entities queued by {@link UnitOfWork} failed
+	 */
+	public default void rollbackUnitOfWork() {
+
+	}
+
 	/**
 	 * Try to replace seed object for provided wrapper object. Useful for Lookup operations.
 	 * @param wrapper wrapper to replace seed in 
@@ -121,6 +215,28 @@ public interface IDriver {
 	 */
 	public <T> T wrapEntityInstance(Class<T> proxyClass, Object seed);
 	
+	/**
+	 * Wrap referenced entity into provided proxy class without loading of the entity.
+	 * Entity should be loaded on first access to its properties
+	 * @param <T> wrapper class
+	 * @param proxyClass proxy class to wrap into
+	 * @param reference reference obtained by {@link #getPropertyReference(Object, String, Type)}
+	 * @return lazy wrapper or null if driver can't postpone loading for provided reference
+	 */
+	public default <T> T wrapLazyEntityInstance(Class<T> proxyClass, Object reference) {
+		return null;
+	}
+	
+	/**
+	 * Resolve main class of referenced entity without loading of the entity: for example, by schema type of a record identity.
+	 * Default implementation returns null, so lazy wrapper is created for declared class of the property
+	 * @param reference reference obtained by {@link #getPropertyReference(Object, String, Type)}
+	 * @return main class of referenced entity or null if it can't be resolved without loading
+	 */
+	public default Class<?> getReferenceMainClass(Object reference) {
+		return null;
+	}
+	
 	/**
 	 * @return default entity base class which should be in the root of 
 	 * all generated classes from this driver. Can't be interface.
@@ -134,6 +250,17 @@ public interface IDriver {
 	 */
 	public Class<?> getEntityMainClass(Object seed);
 	
+	/**
+	 * Obtain key of a schema type of provided seed object: for example name of a class/type or set of labels.
+	 * Seeds with equal keys should always have the same result of {@link #getEntityMainClass(Object)}, so
+	 * {@link Transponder} can resolve proxy class once per schema type and reuse it for all other seeds of that type.
+	 * @param seed seed object
+	 * @return key of schema type or null if resolution can't be cached for provided seed
+	 */
+	public default Object getEntitySchemaKey(Object seed) {
+		return null;
+	}
+	
 	/**
 	 * Is object a seed? In other word: can it be wrapped by current driver?
 	 * @param seed object to check
@@ -181,6 +308,158 @@ public interface IDriver {
 		return results==null || results.isEmpty()?null:results.get(0);
 	}
 	
+	/**
+	 * Query driver for data lazily: records should be fetched from underlying cursor on demand.
+	 * Returned iterator should release the cursor when it's closed.
+	 * Default implementation just iterates over results of {@link #query(String, String, Map, Type)}
+	 * @param language language for the query
+	 * @param query query to be used
+	 * @param params unwrapped parameters to be used to query data
+	 * @param type expected return type
+	 * @return closeable iterator over unwrapped objects
+	 */
+	public default ICloseableIterator<Object> queryStream(String language, String query, Map<String, Object> params, Type type) {
+		List<Object> results = query(language, query, params, type);
+		return ICloseableIterator.of(results!=null ? results.iterator() : Collections.emptyIterator());
+	}
+	
+	/**
+	 * Query driver for values of specified properties only. Drivers should read from data-source
+	 * as little as possible: for example, by using select list of a query.
+	 * Default implementation executes query by {@link #query(String, String, Map, Type)} and reads required properties
+	 * of every result by {@link #getPropertyValue(Object, String, Type)}
+	 * @param language language for the query
+	 * @param query query to be used
+	 * @param params unwrapped parameters to be used to query data
+	 * @param type expected type of projected entities
+	 * @param properties names of properties to read
+	 * @return list of maps from property name to its unwrapped value
+	 */
+	public default List<Map<String, Object>> queryProjected(String language, String query, Map<String, Object> params, 
+															 Type type, String... properties) {
+		List<Object> results = query(language, query, params, type);
+		if(results==null) return Collections.emptyList();
+		Class<?> projectionClass = type instanceof Class ? (Class<?>) type : null;
+		Type[] propertyTypes = new Type[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			propertyTypes[i] = projectionClass!=null ? CommonUtils.resolvePropertyType(projectionClass, properties[i]) : null;
+		}
+		List<Map<String, Object>> ret = new ArrayList<>(results.size());
+		for (Object result : results) {
+			Map<String, Object> row = new HashMap<>();
+			if(result!=null) {
+				//Properties are read through the driver: so seeds should be wrapped by base class of entities
+				Object wrapper = isSeed(result) ? wrapEntityInstance(getDefaultEntityBaseClass(), result) : result;
+				for (int i = 0; i < properties.length; i++) {
+					row.put(properties[i], getPropertyValue(wrapper, properties[i], propertyTypes[i]));
+				}
+			}
+			ret.add(row);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Query one page of results for offset pagination.
+	 * Drivers should override this method to skip and limit results in the data-source:
+	 * default implementation executes query by {@link #query(String, String, Map, Type)} and picks the page in memory
+	 * @param language language of the query
+	 * @param query query to be used
+	 * @param params unwrapped parameters to be used to query data
+	 * @param type expected type of result
+	 * @param offset number of entities to skip
+	 * @param limit max number of entities to return
+	 * @return list of seeds of the page
+	 */
+	public default List<Object> queryPage(String language, String query, Map<String, Object> params, Type type,
+										  long offset, int limit) {
+		List<Object> all = query(language, query, params, type);
+		if(all==null) return Collections.emptyList();
+		int from = (int) Math.min(all.size(), offset);
+		return new ArrayList<>(all.subList(from, (int) Math.min(all.size(), (long) from + limit)));
+	}
+	
+	/**
+	 * Query one page of results for keyset pagination: entities which follow the entity with provided identity.
+	 * Drivers should override this method to filter and limit results in the data-source, for example by identity:
+	 * default implementation executes query by {@link #query(String, String, Map, Type)} and picks the page in memory
+	 * @param language language of the query
+	 * @param query query to be used
+	 * @param params unwrapped parameters to be used to query data
+	 * @param type expected type of result
+	 * @param after identity of the last entity of previous page (see {@link #getSeedId(Object)}) or null for the first page
+	 * @param limit max number of entities to return
+	 * @return list of seeds of the page
+	 */
+	public default List<Object> querySlice(String language, String query, Map<String, Object> params, Type type,
+										   Object after, int limit) {
+		List<Object> all = query(language, query, params, type);
+		if(all==null) return Collections.emptyList();
+		int from = 0;
+		if(after!=null) {
+			from = all.size();
+			for (int i = 0; i < all.size(); i++) {
+				if(after.equals(getSeedId(all.get(i)))) {
+					from = i + 1;
+					break;
+				}
+			}
+		}
+		return new ArrayList<>(all.subList(from, Math.min(all.size(), from + limit)));
+	}
+	
+	/**
+	 * Query driver for number of results of the query. Drivers should count natively without loading of records:
+	 * default implementation executes query by {@link #query(String, String, Map, Type)} and counts results
+	 * @param language language for the query
+	 * @param query query to be used
+	 * @param params unwrapped parameters to be used to query data
+	 * @param type type of counted entities
+	 * @return number of results
+	 */
+	public default long queryCount(String language, String query, Map<String, Object> params, Type type) {
+		List<Object> results = query(language, query, params, type);
+		return results!=null ? results.size() : 0;
+	}
+	
+	/**
+	 * Query driver whether the query has any result. Drivers should stop on the first found record:
+	 * default implementation requests first page with one record by {@link #queryPage(String, String, Map, Type, long, int)}
+	 * @param language language for the query
+	 * @param query query to be used
+	 * @param params unwrapped parameters to be used to query data
+	 * @param type type of checked entities
+	 * @return true if there is at least one result
+	 */
+	public default boolean queryExists(String language, String query, Map<String, Object> params, Type type) {
+		return !queryPage(language, query, params, type, 0, 1).isEmpty();
+	}
+	
+	/**
+	 * Load in advance entities referenced by provided seeds, so following access to the references
+	 * doesn't require separate request per entity. Default implementation does nothing
+	 * @param seeds seeds to prefetch references for
+	 * @param mainClass class of entities which are represented by the seeds
+	 * @param paths paths of properties to prefetch. Nested properties are separated by dot
+	 */
+	public default void prefetch(Collection<?> seeds, Class<?> mainClass, String... paths) {
+		
+	}
+	
+	/**
+	 * Prepare task to be executed asynchronously on a worker thread.
+	 * Invoked on the thread which starts asynchronous invocation, so driver can capture context of this thread
+	 * (for example, session or transaction) and propagate it or open new one on a worker thread.
+	 * If returned task implements {@link AutoCloseable}, it's closed in case the task can't be submitted for execution.
+	 * Default implementation returns the task as is
+	 * @param <T> type of the result
+	 * @param task task to be executed on a worker thread
+	 * @return task which should be actually executed on a worker thread
+	 */
+	public default <T> Supplier<T> propagateContext(Supplier<T> task) {
+		return task;
+	}
+	
 	/**
 	 * Execute specified command 
 	 * @param language language for the command
@@ -201,8 +480,8 @@ public interface IDriver {
 	 */
 	public default <T> T newDAOInstance(Class<T> proxyClass) {
 		try {
-			return proxyClass.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
+			return Instantiators.newInstance(proxyClass);
+		} catch (RuntimeException e) {
 			throw new IllegalArgumentException("Can't instanciate DAO for "+proxyClass, e);
 		} 
 	}
@@ -40,5 +40,15 @@ public interface IPolyglot {
 								 String srcQuery,
 								 String srcDialect,
 								 String toDialect);
+	
+	/**
+	 * Providing key for this instance of polyglot which will be used for caching of generated classes.
+	 * By default key is defined by class of a polyglot. Implementations which might translate the same query
+	 * differently depending on their state should provide different keys.
+	 * @return key to be used in cache key calculation
+	 */
+	public default Object getCacheKey() {
+		return getClass();
+	}
 
 }
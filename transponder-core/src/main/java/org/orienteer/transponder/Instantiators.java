@@ -0,0 +1,142 @@
+package org.orienteer.transponder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.objenesis.instantiator.ObjectInstantiator;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Factories for instances of generated classes.
+ * Constructor of a class is resolved just once and converted to {@link MethodHandle}, so creation of new instance
+ * doesn't require reflective lookup of a constructor and doesn't allocate anything except instance itself.
+ * Drivers are expected to keep {@link ClassValue}s from {@link #forConstructor(Class)} in static fields:
+ * <pre>
+ * private static final ClassValue&lt;Function&lt;Object, Object&gt;&gt; WRAPPERS = Instantiators.forConstructor(Vertex.class);
+ * ...
+ * return (T) WRAPPERS.get(proxyClass).apply(vertex);
+ * </pre>
+ */
+@UtilityClass
+public class Instantiators {
+
+	private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType FUNCTION_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType BI_FUNCTION_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+
+	/**
+	 * Factories which use default (no-args) constructor of a class
+	 */
+	public static final ClassValue<Supplier<Object>> DEFAULT_CONSTRUCTORS = new ClassValue<Supplier<Object>>() {
+		@Override
+		protected Supplier<Object> computeValue(Class<?> type) {
+			MethodHandle handle = toMethodHandle(type).asType(SUPPLIER_TYPE);
+			return () -> {
+				try {
+					return (Object) handle.invokeExact();
+				} catch (Throwable e) {
+					throw rethrow(type, e);
+				}
+			};
+		}
+	};
+
+	/**
+	 * Factories which allocate instances of a class without calling any constructor
+	 */
+	public static final ClassValue<Supplier<Object>> ALLOCATORS = new ClassValue<Supplier<Object>>() {
+		@Override
+		protected Supplier<Object> computeValue(Class<?> type) {
+			ObjectInstantiator<?> instantiator = CommonUtils.OBJENESIS.getInstantiatorOf(type);
+			return instantiator::newInstance;
+		}
+	};
+
+	/**
+	 * Create factories which use constructor with single parameter of specified type
+	 * @param parameterType type of constructor parameter
+	 * @return {@link ClassValue} with factory per class
+	 */
+	public ClassValue<Function<Object, Object>> forConstructor(Class<?> parameterType) {
+		return new ClassValue<Function<Object, Object>>() {
+			@Override
+			protected Function<Object, Object> computeValue(Class<?> type) {
+				MethodHandle handle = toMethodHandle(type, parameterType).asType(FUNCTION_TYPE);
+				return arg -> {
+					try {
+						return (Object) handle.invokeExact(arg);
+					} catch (Throwable e) {
+						throw rethrow(type, e);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Create factories which use constructor with two parameters of specified types
+	 * @param parameterType1 type of the first constructor parameter
+	 * @param parameterType2 type of the second constructor parameter
+	 * @return {@link ClassValue} with factory per class
+	 */
+	public ClassValue<BiFunction<Object, Object, Object>> forConstructor(Class<?> parameterType1,
+																		  Class<?> parameterType2) {
+		return new ClassValue<BiFunction<Object, Object, Object>>() {
+			@Override
+			protected BiFunction<Object, Object, Object> computeValue(Class<?> type) {
+				MethodHandle handle = toMethodHandle(type, parameterType1, parameterType2).asType(BI_FUNCTION_TYPE);
+				return (arg1, arg2) -> {
+					try {
+						return (Object) handle.invokeExact(arg1, arg2);
+					} catch (Throwable e) {
+						throw rethrow(type, e);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Create new instance of a class by default constructor
+	 * @param <T> type of an instance
+	 * @param clazz class to create instance of
+	 * @return new instance
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T newInstance(Class<T> clazz) {
+		return (T) DEFAULT_CONSTRUCTORS.get(clazz).get();
+	}
+
+	/**
+	 * Create new instance of a class without calling any constructor
+	 * @param <T> type of an instance
+	 * @param clazz class to create instance of
+	 * @return new instance
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T allocate(Class<T> clazz) {
+		return (T) ALLOCATORS.get(clazz).get();
+	}
+
+	private MethodHandle toMethodHandle(Class<?> type, Class<?>... parameterTypes) {
+		try {
+			Constructor<?> constructor = type.getDeclaredConstructor(parameterTypes);
+			if(!constructor.isAccessible()) constructor.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(constructor);
+		} catch (ReflectiveOperationException | SecurityException e) {
+			throw new IllegalArgumentException("Can't find suitable constructor for "+type.getName(), e);
+		}
+	}
+
+	private RuntimeException rethrow(Class<?> type, Throwable e) {
+		if(e instanceof RuntimeException) return (RuntimeException) e;
+		if(e instanceof Error) throw (Error) e;
+		return new IllegalStateException("Can't instantiate "+type.getName(), e);
+	}
+}
@@ -0,0 +1,506 @@
+package org.orienteer.transponder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
+import org.orienteer.transponder.annotation.After;
+import org.orienteer.transponder.annotation.Cached;
+import org.orienteer.transponder.annotation.Coalesce;
+import org.orienteer.transponder.annotation.Count;
+import org.orienteer.transponder.annotation.Exists;
+import org.orienteer.transponder.annotation.Fetch;
+import org.orienteer.transponder.annotation.PageNumber;
+import org.orienteer.transponder.annotation.PageSize;
+import org.orienteer.transponder.annotation.Projection;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
+
+/**
+ * Plan of invocation of a method annotated by {@link org.orienteer.transponder.annotation.Query},
+ * {@link org.orienteer.transponder.annotation.Lookup} or {@link org.orienteer.transponder.annotation.Command}.
+ * Plan is created once per method of a generated class: translated query, names of parameters,
+ * conversion of arguments and result, and the way how result should be shaped are resolved in advance.
+ * So an invocation just fills pre-sized holder of parameters and calls the driver.
+ * Methods which are annotated by {@link Count} or {@link Exists} are executed by the driver as count or existence checks
+ * without loading of records.
+ * Methods which return {@link CompletableFuture} or {@link CompletionStage} are invoked asynchronously:
+ * see {@link Transponder#supplyAsync(java.util.function.Supplier)}
+ */
+public final class InvocationPlan {
+
+	/**
+	 * Kind of a method which require interaction with a data-source through query or command
+	 */
+	public static enum Kind {
+		/**
+		 * Method annotated by {@link org.orienteer.transponder.annotation.Query}
+		 */
+		QUERY,
+		/**
+		 * Method annotated by {@link org.orienteer.transponder.annotation.Lookup}
+		 */
+		LOOKUP,
+		/**
+		 * Method annotated by {@link org.orienteer.transponder.annotation.Command}
+		 */
+		COMMAND
+	}
+
+	/**
+	 * Way how result of the driver call should be converted to the result of the method
+	 */
+	public static enum ResultStrategy {
+		/**
+		 * Multiple results are expected: {@link IDriver#query(String, String, Map, Type)} is used.
+		 * {@link Iterable} results are materialized as well: so they can be iterated multiple times without leaking cursors
+		 */
+		COLLECTION,
+		/**
+		 * Results are read lazily through {@link IDriver#queryStream(String, String, Map, Type)}
+		 * and returned as single-use {@link Stream} or {@link Iterator}
+		 */
+		STREAM,
+		/**
+		 * One page of results is returned as {@link Slice} or {@link Page}:
+		 * {@link IDriver#querySlice(String, String, Map, Type, Object, int)}
+		 * or {@link IDriver#queryPage(String, String, Map, Type, long, int)} is used
+		 */
+		PAGE,
+		/**
+		 * Number of results is returned: {@link IDriver#queryCount(String, String, Map, Type)} is used
+		 */
+		COUNT,
+		/**
+		 * Method returns true if query has any result: {@link IDriver#queryExists(String, String, Map, Type)} is used
+		 */
+		EXISTS,
+		/**
+		 * Single result is expected
+		 */
+		SINGLE,
+		/**
+		 * Method returns true if something was found
+		 */
+		BOOLEAN,
+		/**
+		 * Method doesn't return anything
+		 */
+		VOID
+	}
+
+	private static final String TARGET = "target";
+	private static final String TARGET_TYPE = "targetType";
+
+	private final Kind kind;
+	private final Method method;
+	private final String query;
+	private final String language;
+	private final boolean entity;
+	private final ResultStrategy resultStrategy;
+	private final boolean async;
+	private final Type returnType;
+	private final Class<?> returnClass;
+	private final ConversionPlan resultPlan;
+	private final ConversionPlan elementPlan;
+	private final ConversionPlan[] argumentPlans;
+	private final String[] parameterNames;
+	private final String[] argumentNames;
+	private final String[] keys;
+	private final String[] fetch;
+	private final Class<?> fetchClass;
+	private final ProjectionMapper projectionMapper;
+	private final Type projectedType;
+	private final String[] projected;
+	private final String pageSizeKey;
+	private final String afterKey;
+	private final String pageNumberKey;
+	private final Type countedType;
+	private volatile TargetType targetType;
+
+	private InvocationPlan(Kind kind, Method method, String query, String language, boolean entity) {
+		this.kind = kind;
+		this.method = method;
+		this.query = CommonUtils.defaultIfNull(query, "");
+		this.language = CommonUtils.defaultIfNull(language, "");
+		this.entity = entity;
+		Class<?> methodReturnClass = method.getReturnType();
+		this.async = CompletableFuture.class.equals(methodReturnClass) || CompletionStage.class.equals(methodReturnClass);
+		this.returnType = async ? toElementType(method.getGenericReturnType()) : method.getGenericReturnType();
+		this.returnClass = async ? CommonUtils.typeToMasterClass(returnType) : methodReturnClass;
+		this.resultPlan = ConversionPlan.of(returnType);
+		this.resultStrategy = toResultStrategy(kind, method, returnClass);
+		if(method.isAnnotationPresent(Cached.class) || method.isAnnotationPresent(Coalesce.class))
+			QueryCache.checkShareable(method, entity, Kind.LOOKUP.equals(kind));
+		if(async && ResultStrategy.STREAM.equals(resultStrategy))
+			throw new IllegalArgumentException("Streamed results can't be returned asynchronously: "+method);
+		this.elementPlan = ResultStrategy.STREAM.equals(resultStrategy) || ResultStrategy.PAGE.equals(resultStrategy)
+								? ConversionPlan.of(toElementType(returnType)) : null;
+		Type[] parameterTypes = method.getGenericParameterTypes();
+		argumentPlans = new ConversionPlan[parameterTypes.length];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			argumentPlans[i] = ConversionPlan.of(parameterTypes[i]);
+		}
+		// Keys are the same as for CommonUtils.toArguments(...) with following registration of the target
+		Parameter[] params = method.getParameters();
+		parameterNames = new String[params.length];
+		argumentNames = new String[params.length];
+		Set<String> keysSet = new LinkedHashSet<>();
+		for (int i = 0; i < params.length; i++) {
+			parameterNames[i] = params[i].getName();
+			argumentNames[i] = "arg"+i;
+			keysSet.add(parameterNames[i]);
+			keysSet.add(argumentNames[i]);
+		}
+		if(entity) {
+			keysSet.add(TARGET);
+			keysSet.add(TARGET_TYPE);
+		}
+		this.keys = keysSet.toArray(new String[keysSet.size()]);
+		Fetch fetchAnnotation = method.getAnnotation(Fetch.class);
+		if(fetchAnnotation!=null && fetchAnnotation.value().length>0 && !Kind.COMMAND.equals(kind)
+				&& !ResultStrategy.STREAM.equals(resultStrategy) && !isCheck(resultStrategy)) {
+			this.fetch = fetchAnnotation.value();
+			Class<?> requiredClass = entity && Kind.LOOKUP.equals(kind) ? null : CommonUtils.typeToRequiredClass(returnType);
+			this.fetchClass = requiredClass!=null && !Boolean.class.equals(requiredClass)
+								? requiredClass : method.getDeclaringClass();
+		} else {
+			this.fetch = null;
+			this.fetchClass = null;
+		}
+		Class<?> resultClass = ResultStrategy.SINGLE.equals(resultStrategy) 
+									? returnClass 
+									: CommonUtils.typeToMasterClass(toElementType(returnType));
+		Projection projection = Kind.QUERY.equals(kind) && !ResultStrategy.PAGE.equals(resultStrategy)
+									&& !isCheck(resultStrategy) && resultClass!=null
+									? resultClass.getAnnotation(Projection.class) : null;
+		if(projection!=null) {
+			this.projectionMapper = ProjectionMapper.of(resultClass);
+			this.projectedType = Object.class.equals(projection.value()) ? returnType : projection.value();
+			this.projected = projectionMapper.getProperties();
+		} else {
+			this.projectionMapper = null;
+			this.projectedType = null;
+			this.projected = null;
+		}
+		String pageSizeParam = null;
+		String afterParam = null;
+		String pageNumberParam = null;
+		if(ResultStrategy.PAGE.equals(resultStrategy)) {
+			for (int i = 0; i < params.length; i++) {
+				if(params[i].isAnnotationPresent(PageSize.class)) pageSizeParam = "arg"+i;
+				if(params[i].isAnnotationPresent(After.class)) afterParam = "arg"+i;
+				if(params[i].isAnnotationPresent(PageNumber.class)) pageNumberParam = "arg"+i;
+			}
+			if(pageSizeParam==null)
+				throw new IllegalArgumentException("Parameter annotated by @PageSize is required for paged method: "+method);
+			if(afterParam!=null && (pageNumberParam!=null || Page.class.equals(returnClass)))
+				throw new IllegalArgumentException("Keyset and offset pagination can't be mixed: "+method);
+			if(!Slice.class.equals(returnClass) && !Page.class.equals(returnClass))
+				throw new IllegalArgumentException("Unsupported type of a page: "+method);
+		}
+		this.pageSizeKey = pageSizeParam;
+		this.afterKey = afterParam;
+		this.pageNumberKey = pageNumberParam;
+		this.countedType = isCheck(resultStrategy) ? toCountedType(method, returnType) : null;
+	}
+
+	private static ResultStrategy toResultStrategy(Kind kind, Method method, Class<?> returnClass) {
+		switch (kind) {
+			case QUERY:
+				if(method.isAnnotationPresent(Count.class)) {
+					if(!isCountClass(returnClass))
+						throw new IllegalArgumentException("Method annotated by @Count should return long or int: "+method);
+					return ResultStrategy.COUNT;
+				} else if(method.isAnnotationPresent(Exists.class)) {
+					if(!Boolean.class.equals(Primitives.wrap(returnClass)))
+						throw new IllegalArgumentException("Method annotated by @Exists should return boolean: "+method);
+					return ResultStrategy.EXISTS;
+				} else if(Collection.class.isAssignableFrom(returnClass)
+						|| Iterable.class.equals(returnClass)) return ResultStrategy.COLLECTION;
+				else if(Slice.class.isAssignableFrom(returnClass)) return ResultStrategy.PAGE;
+				else if(Stream.class.equals(returnClass)
+						|| Iterator.class.equals(returnClass)) return ResultStrategy.STREAM;
+				else return ResultStrategy.SINGLE;
+			case LOOKUP:
+				return Primitives.wrap(returnClass).equals(Boolean.class) ? ResultStrategy.BOOLEAN : ResultStrategy.SINGLE;
+			default:
+				return void.class.equals(returnClass) || Void.class.equals(returnClass) ? ResultStrategy.VOID : ResultStrategy.SINGLE;
+		}
+	}
+
+	private static boolean isCheck(ResultStrategy resultStrategy) {
+		return ResultStrategy.COUNT.equals(resultStrategy) || ResultStrategy.EXISTS.equals(resultStrategy);
+	}
+
+	private static boolean isCountClass(Class<?> returnClass) {
+		Class<?> wrapped = Primitives.wrap(returnClass);
+		return Long.class.equals(wrapped) || Integer.class.equals(wrapped) || Number.class.equals(wrapped);
+	}
+
+	private static Type toCountedType(Method method, Type returnType) {
+		Count count = method.getAnnotation(Count.class);
+		Exists exists = method.getAnnotation(Exists.class);
+		Class<?> ret = count!=null ? count.value() : (exists!=null ? exists.value() : Object.class);
+		return Object.class.equals(ret) ? returnType : ret;
+	}
+
+	private static Type toElementType(Type type) {
+		Type ret = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+		return ret instanceof WildcardType ? ((WildcardType) ret).getUpperBounds()[0] : ret;
+	}
+
+	/**
+	 * Create plan of invocation
+	 * @param kind kind of the method
+	 * @param method method to create plan for
+	 * @param translation query/command translated into dialect of a driver
+	 * @param entity true if method is going to be invoked on entity: so target should be provided for a driver
+	 * @return plan of invocation
+	 */
+	public static InvocationPlan of(Kind kind, Method method, IPolyglot.Translation translation, boolean entity) {
+		return new InvocationPlan(kind, method, translation.getQuery(), translation.getLanguage(), entity);
+	}
+
+	/**
+	 * Invoke query or command
+	 * @param thisObject wrapper or DAO object
+	 * @param args arguments of the method
+	 * @return result of the invocation
+	 */
+	public Object invoke(Object thisObject, Object[] args) {
+		Transponder transponder = Transponder.getTransponder(thisObject);
+		Map<String, Object> params = toParameters(thisObject, args);
+		if(async) return transponder.supplyAsync(() -> invoke(transponder, thisObject, params));
+		return invoke(transponder, thisObject, params);
+	}
+
+	private Object invoke(Transponder transponder, Object thisObject, Map<String, Object> params) {
+		IDriver driver = transponder.getDriver();
+		switch (kind) {
+			case QUERY:
+				if(projectionMapper!=null) return project(transponder, driver, params);
+				if(ResultStrategy.STREAM.equals(resultStrategy)) return stream(transponder, params);
+				if(ResultStrategy.PAGE.equals(resultStrategy)) return page(transponder, driver, params);
+				if(ResultStrategy.COUNT.equals(resultStrategy)) return count(driver, params);
+				if(ResultStrategy.EXISTS.equals(resultStrategy)) return driver.queryExists(language, query, params, countedType);
+				Object ret = ResultStrategy.COLLECTION.equals(resultStrategy)
+								? driver.query(language, query, params, returnType)
+								: driver.querySingle(language, query, params, returnType);
+				prefetch(driver, ret);
+				return resultPlan.wrap(transponder, ret);
+			case LOOKUP:
+				return lookup(transponder, driver, thisObject, params);
+			default:
+				Object result = driver.command(language, query, params, returnType);
+				//Command might modify anything, so cached results can't be trusted anymore
+				transponder.getQueryCache().invalidateAll();
+				return ResultStrategy.VOID.equals(resultStrategy) ? null : resultPlan.wrap(transponder, result);
+		}
+	}
+
+	private Object project(Transponder transponder, IDriver driver, Map<String, Object> params) {
+		List<Map<String, Object>> rows = driver.queryProjected(language, query, params, projectedType, projected);
+		if(ResultStrategy.SINGLE.equals(resultStrategy)) {
+			return rows==null || rows.isEmpty() ? null : projectionMapper.map(transponder, rows.get(0));
+		}
+		List<Object> ret = new ArrayList<>(rows!=null ? rows.size() : 0);
+		if(rows!=null) {
+			for (Map<String, Object> row : rows) {
+				ret.add(projectionMapper.map(transponder, row));
+			}
+		}
+		if(Set.class.isAssignableFrom(returnClass)) return new LinkedHashSet<>(ret);
+		else if(Stream.class.equals(returnClass)) return ret.stream();
+		else if(Iterator.class.equals(returnClass)) return ICloseableIterator.of(ret.iterator());
+		else return ret;
+	}
+
+	private Object page(Transponder transponder, IDriver driver, Map<String, Object> params) {
+		Object pageSizeValue = params.get(pageSizeKey);
+		if(!(pageSizeValue instanceof Number) || ((Number) pageSizeValue).longValue()<=0)
+			throw new IllegalArgumentException("Page size should be positive, but was "+pageSizeValue);
+		//One more entity is requested: so page size should leave room for it
+		if(((Number) pageSizeValue).longValue()>=Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Page size should be less than "+Integer.MAX_VALUE+", but was "+pageSizeValue);
+		int pageSize = ((Number) pageSizeValue).intValue();
+		boolean offset = pageNumberKey!=null || Page.class.equals(returnClass);
+		long pageNumber = 0;
+		List<Object> seeds;
+		//One more entity is requested to find out whether next page exists
+		if(offset) {
+			Object pageNumberValue = pageNumberKey!=null ? params.get(pageNumberKey) : null;
+			if(pageNumberValue instanceof Number) pageNumber = ((Number) pageNumberValue).longValue();
+			if(pageNumber<0) throw new IllegalArgumentException("Page number should not be negative, but was "+pageNumber);
+			long firstIndex;
+			try {
+				firstIndex = Math.multiplyExact(pageNumber, (long) pageSize);
+			} catch (ArithmeticException e) {
+				throw new IllegalArgumentException("Page number is too big: "+pageNumber, e);
+			}
+			seeds = driver.queryPage(language, query, params, returnType, firstIndex, pageSize+1);
+		} else {
+			Object after = afterKey!=null ? params.get(afterKey) : null;
+			if(after!=null && driver.isSeed(after)) after = driver.getSeedId(after);
+			seeds = driver.querySlice(language, query, params, returnType, after, pageSize+1);
+		}
+		boolean hasNext = seeds.size()>pageSize;
+		if(hasNext) seeds = seeds.subList(0, pageSize);
+		prefetch(driver, seeds);
+		List<Object> content = new ArrayList<>(seeds.size());
+		for (Object seed : seeds) {
+			content.add(elementPlan.wrap(transponder, seed));
+		}
+		Object nextCursor = seeds.isEmpty() ? null : driver.getSeedId(seeds.get(seeds.size()-1));
+		return offset
+					? new Page<>(content, pageSize, hasNext, nextCursor, pageNumber)
+					: new Slice<>(content, pageSize, hasNext, nextCursor);
+	}
+
+	private Object count(IDriver driver, Map<String, Object> params) {
+		long count = driver.queryCount(language, query, params, countedType);
+		return Integer.class.equals(Primitives.wrap(returnClass)) ? (Object) Math.toIntExact(count) : (Object) count;
+	}
+
+	private void prefetch(IDriver driver, Object result) {
+		if(fetch==null || result==null) return;
+		Collection<?> seeds = result instanceof Collection ? (Collection<?>) result : Collections.singletonList(result);
+		if(!seeds.isEmpty()) driver.prefetch(seeds, fetchClass, fetch);
+	}
+
+	private Object stream(Transponder transponder, Map<String, Object> params) {
+		ICloseableIterator<Object> ret = openStream(transponder, params);
+		return Stream.class.equals(returnClass) ? ret.toStream() : ret;
+	}
+
+	private ICloseableIterator<Object> openStream(Transponder transponder, Map<String, Object> params) {
+		return transponder.getDriver().queryStream(language, query, params, returnType)
+					.map(seed -> elementPlan.wrap(transponder, seed));
+	}
+
+	private Object lookup(Transponder transponder, IDriver driver, Object thisObject, Map<String, Object> params) {
+		Object newSeed = driver.querySingle(language, query, params, returnType);
+		if(newSeed!=null) {
+			if(driver.isSeed(newSeed)) {
+				if(entity) driver.replaceSeed(thisObject, newSeed);
+			} else
+				throw new IllegalStateException("Result of a lookup can't be used as new seed object. Looked up object: "+newSeed);
+			prefetch(driver, newSeed);
+		}
+		if(ResultStrategy.BOOLEAN.equals(resultStrategy)) return newSeed!=null;
+		else if(newSeed==null) return null;
+		else if(entity) return thisObject;
+		else return resultPlan.wrap(transponder, newSeed);
+	}
+
+	/**
+	 * Prepare parameters for a driver
+	 * @param thisObject wrapper or DAO object
+	 * @param args arguments of the method
+	 * @return map with parameters: by names, by positions (arg0, arg1, ...) and target if method is invoked on entity
+	 */
+	public Map<String, Object> toParameters(Object thisObject, Object[] args) {
+		Map<String, Object> ret = Maps.newHashMapWithExpectedSize(keys.length);
+		for (int i = 0; i < argumentPlans.length; i++) {
+			Object value = argumentPlans[i].unwrap(args[i]);
+			ret.put(parameterNames[i], value);
+			ret.put(argumentNames[i], value);
+		}
+		if(entity) {
+			ret.put(TARGET, Transponder.unwrap(thisObject));
+			ret.put(TARGET_TYPE, getTargetType(thisObject.getClass()));
+		}
+		return ret;
+	}
+
+	private String getTargetType(Class<?> clazz) {
+		TargetType current = targetType;
+		if(current==null || current.clazz!=clazz) {
+			current = new TargetType(clazz, CommonUtils.resolveEntityType(clazz));
+			targetType = current;
+		}
+		return current.type;
+	}
+
+	/**
+	 * @return kind of the method
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return true if method is invoked asynchronously
+	 */
+	public boolean isAsync() {
+		return async;
+	}
+
+	/**
+	 * @return method for which this plan was created
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return translated query or command
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * @return language of the query or command
+	 */
+	public String getLanguage() {
+		return language;
+	}
+
+	/**
+	 * @return way how result of driver call is converted to result of the method
+	 */
+	public ResultStrategy getResultStrategy() {
+		return resultStrategy;
+	}
+
+	/**
+	 * @return names of parameters which are going to be provided for a driver
+	 */
+	public List<String> getParameterNames() {
+		return Arrays.asList(keys);
+	}
+
+	@Override
+	public String toString() {
+		return "InvocationPlan["+kind+" "+method+"]";
+	}
+
+	/**
+	 * Entity type resolved for a specific class
+	 */
+	private static final class TargetType {
+		private final Class<?> clazz;
+		private final String type;
+
+		TargetType(Class<?> clazz, String type) {
+			this.clazz = clazz;
+			this.type = type;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.orienteer.transponder;
+
+import java.util.List;
+
+import org.orienteer.transponder.annotation.PageNumber;
+import org.orienteer.transponder.annotation.PageSize;
+
+/**
+ * Page of results of a query for offset pagination. Can be returned by methods annotated by
+ * {@link org.orienteer.transponder.annotation.Query} with parameters annotated by {@link PageSize} and {@link PageNumber}
+ * @param <T> type of entities
+ */
+public class Page<T> extends Slice<T> {
+	private final long pageNumber;
+
+	/**
+	 * Creates {@link Page}
+	 * @param content entities of the page
+	 * @param pageSize requested max number of entities per page
+	 * @param hasNext true if there are more entities after this page
+	 * @param nextCursor identity of the last entity on the page
+	 * @param pageNumber zero-based number of the page
+	 */
+	public Page(List<T> content, int pageSize, boolean hasNext, Object nextCursor, long pageNumber) {
+		super(content, pageSize, hasNext, nextCursor);
+		this.pageNumber = pageNumber;
+	}
+
+	/**
+	 * @return zero-based number of the page
+	 */
+	public long getPageNumber() {
+		return pageNumber;
+	}
+
+	/**
+	 * @return true if there are pages before this one
+	 */
+	public boolean hasPrevious() {
+		return pageNumber>0;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString()+"[pageNumber="+pageNumber+"]";
+	}
+}
@@ -0,0 +1,238 @@
+package org.orienteer.transponder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+import org.orienteer.transponder.Transponder.ITransponderEntity;
+import org.orienteer.transponder.annotation.binder.QueryValue;
+
+import lombok.experimental.UtilityClass;
+import net.bytebuddy.description.method.MethodDescription;
+
+/**
+ * Support for classes precompiled by <code>transponder-processor</code>.
+ * Precompiled classes are used by {@link Transponder} instead of runtime generation if they are present in classpath
+ * and there are no additional interfaces requested. Driver specific mutator is applied to a runtime subclass of a precompiled class.
+ * Methods of this class are being invoked from precompiled code.
+ */
+@UtilityClass
+public class Precompiled {
+
+	/**
+	 * Suffix for names of all precompiled classes
+	 */
+	public static final String CLASS_NAME_SUFFIX = "$$Transponder";
+
+	/**
+	 * Compose name of a precompiled class
+	 * @param mainClassName binary name of main class/interface
+	 * @param baseClassName binary name of a base class
+	 * @param proxyType type of a proxy. Only {@link ProxyType#ENTITY} and {@link ProxyType#DAO} are supported
+	 * @return name of a precompiled class
+	 */
+	public String className(String mainClassName, String baseClassName, ProxyType proxyType) {
+		StringBuilder sb = new StringBuilder(mainClassName).append(CLASS_NAME_SUFFIX);
+		if(ProxyType.ENTITY.equals(proxyType)) {
+			sb.append('$').append(baseClassName.substring(baseClassName.lastIndexOf('.')+1).replace('$', '_'));
+		} else {
+			sb.append(proxyType.name());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Find precompiled class
+	 * @param <T> type of a main class
+	 * @param baseClass base class
+	 * @param mainClass main class/interface
+	 * @param proxyType type of a proxy
+	 * @return precompiled class or null if there is no suitable one
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Class<T> find(Class<?> baseClass, Class<T> mainClass, ProxyType proxyType) {
+		if(ProxyType.DELEGATE.equals(proxyType) || !mainClass.isInterface()) return null;
+		String name = className(mainClass.getName(), baseClass.getName(), proxyType);
+		try {
+			Class<?> ret = Class.forName(name, true, mainClass.getClassLoader());
+			return mainClass.isAssignableFrom(ret)
+					&& baseClass.isAssignableFrom(ret)
+					&& proxyType.getTransponderInterfaceToImplement().isAssignableFrom(ret)
+					? (Class<T>) ret : null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Resolve method which is going to be implemented by precompiled code
+	 * @param clazz class/interface which declares the method
+	 * @param name name of the method
+	 * @param parameterTypes types of parameters
+	 * @return resolved method
+	 */
+	public Method method(Class<?> clazz, String name, Class<?>... parameterTypes) {
+		try {
+			return clazz.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Precompiled class is not in sync with "+clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Obtain value of the property
+	 * @param wrapper wrapper object
+	 * @param property name of property to get value of
+	 * @param type required type of the value
+	 * @param plan conversion plan for the required type
+	 * @param stubValue value which needs to be returned if property value is null
+	 * @return property value
+	 */
+	public Object get(Object wrapper, String property, Type type, ConversionPlan plan, Object stubValue) {
+		Transponder transponder = Transponder.getTransponder(wrapper);
+		Object ret = plan.wrap(transponder, transponder.getDriver().getPropertyValue(wrapper, property, type));
+		return ret !=null ? ret : stubValue;
+	}
+
+	/**
+	 * Obtain live collection of the property
+	 * @param wrapper wrapper object
+	 * @param property name of property to get collection of
+	 * @param type required type of the collection
+	 * @param plan conversion plan for the required type
+	 * @return live collection
+	 */
+	public Object getLive(Object wrapper, String property, Type type, ConversionPlan plan) {
+		Transponder transponder = Transponder.getTransponder(wrapper);
+		return plan.wrapLive(transponder, transponder.getDriver().getPropertyCollection(wrapper, property, type));
+	}
+
+	/**
+	 * Obtain lazily loaded entity referenced by the property
+	 * @param wrapper wrapper object
+	 * @param property name of property to get reference from
+	 * @param type required type of the entity
+	 * @return lazily loaded entity or null
+	 */
+	public Object getLazy(Object wrapper, String property, Type type) {
+		Transponder transponder = Transponder.getTransponder(wrapper);
+		return transponder.provideLazy(transponder.getDriver().getPropertyReference(wrapper, property, type), (Class<?>) type);
+	}
+
+	/**
+	 * Obtain size of a collection property
+	 * @param wrapper wrapper object
+	 * @param property name of a collection property
+	 * @param type declared type of the collection property
+	 * @param sizeClass class of the size to be returned: int, long or their wrappers
+	 * @return size of the collection property
+	 */
+	public Object getSize(Object wrapper, String property, Type type, Class<?> sizeClass) {
+		Transponder transponder = Transponder.getTransponder(wrapper);
+		return CommonUtils.toSize(transponder.getDriver().getPropertySize(wrapper, property, type), sizeClass);
+	}
+
+	/**
+	 * Sets value of a property
+	 * @param wrapper wrapper object
+	 * @param property name of property to set value to
+	 * @param type type of the value
+	 * @param plan conversion plan for the type
+	 * @param value actual value to set
+	 */
+	public void set(Object wrapper, String property, Type type, ConversionPlan plan, Object value) {
+		Transponder transponder = Transponder.getTransponder(wrapper);
+		transponder.getDriver().setPropertyValue(wrapper, property, plan.unwrap(value), type);
+	}
+
+	/**
+	 * Cast value to a parameterized type declared by a precompiled method.
+	 * Used instead of plain casts which cause unchecked warnings in generated sources
+	 * @param <T> required type
+	 * @param value value to cast
+	 * @return the same value
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T typed(Object value) {
+		return (T) value;
+	}
+
+	/**
+	 * Replace returned value by default one if needed
+	 * @param value actual value
+	 * @param stubValue value which is considered as absence of value
+	 * @param defaultValue value to be returned instead of absent one
+	 * @return actual or default value
+	 */
+	public Object defaultValue(Object value, Object stubValue, Object defaultValue) {
+		return Objects.equals(value, stubValue) ? defaultValue : value;
+	}
+
+	/**
+	 * Create invocation for a method which requires query or command
+	 * @param kind kind of the method
+	 * @param method method to create invocation for
+	 * @return invocation to be used from precompiled code
+	 */
+	public Invocation invocation(InvocationPlan.Kind kind, Method method) {
+		return new Invocation(kind, method);
+	}
+
+	/**
+	 * Invocation of a method which requires query or command.
+	 * {@link InvocationPlan} is cached till change of cache key of polyglot or dialect.
+	 */
+	public static final class Invocation {
+		private final InvocationPlan.Kind kind;
+		private final Method method;
+		private final MethodDescription description;
+		private volatile Translated translated;
+
+		private Invocation(InvocationPlan.Kind kind, Method method) {
+			this.kind = kind;
+			this.method = method;
+			this.description = new MethodDescription.ForLoadedMethod(method);
+		}
+
+		/**
+		 * Invoke query or command
+		 * @param thisObject wrapper or DAO object
+		 * @param args arguments of the method
+		 * @return result of the invocation
+		 */
+		public Object invoke(Object thisObject, Object... args) {
+			return getPlan(thisObject).invoke(thisObject, args);
+		}
+
+		private InvocationPlan getPlan(Object thisObject) {
+			Transponder transponder = Transponder.getTransponder(thisObject);
+			Translated current = translated;
+			Object polyglotKey = transponder.getPolyglot().getCacheKey();
+			String dialect = transponder.getDriver().getDialect();
+			if(current==null || !Objects.equals(current.polyglotKey, polyglotKey) || !Objects.equals(current.dialect, dialect)) {
+				IPolyglot.Translation translation = QueryValue.Binder.translate(transponder, description);
+				if(translation==null)
+					throw new IllegalStateException("Translation was not found for "+method+" and dialect="+dialect);
+				current = new Translated(polyglotKey, dialect,
+						InvocationPlan.of(kind, method, translation, thisObject instanceof ITransponderEntity));
+				translated = current;
+			}
+			return current.plan;
+		}
+	}
+
+	/**
+	 * Plan of invocation for specific polyglot and dialect
+	 */
+	private static final class Translated {
+		private final Object polyglotKey;
+		private final String dialect;
+		private final InvocationPlan plan;
+
+		Translated(Object polyglotKey, String dialect, InvocationPlan plan) {
+			this.polyglotKey = polyglotKey;
+			this.dialect = dialect;
+			this.plan = plan;
+		}
+	}
+}
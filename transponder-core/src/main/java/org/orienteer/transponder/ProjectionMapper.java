@@ -0,0 +1,190 @@
+package org.orienteer.transponder;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Defaults;
+import com.google.common.primitives.Primitives;
+
+/**
+ * Mapper of rows with values of projected properties into classes annotated by {@link org.orienteer.transponder.annotation.Projection}.
+ * Mapping is resolved once per class: either constructor with named parameters (for example, canonical constructor of a record)
+ * or default constructor and setters/public fields are used. Method handles are prepared in advance,
+ * so mapping of a row doesn't require reflection.
+ * Interfaces are mapped through generated read-only implementation: see {@link Transponder#project(Map, Class)}
+ */
+public final class ProjectionMapper {
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final ClassValue<ProjectionMapper> MAPPERS = new ClassValue<ProjectionMapper>() {
+		@Override
+		protected ProjectionMapper computeValue(Class<?> type) {
+			return new ProjectionMapper(type);
+		}
+	};
+
+	private final Class<?> type;
+	private final String[] properties;
+	private final ConversionPlan[] plans;
+	private final Class<?>[] classes;
+	private final MethodHandle constructor;
+	private final MethodHandle[] setters;
+
+	private ProjectionMapper(Class<?> type) {
+		this.type = type;
+		if(type.isInterface()) {
+			this.properties = CommonUtils.resolveDeclaredProperties(type);
+			this.plans = null;
+			this.classes = null;
+			this.constructor = null;
+			this.setters = null;
+			return;
+		}
+		if(Modifier.isAbstract(type.getModifiers()))
+			throw new IllegalArgumentException("Projection class should not be abstract: "+type.getName());
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		Map<String, Type> propertyTypes = new LinkedHashMap<>();
+		List<MethodHandle> settersList = new ArrayList<>();
+		try {
+			Constructor<?> named = findNamedConstructor(type);
+			if(named!=null) {
+				named.setAccessible(true);
+				for (Parameter parameter : named.getParameters()) {
+					propertyTypes.put(parameter.getName(), parameter.getParameterizedType());
+				}
+				this.constructor = lookup.unreflectConstructor(named)
+										.asSpreader(Object[].class, named.getParameterCount())
+										.asType(CONSTRUCTOR_TYPE);
+			} else {
+				Constructor<?> defaultConstructor = type.getConstructor();
+				defaultConstructor.setAccessible(true);
+				this.constructor = lookup.unreflectConstructor(defaultConstructor)
+										.asSpreader(Object[].class, 0)
+										.asType(CONSTRUCTOR_TYPE);
+				for (Method method : type.getMethods()) {
+					if(method.getName().length()>3 && method.getName().startsWith("set")
+							&& method.getParameterCount()==1 && !Modifier.isStatic(method.getModifiers())) {
+						String property = CommonUtils.decapitalize(method.getName().substring(3));
+						if(propertyTypes.containsKey(property)) continue;
+						propertyTypes.put(property, method.getGenericParameterTypes()[0]);
+						method.setAccessible(true);
+						settersList.add(lookup.unreflect(method).asType(SETTER_TYPE));
+					}
+				}
+				for (Field field : type.getFields()) {
+					int modifiers = field.getModifiers();
+					if(Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+							|| propertyTypes.containsKey(field.getName())) continue;
+					propertyTypes.put(field.getName(), field.getGenericType());
+					field.setAccessible(true);
+					settersList.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+				}
+			}
+		} catch (ReflectiveOperationException | SecurityException e) {
+			throw new IllegalArgumentException("Projection class should have either public constructor with named parameters "
+												+ "or public default constructor: "+type.getName(), e);
+		}
+		this.properties = propertyTypes.keySet().toArray(new String[propertyTypes.size()]);
+		this.plans = new ConversionPlan[properties.length];
+		this.classes = new Class<?>[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			Type propertyType = propertyTypes.get(properties[i]);
+			plans[i] = ConversionPlan.of(propertyType);
+			classes[i] = propertyType instanceof Class ? (Class<?>) propertyType : CommonUtils.typeToMasterClass(propertyType);
+		}
+		this.setters = settersList.isEmpty() ? null : settersList.toArray(new MethodHandle[settersList.size()]);
+	}
+
+	private static Constructor<?> findNamedConstructor(Class<?> type) {
+		Constructor<?> ret = null;
+		for (Constructor<?> candidate : type.getConstructors()) {
+			if(candidate.getParameterCount()==0
+					|| (ret!=null && ret.getParameterCount()>=candidate.getParameterCount())) continue;
+			boolean named = true;
+			for (Parameter parameter : candidate.getParameters()) {
+				named &= parameter.isNamePresent();
+			}
+			if(named) ret = candidate;
+		}
+		return ret;
+	}
+
+	/**
+	 * Obtain mapper for a class
+	 * @param type class or interface to map rows into
+	 * @return cached mapper
+	 */
+	public static ProjectionMapper of(Class<?> type) {
+		return MAPPERS.get(type);
+	}
+
+	/**
+	 * @return names of properties which are required to create an instance
+	 */
+	public String[] getProperties() {
+		return properties.clone();
+	}
+
+	/**
+	 * Map row into new instance of the projection
+	 * @param transponder {@link Transponder} to wrap values of properties with
+	 * @param row values of projected properties
+	 * @return new instance or null if row is null
+	 */
+	public Object map(Transponder transponder, Map<String, Object> row) {
+		if(row==null) return null;
+		if(type.isInterface()) return transponder.project(row, type);
+		try {
+			if(setters==null) {
+				Object[] args = new Object[properties.length];
+				for (int i = 0; i < args.length; i++) {
+					args[i] = convert(transponder, i, row.get(properties[i]));
+				}
+				return (Object) constructor.invokeExact(args);
+			} else {
+				Object ret = (Object) constructor.invokeExact(new Object[0]);
+				for (int i = 0; i < setters.length; i++) {
+					if(row.containsKey(properties[i]))
+						setters[i].invokeExact(ret, convert(transponder, i, row.get(properties[i])));
+				}
+				return ret;
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Can't map projection into "+type.getName(), e);
+		}
+	}
+
+	private Object convert(Transponder transponder, int index, Object value) {
+		Class<?> clazz = classes[index];
+		Object stubValue = clazz!=null && clazz.isPrimitive() ? Defaults.defaultValue(clazz) : null;
+		if(value==null) return stubValue;
+		Class<?> wrapped = clazz!=null ? Primitives.wrap(clazz) : null;
+		if(value instanceof Number && wrapped!=null && !wrapped.isInstance(value) && Number.class.isAssignableFrom(wrapped)) {
+			//Aggregates might be returned in wider or narrower numeric types than declared
+			Number number = (Number) value;
+			if(Integer.class.equals(wrapped)) return number.intValue();
+			else if(Long.class.equals(wrapped)) return number.longValue();
+			else if(Double.class.equals(wrapped)) return number.doubleValue();
+			else if(Float.class.equals(wrapped)) return number.floatValue();
+			else if(Short.class.equals(wrapped)) return number.shortValue();
+			else if(Byte.class.equals(wrapped)) return number.byteValue();
+		}
+		Object ret = plans[index].wrap(transponder, value);
+		return ret!=null ? ret : stubValue;
+	}
+}
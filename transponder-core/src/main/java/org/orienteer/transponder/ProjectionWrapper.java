@@ -0,0 +1,33 @@
+package org.orienteer.transponder;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Base class for generated implementations of interfaces annotated by {@link org.orienteer.transponder.annotation.Projection}.
+ * Values of projected properties are kept in read-only map
+ */
+public class ProjectionWrapper {
+	private final Map<String, Object> values;
+
+	/**
+	 * Create wrapper for values of projected properties
+	 * @param values values of projected properties
+	 */
+	public ProjectionWrapper(Map<String, Object> values) {
+		this.values = values!=null ? Collections.unmodifiableMap(values) : Collections.emptyMap();
+	}
+
+	//CHECKSTYLE IGNORE MethodName FOR NEXT 6 LINES
+	/**
+	 * @return read-only map with values of projected properties
+	 */
+	public Map<String, Object> get$values() {
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return "Projection" + values;
+	}
+}
@@ -0,0 +1,87 @@
+package org.orienteer.transponder;
+
+import java.lang.reflect.Type;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Live collection of seeds for a property of an entity which is backed just by
+ * {@link IDriver#getPropertyValue(Object, String, Type)} and {@link IDriver#setPropertyValue(Object, String, Object, Type)}.
+ * Every modification rewrites whole value of the property, so drivers are encouraged to provide
+ * native implementation in {@link IDriver#getPropertyCollection(Object, String, Type)}
+ */
+public class PropertyCollection extends AbstractList<Object> {
+	private final IDriver driver;
+	private final Object wrapper;
+	private final String property;
+	private final Type type;
+
+	/**
+	 * Create live collection for a property
+	 * @param driver driver to read and write property value through
+	 * @param wrapper wrapper object which holds the property
+	 * @param property name of the property
+	 * @param type type of the property
+	 */
+	public PropertyCollection(IDriver driver, Object wrapper, String property, Type type) {
+		this.driver = driver;
+		this.wrapper = wrapper;
+		this.property = property;
+		this.type = type;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object> read() {
+		Object value = driver.getPropertyValue(wrapper, property, type);
+		if(value==null) return Collections.emptyList();
+		else if(value instanceof List) return (List<Object>) value;
+		else if(value instanceof Collection) return new ArrayList<>((Collection<Object>) value);
+		else throw new IllegalStateException("Property '"+property+"' doesn't contain a collection: "+value);
+	}
+
+	private void write(List<Object> value) {
+		driver.setPropertyValue(wrapper, property, value, type);
+		modCount++;
+	}
+
+	@Override
+	public Object get(int index) {
+		return read().get(index);
+	}
+
+	@Override
+	public int size() {
+		return read().size();
+	}
+
+	@Override
+	public Object set(int index, Object element) {
+		List<Object> value = new ArrayList<>(read());
+		Object ret = value.set(index, element);
+		write(value);
+		return ret;
+	}
+
+	@Override
+	public void add(int index, Object element) {
+		List<Object> value = new ArrayList<>(read());
+		value.add(index, element);
+		write(value);
+	}
+
+	@Override
+	public Object remove(int index) {
+		List<Object> value = new ArrayList<>(read());
+		Object ret = value.remove(index);
+		write(value);
+		return ret;
+	}
+
+	@Override
+	public void clear() {
+		write(new ArrayList<>());
+	}
+}
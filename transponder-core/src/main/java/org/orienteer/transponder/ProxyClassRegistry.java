@@ -0,0 +1,281 @@
+package org.orienteer.transponder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+
+import lombok.Value;
+
+/**
+ * Registry of classes generated by {@link Transponder}.
+ * Classes are registered by structural {@link Key}, so different combinations of driver, classes, proxy type and
+ * polyglot never share the same generated class, but different {@link Transponder} instances with equal driver
+ * and polyglot keys do. Retention of generated classes is configurable: see {@link Retention}.
+ */
+public class ProxyClassRegistry {
+
+	/**
+	 * Default maximum number of classes to be kept for {@link Retention#LRU}
+	 */
+	public static final long DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * Retention policy for generated classes
+	 */
+	public static enum Retention {
+		/**
+		 * Generated classes are kept till the end of JVM
+		 */
+		STRONG,
+		/**
+		 * Generated classes are softly referenced: they can be garbage collected on memory pressure
+		 */
+		SOFT,
+		/**
+		 * Only limited number of recently used classes are kept
+		 */
+		LRU
+	}
+
+	/**
+	 * Structural key of a generated class
+	 */
+	@Value
+	public static class Key {
+		private Object driverKey;
+		private Class<?> baseClass;
+		private Class<?> mainClass;
+		private List<Class<?>> additionalInterfaces;
+		private ProxyType proxyType;
+		private Object polyglotKey;
+	}
+
+	private volatile Retention retention;
+	private volatile long maxSize;
+	private volatile Cache<Key, Class<?>> cache;
+
+	private final ConcurrentMap<Key, Generation> inFlight = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder generations = new LongAdder();
+	private final LongAdder generationTime = new LongAdder();
+
+	/**
+	 * Creates registry with {@link Retention#SOFT} retention policy
+	 */
+	public ProxyClassRegistry() {
+		this(Retention.SOFT, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates registry with specified retention policy
+	 * @param retention retention policy to use
+	 * @param maxSize maximum number of classes to keep. Used only for {@link Retention#LRU}
+	 */
+	public ProxyClassRegistry(Retention retention, long maxSize) {
+		configure(retention, maxSize);
+	}
+
+	/**
+	 * Change retention policy of the registry. Already generated classes are preserved as far as new policy allows.
+	 * @param retention retention policy to use
+	 * @param maxSize maximum number of classes to keep. Used only for {@link Retention#LRU}
+	 * @return this registry for chaining
+	 */
+	public synchronized ProxyClassRegistry configure(Retention retention, long maxSize) {
+		if(retention==null) throw new IllegalArgumentException("Retention can't be null");
+		if(maxSize<=0) throw new IllegalArgumentException("Max size should be positive");
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+		switch (retention) {
+			case SOFT:
+				builder.softValues();
+				break;
+			case LRU:
+				builder.maximumSize(maxSize);
+				break;
+			default:
+				break;
+		}
+		Cache<Key, Class<?>> newCache = builder.build();
+		if(cache!=null) newCache.putAll(cache.asMap());
+		this.retention = retention;
+		this.maxSize = maxSize;
+		this.cache = newCache;
+		return this;
+	}
+
+	/**
+	 * Find previously generated class or generate and register a new one.
+	 * Only one thread generates class for a key: other threads requesting the same key wait for the result.
+	 * Generation for different keys is done in parallel.
+	 * @param <T> type of generated class
+	 * @param key structural key of the class
+	 * @param generator generator to be used if there is no class for the key
+	 * @return generated class
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Class<T> findOrGenerate(Key key, Supplier<Class<?>> generator) {
+		Class<?> ret = cache.getIfPresent(key);
+		if(ret!=null) {
+			hits.increment();
+			return (Class<T>) ret;
+		}
+		Generation generation = new Generation();
+		Generation existing = inFlight.putIfAbsent(key, generation);
+		if(existing!=null) {
+			hits.increment();
+			return (Class<T>) existing.await();
+		}
+		try {
+			//Class might be registered between initial lookup and reservation of the key
+			ret = cache.getIfPresent(key);
+			if(ret!=null) hits.increment();
+			else {
+				misses.increment();
+				long start = System.nanoTime();
+				ret = generator.get();
+				generationTime.add(System.nanoTime()-start);
+				generations.increment();
+				cache.put(key, ret);
+			}
+			generation.complete(ret);
+			return (Class<T>) ret;
+		} catch (RuntimeException | Error e) {
+			generation.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, generation);
+		}
+	}
+	
+	/**
+	 * Generation of a class which is in progress
+	 */
+	private static class Generation extends CompletableFuture<Class<?>> {
+		private final Thread owner = Thread.currentThread();
+		
+		Class<?> await() {
+			if(owner==Thread.currentThread()) 
+				throw new IllegalStateException("Recursive generation of the same class was detected");
+			try {
+				return join();
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+				else if(cause instanceof Error) throw (Error) cause;
+				else throw e;
+			}
+		}
+	}
+
+	/**
+	 * Find previously generated class
+	 * @param <T> type of generated class
+	 * @param key structural key of the class
+	 * @return generated class or null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Class<T> find(Key key) {
+		return (Class<T>) cache.getIfPresent(key);
+	}
+
+	/**
+	 * @return snapshot of all currently registered classes
+	 */
+	public Map<Key, Class<?>> getGeneratedClasses() {
+		return ImmutableMap.copyOf(cache.asMap());
+	}
+
+	/**
+	 * @return number of currently registered classes
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	/**
+	 * Remove all registered classes
+	 */
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * @return current retention policy
+	 */
+	public Retention getRetention() {
+		return retention;
+	}
+
+	/**
+	 * @return maximum number of classes to keep for {@link Retention#LRU}
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return number of requests served by already generated classes or by waiting for generation in other thread
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of requests which required class generation
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of generated classes
+	 */
+	public long getGenerationCount() {
+		return generations.sum();
+	}
+
+	/**
+	 * @return total time in nanoseconds spent on classes generation
+	 */
+	public long getGenerationTimeNanos() {
+		return generationTime.sum();
+	}
+
+	/**
+	 * @return number of classes evicted from the registry according to retention policy
+	 */
+	public long getEvictionCount() {
+		return cache.stats().evictionCount();
+	}
+
+	/**
+	 * Create key for a generated class
+	 * @param driverKey cache key of a driver
+	 * @param baseClass base class for generated class
+	 * @param mainClass main class or interface
+	 * @param additionalInterfaces additional interfaces to be implemented
+	 * @param proxyType type of proxy
+	 * @param polyglotKey cache key of a polyglot used for translation of queries
+	 * @return structural key
+	 */
+	public static Key key(Object driverKey, Class<?> baseClass, Class<?> mainClass, Class<?>[] additionalInterfaces,
+							ProxyType proxyType, Object polyglotKey) {
+		List<Class<?>> interfaces = additionalInterfaces==null || additionalInterfaces.length==0
+											? Collections.emptyList()
+											: Collections.unmodifiableList(Arrays.asList(additionalInterfaces.clone()));
+		return new Key(driverKey, baseClass, mainClass, interfaces, proxyType, polyglotKey);
+	}
+}
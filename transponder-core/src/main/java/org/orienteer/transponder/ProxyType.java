@@ -11,7 +11,8 @@ import org.orienteer.transponder.mutator.StackedMutator;
 public enum ProxyType {
 	ENTITY("entity", ITransponderEntity.class, StackedMutator.ENTITY_MUTATOR), 
 	DAO("dao", ITransponderHolder.class, StackedMutator.DAO_MUTATOR),
-	DELEGATE("delegate", ITransponderDelegator.class, StackedMutator.DELEGATE_MUTATOR);
+	DELEGATE("delegate", ITransponderDelegator.class, StackedMutator.DELEGATE_MUTATOR),
+	PROJECTION("projection", ITransponderHolder.class, StackedMutator.PROJECTION_MUTATOR);
 	
 	private final String packageSuffix;
 	private final Class<?> transponderInterfaceToImplement;
@@ -0,0 +1,311 @@
+package org.orienteer.transponder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.stream.BaseStream;
+
+import org.orienteer.transponder.annotation.Cached;
+import org.orienteer.transponder.annotation.Projection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.primitives.Primitives;
+
+/**
+ * Cache of results of methods annotated by {@link Cached}.
+ * Results are cached per method, receiver and arguments. Results of DAO methods are shared by all DAOs of a
+ * {@link Transponder}, results of entity methods are cached per identity of an entity (see {@link IDriver#getSeedId(Object)}).
+ * Only detached results can be cached: scalar values and projections (see {@link #isDetached(Type)}),
+ * because seeds of entities might be bound to a session or transaction.
+ * Cache of a method is invalidated when:
+ * <ul>
+ * 	<li>entities of related types are saved through {@link Transponder#save(Object)},
+ * 		{@link Transponder#saveAll(Collection)} or {@link UnitOfWork}</li>
+ * 	<li>any method annotated by {@link org.orienteer.transponder.annotation.Command} is invoked</li>
+ * 	<li>{@link #invalidate(String)} or {@link #invalidateAll()} is called</li>
+ * </ul>
+ * Modifications done bypassing {@link Transponder} are not tracked: use {@link Cached#ttl()} to limit staleness
+ */
+public class QueryCache {
+
+	private static final Object NULL = new Object();
+	private static final Object UNIDENTIFIED = new Object();
+	private static final Set<Class<?>> DETACHED_CLASSES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+												Character.class, UUID.class, Void.class));
+
+	private final Transponder transponder;
+	private final ConcurrentMap<Method, MethodCache> caches = new ConcurrentHashMap<>();
+
+	QueryCache(Transponder transponder) {
+		this.transponder = transponder;
+	}
+
+	private MethodCache getMethodCache(Method method) {
+		MethodCache ret = caches.get(method);
+		return ret!=null ? ret : caches.computeIfAbsent(method, MethodCache::new);
+	}
+
+	/**
+	 * Lookup cached result of a method invocation
+	 * @param thiz object which method is invoked
+	 * @param method invoked method annotated by {@link Cached}
+	 * @param args arguments of the invocation
+	 * @return cached entry to be restored by {@link #restore(Method, Object)} or null if nothing was cached
+	 */
+	public Object lookup(Object thiz, Method method, Object[] args) {
+		Object receiver = toReceiverKey(thiz);
+		if(receiver==UNIDENTIFIED) return null;
+		MethodCache methodCache = getMethodCache(method);
+		return methodCache.cache.getIfPresent(methodCache.toKey(receiver, args));
+	}
+
+	/**
+	 * Wrap cached entry into the type returned by the method
+	 * @param method invoked method annotated by {@link Cached}
+	 * @param cached cached entry obtained by {@link #lookup(Method, Object[])} or shared by {@link RequestCoalescer}
+	 * @return result of the method
+	 */
+	public Object restore(Method method, Object cached) {
+		if(cached==NULL) return null;
+		//Cached collections should not be shared with callers
+		Object seed = cached;
+		if(seed instanceof List) seed = new ArrayList<>((List<?>) seed);
+		else if(seed instanceof Map) seed = new HashMap<>((Map<?, ?>) seed);
+		return transponder.wrap(seed, method.getGenericReturnType());
+	}
+
+	/**
+	 * Remember result of a method invocation
+	 * @param thiz object which method is invoked
+	 * @param method invoked method annotated by {@link Cached}
+	 * @param args arguments of the invocation
+	 * @param result result of the method invocation
+	 */
+	public void store(Object thiz, Method method, Object[] args, Object result) {
+		if(!isCacheable(method.getReturnType())) return;
+		Object receiver = toReceiverKey(thiz);
+		if(receiver==UNIDENTIFIED) return;
+		MethodCache methodCache = getMethodCache(method);
+		methodCache.cache.put(methodCache.toKey(receiver, args), toEntry(result));
+	}
+	
+	/**
+	 * Resolve part of a cache key for an object which method is invoked
+	 * @param thiz object which method is invoked
+	 * @return null for DAOs, identity of the seed for entities or {@link #UNIDENTIFIED} if entity doesn't have stable identity
+	 */
+	private Object toReceiverKey(Object thiz) {
+		if(!(thiz instanceof Transponder.ITransponderEntity)) return null;
+		Object seedId = transponder.getDriver().getSeedId(Transponder.unwrap(thiz));
+		return seedId!=null ? seedId : UNIDENTIFIED;
+	}
+	
+	/**
+	 * Check that results of the specified type can be cached or shared: streamed, paged and asynchronous results can't be
+	 * @param returnType type returned by a method
+	 * @return true if results can be unwrapped and wrapped again
+	 */
+	static boolean isCacheable(Class<?> returnType) {
+		return !void.class.equals(returnType)
+				&& !BaseStream.class.isAssignableFrom(returnType)
+				&& !Iterator.class.isAssignableFrom(returnType)
+				&& !Future.class.isAssignableFrom(returnType)
+				&& !CompletionStage.class.isAssignableFrom(returnType)
+				&& !Slice.class.isAssignableFrom(returnType)
+				&& !returnType.isArray();
+	}
+	
+	/**
+	 * Check that results of the specified type are detached from a data-source: so they can be cached and shared
+	 * between threads, sessions and transactions. Scalar values, enums, dates, projections
+	 * and collections of them are considered as detached. Entities are not.
+	 * @param type type returned by a method
+	 * @return true if results are detached
+	 */
+	public static boolean isDetached(Type type) {
+		Class<?> requiredClass = CommonUtils.typeToRequiredClass(type);
+		if(requiredClass==null) return false;
+		requiredClass = Primitives.wrap(requiredClass);
+		return DETACHED_CLASSES.contains(requiredClass)
+				|| Number.class.isAssignableFrom(requiredClass)
+				|| Enum.class.isAssignableFrom(requiredClass)
+				|| Date.class.isAssignableFrom(requiredClass)
+				|| TemporalAccessor.class.isAssignableFrom(requiredClass)
+				|| requiredClass.isAnnotationPresent(Projection.class);
+	}
+	
+	/**
+	 * Check that method can be annotated by {@link Cached} or {@link org.orienteer.transponder.annotation.Coalesce}
+	 * @param method method to check
+	 * @param entity is method defined for an entity?
+	 * @param lookup is method annotated by {@link org.orienteer.transponder.annotation.Lookup}?
+	 * @throws IllegalArgumentException if results of the method can't be cached or shared
+	 */
+	static void checkShareable(Method method, boolean entity, boolean lookup) {
+		if(entity && lookup)
+			throw new IllegalArgumentException("Lookups of entities replace seeds, so they can't be cached or shared: "+method);
+		if(!isDetached(method.getGenericReturnType())) 
+			throw new IllegalArgumentException("Only scalar or projected results can be cached or shared: "+method);
+	}
+	
+	/**
+	 * Unwrap result of a method into immutable entry which can be shared
+	 * @param result result of a method invocation
+	 * @return entry to be restored by {@link #restore(Method, Object)}
+	 */
+	static Object toEntry(Object result) {
+		Object seed = Transponder.unwrap(result);
+		if(seed instanceof List) seed = Collections.unmodifiableList((List<?>) seed);
+		else if(seed instanceof Map) seed = Collections.unmodifiableMap((Map<?, ?>) seed);
+		return seed!=null ? seed : NULL;
+	}
+
+	/**
+	 * Invalidate caches which are related to types of provided entities
+	 * @param wrappers saved wrapped entities
+	 */
+	void invalidate(Collection<?> wrappers) {
+		if(caches.isEmpty() || wrappers==null || wrappers.isEmpty()) return;
+		Set<Class<?>> classes = new HashSet<>();
+		Set<String> types = new HashSet<>();
+		for (Object wrapper : wrappers) {
+			if(wrapper!=null && classes.add(wrapper.getClass())) types.add(CommonUtils.resolveEntityType(wrapper.getClass()));
+		}
+		for (MethodCache methodCache : caches.values()) {
+			if(methodCache.types.isEmpty() || !Collections.disjoint(methodCache.types, types)) methodCache.cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Invalidate all caches related to the specified entity type
+	 * @param entityType entity type to invalidate caches for
+	 */
+	public void invalidate(String entityType) {
+		for (MethodCache methodCache : caches.values()) {
+			if(methodCache.types.isEmpty() || methodCache.types.contains(entityType)) methodCache.cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Invalidate all cached results
+	 */
+	public void invalidateAll() {
+		for (MethodCache methodCache : caches.values()) {
+			methodCache.cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Obtain statistics of hits, misses and evictions for a method
+	 * @param method method annotated by {@link Cached}
+	 * @return statistics of the method cache or empty statistics if method was not invoked yet
+	 */
+	public CacheStats getStats(Method method) {
+		MethodCache methodCache = caches.get(method);
+		if(methodCache==null) {
+			//Generated methods are remembered in the cache: so lets try to find them by signature
+			for (Map.Entry<Method, MethodCache> entry : caches.entrySet()) {
+				Method cachedMethod = entry.getKey();
+				if(method.getDeclaringClass().isAssignableFrom(cachedMethod.getDeclaringClass())
+						&& method.getName().equals(cachedMethod.getName())
+						&& Arrays.equals(method.getParameterTypes(), cachedMethod.getParameterTypes())) {
+					methodCache = entry.getValue();
+					break;
+				}
+			}
+		}
+		return methodCache!=null ? methodCache.cache.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * @return summary statistics of hits, misses and evictions for all cached methods
+	 */
+	public CacheStats getStats() {
+		CacheStats ret = new CacheStats(0, 0, 0, 0, 0, 0);
+		for (MethodCache methodCache : caches.values()) {
+			ret = ret.plus(methodCache.cache.stats());
+		}
+		return ret;
+	}
+
+	/**
+	 * Cache of results for a single method
+	 */
+	private static final class MethodCache {
+		private final Cache<List<Object>, Object> cache;
+		private final int[] keyIndexes;
+		private final Set<String> types;
+
+		MethodCache(Method method) {
+			Cached cached = method.getAnnotation(Cached.class);
+			if(cached==null) throw new IllegalArgumentException("Method is not annotated by @Cached: "+method);
+			if(!isDetached(method.getGenericReturnType()))
+				throw new IllegalArgumentException("Only scalar or projected results can be cached: "+method);
+			CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(cached.maxSize()).recordStats();
+			if(cached.ttl()>0) builder.expireAfterWrite(cached.ttl(), cached.timeUnit());
+			this.cache = builder.build();
+			this.keyIndexes = resolveKeyIndexes(method, cached.key());
+			Set<String> resolvedTypes = new HashSet<>();
+			Type returnType = method.getGenericReturnType();
+			Class<?> resultClass = CommonUtils.typeToRequiredClass(returnType);
+			//Projections are related to entities they are projected from
+			Projection projection = resultClass!=null ? resultClass.getAnnotation(Projection.class) : null;
+			if(projection!=null && !Object.class.equals(projection.value())) resultClass = projection.value();
+			String returnEntityType = CommonUtils.resolveEntityType(resultClass);
+			if(returnEntityType!=null) resolvedTypes.add(returnEntityType);
+			for (Class<?> clazz : cached.invalidatedBy()) {
+				String entityType = CommonUtils.resolveEntityType(clazz);
+				if(entityType==null) throw new IllegalArgumentException("Can't resolve entity type for "+clazz.getName());
+				resolvedTypes.add(entityType);
+			}
+			this.types = Collections.unmodifiableSet(resolvedTypes);
+		}
+
+		private static int[] resolveKeyIndexes(Method method, String[] key) {
+			if(key.length==0) return null;
+			Parameter[] parameters = method.getParameters();
+			int[] ret = new int[key.length];
+			for (int i = 0; i < key.length; i++) {
+				ret[i] = -1;
+				for (int j = 0; j < parameters.length; j++) {
+					if(parameters[j].getName().equals(key[i])) {
+						ret[i] = j;
+						break;
+					}
+				}
+				if(ret[i]<0) throw new IllegalArgumentException("Parameter '"+key[i]+"' was not found for cache key of "+method);
+			}
+			return ret;
+		}
+
+		List<Object> toKey(Object receiver, Object[] args) {
+			int argsCount = args==null ? 0 : (keyIndexes==null ? args.length : keyIndexes.length);
+			if(receiver==null && argsCount==0) return Collections.emptyList();
+			Object[] key = new Object[argsCount+1];
+			key[0] = receiver;
+			for (int i = 0; i < argsCount; i++) {
+				key[i+1] = Transponder.unwrap(args[keyIndexes==null ? i : keyIndexes[i]]);
+			}
+			return Arrays.asList(key);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package org.orienteer.transponder;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.orienteer.transponder.annotation.Coalesce;
+
+/**
+ * Coalescer of concurrent invocations of methods annotated by {@link Coalesce}.
+ * Only the first of concurrent invocations on the same receiver with equal arguments is actually executed:
+ * others are waiting for its completion and get the same result. Only detached results
+ * (see {@link QueryCache#isDetached(java.lang.reflect.Type)}) are shared. Results which are streamed are not shared.
+ */
+public class RequestCoalescer {
+
+	private final QueryCache queryCache;
+	private final ConcurrentMap<List<Object>, InFlight> inFlight = new ConcurrentHashMap<>();
+
+	RequestCoalescer(QueryCache queryCache) {
+		this.queryCache = queryCache;
+	}
+
+	/**
+	 * Join an invocation which is in progress or start new one
+	 * @param thiz object which method is invoked
+	 * @param method invoked method annotated by {@link Coalesce}
+	 * @param args arguments of the invocation
+	 * @return {@link Shared} result of other invocation, token of the started invocation
+	 * or null if invocation can't be coalesced
+	 * @throws Throwable exception thrown by other invocation
+	 */
+	public Object join(Object thiz, Method method, Object[] args) throws Throwable {
+		if(!QueryCache.isCacheable(method.getReturnType()) || !QueryCache.isDetached(method.getGenericReturnType())) return null;
+		Object[] keyArray = new Object[args.length+2];
+		keyArray[0] = method;
+		//Entities are compared by seeds: DAOs by themselves
+		keyArray[1] = Transponder.unwrap(thiz);
+		for (int i = 0; i < args.length; i++) keyArray[i+2] = Transponder.unwrap(args[i]);
+		List<Object> key = Arrays.asList(keyArray);
+		InFlight call = new InFlight(key);
+		InFlight existing = inFlight.putIfAbsent(key, call);
+		if(existing==null) return call;
+		//Reentrant invocation from the same thread would wait for itself
+		if(existing.owner==Thread.currentThread()) return null;
+		try {
+			return new Shared(existing.future.get());
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for result of "+method, e);
+		}
+	}
+
+	/**
+	 * Complete an invocation
+	 * @param method invoked method annotated by {@link Coalesce}
+	 * @param joined object which was returned by {@link #join(Object, Method, Object[])}
+	 * @param result result of the invocation
+	 * @param thrown exception thrown by the invocation or null
+	 * @return result of the invocation to be returned to caller
+	 */
+	public Object leave(Method method, Object joined, Object result, Throwable thrown) {
+		if(joined instanceof Shared) return queryCache.restore(method, ((Shared) joined).entry);
+		else if(joined instanceof InFlight) {
+			InFlight call = (InFlight) joined;
+			inFlight.remove(call.key, call);
+			if(thrown!=null) call.future.completeExceptionally(thrown);
+			else call.future.complete(QueryCache.toEntry(result));
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of invocations which are in progress
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Invocation which is in progress
+	 */
+	private static final class InFlight {
+		private final List<Object> key;
+		private final Thread owner = Thread.currentThread();
+		private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+		InFlight(List<Object> key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Result shared by other invocation
+	 */
+	public static final class Shared {
+		private final Object entry;
+
+		Shared(Object entry) {
+			this.entry = entry;
+		}
+	}
+}
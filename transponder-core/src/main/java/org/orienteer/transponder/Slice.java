@@ -0,0 +1,88 @@
+package org.orienteer.transponder;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.orienteer.transponder.annotation.After;
+import org.orienteer.transponder.annotation.PageSize;
+
+/**
+ * Page of results of a query for keyset pagination. Can be returned by methods annotated by
+ * {@link org.orienteer.transponder.annotation.Query} with parameters annotated by {@link PageSize} and {@link After}.
+ * Next page can be requested by passing {@link #getNextCursor()} as {@link After} parameter
+ * @param <T> type of entities
+ */
+public class Slice<T> implements Iterable<T> {
+	private final List<T> content;
+	private final int pageSize;
+	private final boolean hasNext;
+	private final Object nextCursor;
+
+	/**
+	 * Creates {@link Slice}
+	 * @param content entities of the page
+	 * @param pageSize requested max number of entities per page
+	 * @param hasNext true if there are more entities after this page
+	 * @param nextCursor cursor to request next page
+	 */
+	public Slice(List<T> content, int pageSize, boolean hasNext, Object nextCursor) {
+		this.content = Collections.unmodifiableList(content);
+		this.pageSize = pageSize;
+		this.hasNext = hasNext;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * @return entities of the page
+	 */
+	public List<T> getContent() {
+		return content;
+	}
+
+	/**
+	 * @return requested max number of entities per page
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * @return number of entities on the page
+	 */
+	public int size() {
+		return content.size();
+	}
+
+	/**
+	 * @return true if page is empty
+	 */
+	public boolean isEmpty() {
+		return content.isEmpty();
+	}
+
+	/**
+	 * @return true if there are more entities after this page
+	 */
+	public boolean hasNext() {
+		return hasNext;
+	}
+
+	/**
+	 * @return identity of the last entity on the page to be used as {@link After} parameter
+	 * for requesting next page or null if page is empty
+	 */
+	public Object getNextCursor() {
+		return nextCursor;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return content.iterator();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName()+"[size="+size()+", hasNext="+hasNext+", nextCursor="+nextCursor+"]";
+	}
+}
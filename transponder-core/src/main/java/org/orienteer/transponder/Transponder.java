@@ -3,40 +3,62 @@ package org.orienteer.transponder;
 import static org.orienteer.transponder.CommonUtils.*;
 import static net.bytebuddy.matcher.ElementMatchers.*;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.Type;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import org.orienteer.transponder.annotation.Command;
 import org.orienteer.transponder.annotation.EntityIndex;
 import org.orienteer.transponder.annotation.EntityProperty;
 import org.orienteer.transponder.annotation.EntityPropertyIndex;
 import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.annotation.Lookup;
+import org.orienteer.transponder.annotation.Query;
 import org.orienteer.transponder.mutator.StackedMutator;
 import org.orienteer.transponder.polyglot.DefaultPolyglot;
 
-import com.google.common.base.Objects;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.reflect.ClassPath;
 
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.NamingStrategy;
-import net.bytebuddy.TypeCache;
 import net.bytebuddy.description.annotation.AnnotationList;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.description.type.TypeList;
@@ -65,10 +87,28 @@ import net.bytebuddy.utility.RandomString;
  */
 public class Transponder {
 	
-	private static final TypeCache<Integer> DAO_CACHE = new TypeCache<Integer>(TypeCache.Sort.SOFT);
+	/**
+	 * Default max number of entities to be persisted by {@link #saveAll(Collection)} within one bulk operation
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	
+	/**
+	 * Max number of cached resolutions of proxy classes for schema types of seeds
+	 */
+	public static final long MAX_RESOLUTIONS = 10000;
+	
+	private static final ProxyClassRegistry PROXY_CLASS_REGISTRY = new ProxyClassRegistry();
+	private static final ClassValue<Function<Object, Object>> PROJECTIONS = Instantiators.forConstructor(Map.class);
 	
 	private final IDriver driver;
 	private IPolyglot polyglot = new DefaultPolyglot();
+	private final Cache<ResolutionKey, Resolution> resolutions = CacheBuilder.newBuilder().maximumSize(MAX_RESOLUTIONS).build();
+	private final ConcurrentMap<Class<?>, Object> daos = new ConcurrentHashMap<>();
+	private final ThreadLocal<UnitOfWork> unitOfWork = new ThreadLocal<>();
+	private final QueryCache queryCache = new QueryCache(this);
+	private final RequestCoalescer requestCoalescer = new RequestCoalescer(queryCache);
+	private volatile Executor executor;
+	private volatile Semaphore asyncPermits;
 	
 	/**
 	 * Interface-marker for all wrappers generated by Transponder: for wrappers/entities and for DAO
@@ -172,6 +212,8 @@ public class Transponder {
 	 * @return wrapped entity
 	 */
 	public <T> T provide(Object seed, Class<T> mainClass, Class<?>... additionalInterfaces) {
+		Object schemaKey = driver.getEntitySchemaKey(seed);
+		if(schemaKey!=null) return provide(resolve(schemaKey, seed, mainClass, additionalInterfaces), seed);
 		Class<T> expectedMainClass = (Class<T>)driver.getEntityMainClass(seed);
 		if(expectedMainClass!=null && mainClass.isAssignableFrom(expectedMainClass)) mainClass = expectedMainClass;
 		if(mainClass.isInstance(seed)) {
@@ -187,7 +229,226 @@ public class Transponder {
 			if(compatible) return (T) seed;
 		}
 		Class<T> proxyClass = getProxyClass(driver.getDefaultEntityBaseClass(), mainClass, ProxyType.ENTITY, additionalInterfaces);
-		return setTransponder(driver.wrapEntityInstance(proxyClass, seed));
+		return wrapEntityInstance(proxyClass, seed);
+	}
+	
+	/**
+	 * Provide wrappers for multiple seed objects. Proxy class is resolved just once per every distinct
+	 * schema type of seed objects (see {@link IDriver#getEntitySchemaKey(Object)})
+	 * @param <T> type of wrapper
+	 * @param seeds entities to be wrapped
+	 * @param mainClass type of a wrapper
+	 * @param additionalInterfaces additional interfaces for the generated class
+	 * @return list of wrapped entities
+	 */
+	public <T> List<T> provideAll(Iterable<?> seeds, Class<T> mainClass, Class<?>... additionalInterfaces) {
+		List<T> ret = seeds instanceof Collection ? new ArrayList<>(((Collection<?>) seeds).size()) : new ArrayList<>();
+		BulkProvider<T> provider = new BulkProvider<>(mainClass, additionalInterfaces);
+		for (Object seed : seeds) {
+			ret.add(provider.provide(seed));
+		}
+		return ret;
+	}
+	
+	private <T> Resolution resolve(Object schemaKey, Object seed, Class<T> mainClass, Class<?>[] additionalInterfaces) {
+		Resolution ret = resolutions.getIfPresent(new ResolutionKey(schemaKey, mainClass, additionalInterfaces));
+		if(ret==null) {
+			Class<?> resolvedMainClass = mainClass;
+			Class<?> expectedMainClass = driver.getEntityMainClass(seed);
+			if(expectedMainClass!=null && mainClass.isAssignableFrom(expectedMainClass)) resolvedMainClass = expectedMainClass;
+			Class<?>[] interfaces = additionalInterfaces!=null ? additionalInterfaces.clone() : new Class<?>[0];
+			ret = new Resolution(resolvedMainClass, interfaces);
+			resolutions.put(new ResolutionKey(schemaKey, mainClass, interfaces), ret);
+		}
+		return ret;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <T> T provide(Resolution resolution, Object seed) {
+		if(resolution.isCompatible(seed)) return (T) seed;
+		Class<?> proxyClass = resolution.proxyClass;
+		if(proxyClass==null) {
+			proxyClass = getProxyClass(driver.getDefaultEntityBaseClass(), resolution.mainClass,
+										ProxyType.ENTITY, resolution.additionalInterfaces);
+			resolution.proxyClass = proxyClass;
+		}
+		return (T) wrapEntityInstance(proxyClass, seed);
+	}
+	
+	private <T> T wrapEntityInstance(Class<T> proxyClass, Object seed) {
+		UnitOfWork current = unitOfWork.get();
+		return setTransponder(current!=null ? current.wrap(proxyClass, seed) : driver.wrapEntityInstance(proxyClass, seed));
+	}
+	
+	/**
+	 * Start new or join already active {@link UnitOfWork} for the current thread
+	 * @return active unit of work which should be closed after use
+	 */
+	public UnitOfWork unitOfWork() {
+		return unitOfWork(UnitOfWork.DEFAULT_MAX_SIZE);
+	}
+	
+	/**
+	 * Start new or join already active {@link UnitOfWork} for the current thread
+	 * @param maxSize max number of wrappers to be remembered by the unit of work
+	 * @return active unit of work which should be closed after use
+	 */
+	public UnitOfWork unitOfWork(int maxSize) {
+		UnitOfWork current = unitOfWork.get();
+		if(current!=null) return current.join();
+		current = new UnitOfWork(this, maxSize);
+		unitOfWork.set(current);
+		return current;
+	}
+	
+	/**
+	 * Execute work within new or already active {@link UnitOfWork}.
+	 * If work fails, unit of work is rolled back: nothing queued within it will be persisted
+	 * @param <T> type of the result
+	 * @param work work to be executed
+	 * @return result of the work
+	 */
+	public <T> T inUnitOfWork(Function<UnitOfWork, T> work) {
+		try(UnitOfWork uow = unitOfWork()) {
+			try {
+				return work.apply(uow);
+			} catch (RuntimeException | Error e) {
+				uow.rollback();
+				throw e;
+			}
+		}
+	}
+	
+	/**
+	 * @return {@link QueryCache} with results of methods annotated by {@link org.orienteer.transponder.annotation.Cached}
+	 */
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+	
+	/**
+	 * @return {@link RequestCoalescer} for methods annotated by {@link org.orienteer.transponder.annotation.Coalesce}
+	 */
+	public RequestCoalescer getRequestCoalescer() {
+		return requestCoalescer;
+	}
+	
+	/**
+	 * @return {@link Executor} for asynchronous invocations: configured one or default.
+	 * Default executor uses virtual threads if they are supported by runtime or bounded pool of daemon threads otherwise.
+	 * If queue of that pool is full: task is executed by the thread which starts asynchronous invocation
+	 */
+	public Executor getExecutor() {
+		Executor ret = executor;
+		return ret!=null ? ret : DefaultExecutorHolder.INSTANCE;
+	}
+	
+	/**
+	 * Set {@link Executor} for asynchronous invocations
+	 * @param executor executor to be used or null to use default one
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Limit number of asynchronous invocations which are executed at the same time.
+	 * If limit is reached: thread which starts new asynchronous invocation is blocked till completion of other invocation
+	 * @param maxConcurrency max number of concurrently executed asynchronous invocations. Not positive value means no limit
+	 */
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.asyncPermits = maxConcurrency>0 ? new Semaphore(maxConcurrency) : null;
+	}
+	
+	/**
+	 * Execute task asynchronously on {@link #getExecutor()}.
+	 * Driver is able to propagate context of the current thread: see {@link IDriver#propagateContext(Supplier)}
+	 * @param <T> type of the result
+	 * @param task task to be executed
+	 * @return {@link CompletableFuture} for the result of the task
+	 */
+	public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+		Semaphore permits = asyncPermits;
+		if(permits!=null) {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for a permit for asynchronous invocation", e);
+			}
+		}
+		Supplier<T> contextual = null;
+		try {
+			contextual = driver.propagateContext(task);
+			if(permits==null) return CompletableFuture.supplyAsync(contextual, getExecutor());
+			Supplier<T> execute = contextual;
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return execute.get();
+				} finally {
+					permits.release();
+				}
+			}, getExecutor());
+		} catch (RuntimeException e) {
+			if(permits!=null) permits.release();
+			//Task has not been submitted: so context captured for it should be released
+			if(contextual instanceof AutoCloseable) {
+				try {
+					((AutoCloseable)contextual).close();
+				} catch (Exception closeException) {
+					e.addSuppressed(closeException);
+				}
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return {@link UnitOfWork} which is active for the current thread or null
+	 */
+	public UnitOfWork getUnitOfWork() {
+		return unitOfWork.get();
+	}
+	
+	void detachUnitOfWork(UnitOfWork uow) {
+		if(unitOfWork.get()==uow) unitOfWork.remove();
+	}
+	
+	/**
+	 * Provide wrapper for referenced entity which is loaded only on first access to its properties.
+	 * If driver can't postpone loading (see {@link IDriver#wrapLazyEntityInstance(Class, Object)}),
+	 * reference is wrapped as usual. Main class is refined by {@link IDriver#getReferenceMainClass(Object)}
+	 * and wrappers are shared through active {@link UnitOfWork} as for loaded entities
+	 * @param <T> type of wrapper
+	 * @param reference reference to an entity
+	 * @param mainClass type of a wrapper
+	 * @return wrapped entity or null if reference is null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T provideLazy(Object reference, Class<T> mainClass) {
+		if(reference==null) return null;
+		Class<T> resolvedMainClass = mainClass;
+		Class<?> referencedMainClass = driver.getReferenceMainClass(reference);
+		if(referencedMainClass!=null && mainClass.isAssignableFrom(referencedMainClass))
+			resolvedMainClass = (Class<T>) referencedMainClass;
+		Class<T> proxyClass = getProxyClass(driver.getDefaultEntityBaseClass(), resolvedMainClass, ProxyType.ENTITY);
+		UnitOfWork current = unitOfWork.get();
+		T ret = current!=null ? current.wrapLazy(proxyClass, reference) : driver.wrapLazyEntityInstance(proxyClass, reference);
+		return ret!=null ? setTransponder(ret) : wrap(reference, mainClass);
+	}
+	
+	/**
+	 * Wrap values of projected properties into projection interface
+	 * @param <T> type of projection
+	 * @param values values of projected properties
+	 * @param projectionClass interface annotated by {@link org.orienteer.transponder.annotation.Projection}
+	 * @return read-only projection or null if values are null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T project(Map<String, Object> values, Class<T> projectionClass) {
+		if(values==null) return null;
+		Class<T> proxyClass = getProxyClass(ProjectionWrapper.class, projectionClass, ProxyType.PROJECTION);
+		return setTransponder((T) PROJECTIONS.get(proxyClass).apply(values));
 	}
 	
 	/**
@@ -198,68 +459,26 @@ public class Transponder {
 	 * @return wrapped object
 	 */
 	public <T> T wrap(Object seed, Type targetType) {
-		if(seed==null) return null;
-		Class<?> requiredClass = CommonUtils.typeToMasterClass(targetType);
-		if(seed instanceof ITransponderHolder) {
-			return (T) seed;
-		} else if(driver.isSeed(seed)) {
-			return (T) provide(seed, requiredClass);
-		} else if(seed instanceof Iterable) {
-			Iterator<?> it = ((Iterable<?>)seed).iterator(); 
-			if(!it.hasNext()) return (T) newInstance(requiredClass);
-			Object probe;
-			do {
-				probe = it.next();
-			} while(it.hasNext() && probe == null);
-			if(driver.isSeed(probe)) {
-				return wrapIterable((Iterable<?>)seed, targetType);
-			} else if(Collection.class.isAssignableFrom(requiredClass)) {
-				Collection<Object> collection = (Collection<Object>)newInstance(requiredClass);
-				if(probe!=null) collection.addAll((Collection<Object>)seed);
-				else {
-					Class<?> elementClass = typeToRequiredClass(targetType);
-					if(elementClass==null 
-							|| elementClass.getAnnotation(EntityType.class)==null) collection.addAll((Collection<Object>)seed);
-				}
-				return (T)collection;
-			}
-			else throw new IllegalStateException("Can't prepare required return class: "+requiredClass +" from "+seed.getClass());
-		} else if(seed instanceof Map) {
-			
-			Map<?, ?> map = (Map<?, ?>)seed;
-			if(map.size()==0) return (T) seed;
-			Iterator<?> it = map.values().iterator();
-			Object probe;
-			do {
-				probe = it.next();
-			} while(it.hasNext() && probe == null);
-			if(driver.isSeed(probe)) {
-				return wrapMap((Map<?, ?>)map, targetType);
-			} else if(Map.class.isAssignableFrom(requiredClass)) {
-				return (T)map;
-			}
-			else throw new IllegalStateException("Can't prepare required return class: "+requiredClass +" from "+seed.getClass());
-		} else if(requiredClass.isInstance(seed)) return (T)seed;
-		return null;
+		return (T) ConversionPlan.of(targetType).wrap(this, seed);
 	}
 	
 	protected <T> T wrapIterable(Iterable<?> seeds, Type targetType) {
+		return wrapIterable(seeds, targetType, typeToRequiredClass(targetType), CommonUtils.typeToMasterClass(targetType));
+	}
+	
+	<T> T wrapIterable(Iterable<?> seeds, Type targetType, Class<?> requiredSubType, Class<?> masterClass) {
 		if(seeds==null) return null;
-		Class<?> requiredSubType = typeToRequiredClass(targetType);
 		
 		Iterable<?> ret;
 		if(driver.isSeedClass(requiredSubType)) {
 			ret = seeds;
 		}
 		else {
-			List<Object> inner = new ArrayList<>();
-			for (Object seed : seeds) {
-				inner.add(provide(seed, requiredSubType));
-			}
-			ret = inner;
+			Collection<?> view = WrappingCollections.wrap(seeds, new BulkProvider<>(requiredSubType)::provide, masterClass);
+			if(view!=null) return (T) view;
+			ret = provideAll(seeds, requiredSubType);
 		}
 		
-		Class<?> masterClass = CommonUtils.typeToMasterClass(targetType);
 		if(masterClass.isAssignableFrom(ret.getClass())) return (T)ret;
 		else if(Collection.class.isAssignableFrom(masterClass)) {
 			Collection<Object> instance = (Collection<Object>)newInstance(masterClass);
@@ -269,23 +488,32 @@ public class Transponder {
 		else throw new IllegalStateException("Can't prepare required return type: "+targetType);
 	}
 	
+	<T> T wrapLive(Collection<?> seeds, Type targetType, Class<?> requiredSubType, Class<?> masterClass) {
+		if(seeds==null) return null;
+		Function<Object, ?> wrapper = requiredSubType==null || isScalarClass(requiredSubType) || driver.isSeedClass(requiredSubType)
+										? Function.identity()
+										: new BulkProvider<>(requiredSubType)::provide;
+		Collection<?> ret = WrappingCollections.live(seeds, wrapper, masterClass);
+		if(ret==null) throw new IllegalStateException("Can't prepare live collection for required type: "+targetType);
+		return (T) ret;
+	}
+	
 	protected <T> T wrapMap(Map<?, ?> map, Type targetType) {
+		return wrapMap(map, targetType, typeToRequiredClass(targetType), CommonUtils.typeToMasterClass(targetType));
+	}
+	
+	<T> T wrapMap(Map<?, ?> map, Type targetType, Class<?> requiredSubType, Class<?> masterClass) {
 		if(map==null) return null;
-		Class<?> requiredSubType = typeToRequiredClass(targetType);
 		
 		Map<?, ?> ret;
 		if(driver.isSeedClass(requiredSubType)) {
 			ret = map;
 		}
 		else {
-			Map<Object, Object> inner = new HashMap<>();
-			for (Map.Entry<?, ?> entry : map.entrySet()) {
-				inner.put(entry.getKey(), provide(entry.getValue(), requiredSubType));
-			}
-			ret = inner;
+			ret = WrappingCollections.wrap(map, new BulkProvider<>(requiredSubType)::provide);
 		}
 		
-		if(CommonUtils.typeToMasterClass(targetType).isAssignableFrom(Map.class)) return (T) ret;
+		if(masterClass.isAssignableFrom(Map.class)) return (T) ret;
 		else throw new IllegalStateException("Can't prepare required return type: "+targetType);
 	}
 	
@@ -366,9 +594,13 @@ public class Transponder {
 	
 	@SuppressWarnings("unchecked")
 	protected <T> Class<T> getProxyClass(Class<?> baseClass, Class<T> mainClass, ProxyType proxyType, final Class<?>... additionalInterfaces) {
-		Integer hash =   Arrays.hashCode(additionalInterfaces);
-		hash = Objects.hashCode(driver.getCacheKey(), mainClass, hash, proxyType);
-		return (Class<T>) DAO_CACHE.findOrInsert(Transponder.class.getClassLoader(), hash, () -> {
+		ProxyClassRegistry.Key key = ProxyClassRegistry.key(driver.getCacheKey(), baseClass, mainClass, 
+															additionalInterfaces, proxyType, polyglot.getCacheKey());
+		return PROXY_CLASS_REGISTRY.findOrGenerate(key, () -> {
+			if(additionalInterfaces==null || additionalInterfaces.length==0) {
+				Class<T> precompiled = Precompiled.find(baseClass, mainClass, proxyType);
+				if(precompiled!=null) return applyDriverMutator(precompiled);
+			}
 			ByteBuddy byteBuddy = new ByteBuddy();
 			DynamicType.Builder<?> builder;
 			StringBuilder nameBuilder = new StringBuilder("transponder.").append(driver.getDialect()).append(".");
@@ -412,7 +644,27 @@ public class Transponder {
 	}
 	
 	/**
-	 * Provides Data Access Object for corresponding classes/interfaces
+	 * Apply driver specific mutator to a precompiled class: it's being subclassed in runtime if driver has a mutator
+	 * @param <T> type of precompiled class
+	 * @param precompiled precompiled class
+	 * @return precompiled class itself or its subclass with driver specific changes
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Class<T> applyDriverMutator(Class<T> precompiled) {
+		IMutator driverMutator = driver.getMutator();
+		if(driverMutator==null) return precompiled;
+		BuilderScheduler scheduler = new BuilderScheduler();
+		DynamicType.Builder<?> builder = new ByteBuddy().subclass(precompiled)
+								.name(precompiled.getName()+"$"+driver.getDialect());
+		builder = scheduler.apply(driverMutator.mutate(this, builder, scheduler));
+		return (Class<T>) builder.make()
+					  .load(Transponder.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+					  .getLoaded();
+	}
+	
+	/**
+	 * Provides Data Access Object for corresponding classes/interfaces.
+	 * DAOs which are defined only by interfaces are stateless, so the same instance is returned on every call
 	 * @param <T> type of DAO
 	 * @param mainClass type of DAO
 	 * @param additionalInterfaces additional interfaces for the generated class
@@ -420,7 +672,20 @@ public class Transponder {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T dao(Class<T> mainClass, final Class<?>... additionalInterfaces) {
-		return setTransponder(driver.newDAOInstance(getProxyClass(Object.class, mainClass, ProxyType.DAO, additionalInterfaces)));
+		Class<T> proxyClass = getProxyClass(Object.class, mainClass, ProxyType.DAO, additionalInterfaces);
+		if(!isStateless(mainClass, additionalInterfaces)) return setTransponder(driver.newDAOInstance(proxyClass));
+		//DAO built only from interfaces doesn't have any state, so single instance can be shared
+		return (T) daos.computeIfAbsent(proxyClass, c -> setTransponder(driver.newDAOInstance(proxyClass)));
+	}
+	
+	private static boolean isStateless(Class<?> mainClass, Class<?>... additionalInterfaces) {
+		if(!mainClass.isInterface()) return false;
+		if(additionalInterfaces!=null) {
+			for (Class<?> additionalInterface : additionalInterfaces) {
+				if(!additionalInterface.isInterface()) return false;
+			}
+		}
+		return true;
 	}
 	
 	/**
@@ -433,17 +698,110 @@ public class Transponder {
 	public <T> T delegate(T delegate, final Class<?>... additionalInterfaces) {
 		Class<T> delegateClass = (Class<T>)delegate.getClass();
 		Class<T> proxyClass = getProxyClass(delegateClass, delegateClass, ProxyType.DELEGATE, additionalInterfaces);
-		T delegator = CommonUtils.OBJENESIS.newInstance(proxyClass);
+		T delegator = Instantiators.allocate(proxyClass);
 		((ITransponderDelegator)delegator).set$delegate(delegate);
 		return setTransponder(delegator);
 	}
 	
+	/**
+	 * Generate in advance classes for provided entity types and DAOs. Generation is done in parallel
+	 * in {@link ForkJoinPool#commonPool()}
+	 * @param classes entity types (annotated by {@link EntityType}) and DAO classes/interfaces
+	 * @return time spent on generation per class
+	 */
+	public Map<Class<?>, Duration> warmUp(Class<?>... classes) {
+		return warmUp(ForkJoinPool.commonPool(), classes);
+	}
+	
+	/**
+	 * Generate in advance classes for provided entity types and DAOs. Generation is done in parallel
+	 * in provided {@link ForkJoinPool}
+	 * @param pool {@link ForkJoinPool} to be used for generation
+	 * @param classes entity types (annotated by {@link EntityType}) and DAO classes/interfaces
+	 * @return time spent on generation per class
+	 */
+	public Map<Class<?>, Duration> warmUp(ForkJoinPool pool, Class<?>... classes) {
+		List<ForkJoinTask<Duration>> tasks = new ArrayList<>(classes.length);
+		for (Class<?> clazz : classes) {
+			ProxyType proxyType = clazz.isAnnotationPresent(EntityType.class) ? ProxyType.ENTITY : ProxyType.DAO;
+			tasks.add(pool.submit(() -> warmUp(proxyType, clazz)));
+		}
+		Map<Class<?>, Duration> ret = new LinkedHashMap<>();
+		for (int i = 0; i < classes.length; i++) {
+			ret.put(classes[i], tasks.get(i).join());
+		}
+		return ret;
+	}
+	
+	/**
+	 * Generate in advance classes for all entity types and DAOs found in the provided package and sub-packages.
+	 * DAOs are detected by presence of {@link Query}, {@link Lookup} or {@link Command} annotated methods
+	 * @param packageName name of a package to scan
+	 * @return time spent on generation per class
+	 */
+	public Map<Class<?>, Duration> warmUp(String packageName) {
+		ClassLoader classLoader = defaultIfNull(Thread.currentThread().getContextClassLoader(), 
+												Transponder.class.getClassLoader());
+		List<Class<?>> classes = new ArrayList<>();
+		try {
+			for (ClassPath.ClassInfo classInfo : ClassPath.from(classLoader).getTopLevelClassesRecursive(packageName)) {
+				collectWarmUpClasses(classInfo.load(), classes);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't scan package "+packageName, e);
+		}
+		return warmUp(classes.toArray(new Class<?>[classes.size()]));
+	}
+	
+	private static void collectWarmUpClasses(Class<?> clazz, List<Class<?>> classes) {
+		if(clazz.isAnnotationPresent(EntityType.class)) classes.add(clazz);
+		else if(!Modifier.isFinal(clazz.getModifiers()) && !clazz.isAnnotation() && !clazz.isEnum()) {
+			for (Method method : clazz.getMethods()) {
+				if(method.isAnnotationPresent(Query.class) 
+						|| method.isAnnotationPresent(Lookup.class) 
+						|| method.isAnnotationPresent(Command.class)) {
+					classes.add(clazz);
+					break;
+				}
+			}
+		}
+		for (Class<?> nested : clazz.getDeclaredClasses()) {
+			if(Modifier.isPublic(nested.getModifiers())) collectWarmUpClasses(nested, classes);
+		}
+	}
+	
+	/**
+	 * Generate in advance class of specified proxy type 
+	 * @param proxyType type of a proxy to generate
+	 * @param mainClass main class/interface. For {@link ProxyType#DELEGATE} it's a class of a delegate
+	 * @param additionalInterfaces additional interfaces for the generated class
+	 * @return time spent on generation
+	 */
+	public Duration warmUp(ProxyType proxyType, Class<?> mainClass, Class<?>... additionalInterfaces) {
+		long start = System.nanoTime();
+		Class<?> baseClass;
+		switch (proxyType) {
+			case ENTITY:
+				baseClass = driver.getDefaultEntityBaseClass();
+				break;
+			case DELEGATE:
+				baseClass = mainClass;
+				break;
+			default:
+				baseClass = Object.class;
+				break;
+		}
+		getProxyClass(baseClass, mainClass, proxyType, additionalInterfaces);
+		return Duration.ofNanos(System.nanoTime()-start);
+	}
+	
 	/**
 	 * Define in the data-source corresponding schema (types, properties, indexes) for provided classes
 	 * @param classes set of classes to be introspected in reflected in a data-source schema
 	 * @return this transponder for chaining
 	 */
 	public Transponder define(Class<?>... classes) {
+		resolutions.invalidateAll(); //Mapping of types to main classes might be changed
 		DescribeContext ctx = new DescribeContext(this);
 		define(Arrays.asList(classes), ctx);
 		ctx.close(false);
@@ -476,6 +834,7 @@ public class Transponder {
 		
 		for(Method method : methods) {
 			if(method.isDefault() || Modifier.isStatic(method.getModifiers())) continue; //Ignore default methods
+			if(resolveSizedProperty(method)!=null) continue; //Sizes of collections are not stored separately
 			String methodName = method.getName();
 			Parameter[] params =  method.getParameters();
 			String fieldNameCandidate = null;
@@ -573,17 +932,144 @@ public class Transponder {
 	 */
 	public void setPolyglot(IPolyglot polyglot) {
 		if(polyglot==null) throw new IllegalArgumentException("Polyglot can't be null");
-		this.polyglot = polyglot;
-		DAO_CACHE.clear(); //We have to clear cache because all previous translations are cached in bytecode
+		this.polyglot = polyglot; //Key of polyglot is part of generated classes keys, so previously generated classes might not be reused
+		resolutions.invalidateAll();
+		daos.clear();
+	}
+	
+	/**
+	 * @return registry of all classes generated by {@link Transponder}
+	 */
+	public static ProxyClassRegistry getProxyClassRegistry() {
+		return PROXY_CLASS_REGISTRY;
 	}
 	
 	/**
-	 * Save/persist wrapped entity in the data-source
+	 * Save/persist wrapped entity in the data-source.
+	 * If {@link UnitOfWork} is active for the current thread, entity is just queued till flush of the unit of work
 	 * @param object wrapped entity to be persisted
 	 */
 	public static void save(Object object) {
 		Transponder transponder = getTransponder(object);
-		transponder.getDriver().saveEntityInstance(object);
+		UnitOfWork uow = transponder.getUnitOfWork();
+		if(uow!=null) uow.queue(object);
+		else {
+			transponder.getDriver().saveEntityInstance(object);
+			transponder.getQueryCache().invalidate(Collections.singleton(object));
+		}
+	}
+	
+	/**
+	 * Save/persist multiple wrapped entities in the data-source using bulk operations if driver supports them
+	 * @param objects wrapped entities to be persisted
+	 */
+	public static void saveAll(Collection<?> objects) {
+		saveAll(objects, DEFAULT_BATCH_SIZE);
+	}
+	
+	/**
+	 * Save/persist multiple wrapped entities in the data-source using bulk operations if driver supports them.
+	 * Entities of a {@link Transponder} with active {@link UnitOfWork} are just queued till flush of the unit of work
+	 * @param objects wrapped entities to be persisted
+	 * @param batchSize max number of entities to be persisted within one bulk operation/transaction
+	 */
+	public static void saveAll(Collection<?> objects, int batchSize) {
+		if(batchSize<=0) throw new IllegalArgumentException("Batch size should be positive, but was "+batchSize);
+		if(objects==null || objects.isEmpty()) return;
+		// Entities might be provided by different transponders: so save them per transponder
+		Map<Transponder, List<Object>> perTransponder = new IdentityHashMap<>();
+		for (Object object : objects) {
+			Transponder transponder = getTransponder(object);
+			UnitOfWork uow = transponder.getUnitOfWork();
+			if(uow!=null) uow.queue(object);
+			else perTransponder.computeIfAbsent(transponder, t -> new ArrayList<>()).add(object);
+		}
+		for (Map.Entry<Transponder, List<Object>> entry : perTransponder.entrySet()) {
+			entry.getKey().getDriver().saveEntityInstances(entry.getValue(), batchSize);
+			entry.getKey().getQueryCache().invalidate(entry.getValue());
+		}
+	}
+	
+	/**
+	 * Key for resolution of a proxy class: schema type of a seed and requested classes
+	 */
+	private static final class ResolutionKey {
+		private final Object schemaKey;
+		private final Class<?> mainClass;
+		private final Class<?>[] additionalInterfaces;
+		private final int hash;
+		
+		ResolutionKey(Object schemaKey, Class<?> mainClass, Class<?>[] additionalInterfaces) {
+			this.schemaKey = schemaKey;
+			this.mainClass = mainClass;
+			this.additionalInterfaces = additionalInterfaces!=null && additionalInterfaces.length>0 ? additionalInterfaces : null;
+			this.hash = (31 * schemaKey.hashCode() + mainClass.hashCode()) * 31 + Arrays.hashCode(this.additionalInterfaces);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(this==obj) return true;
+			if(!(obj instanceof ResolutionKey)) return false;
+			ResolutionKey other = (ResolutionKey) obj;
+			return hash==other.hash
+					&& mainClass==other.mainClass
+					&& schemaKey.equals(other.schemaKey)
+					&& Arrays.equals(additionalInterfaces, other.additionalInterfaces);
+		}
+	}
+	
+	/**
+	 * Resolved proxy class for seeds of some schema type
+	 */
+	private static final class Resolution {
+		private final Class<?> mainClass;
+		private final Class<?>[] additionalInterfaces;
+		private volatile Class<?> proxyClass;
+		
+		Resolution(Class<?> mainClass, Class<?>[] additionalInterfaces) {
+			this.mainClass = mainClass;
+			this.additionalInterfaces = additionalInterfaces;
+		}
+		
+		boolean isCompatible(Object seed) {
+			if(!mainClass.isInstance(seed)) return false;
+			for (Class<?> addon : additionalInterfaces) {
+				if(!addon.isInstance(seed)) return false;
+			}
+			return true;
+		}
+	}
+	
+	/**
+	 * Provider of wrappers for multiple seeds: remembers resolution for the last seen schema type
+	 * @param <T> type of wrapper
+	 */
+	private final class BulkProvider<T> {
+		private final Class<T> mainClass;
+		private final Class<?>[] additionalInterfaces;
+		private Object lastSchemaKey;
+		private Resolution lastResolution;
+		
+		BulkProvider(Class<T> mainClass, Class<?>... additionalInterfaces) {
+			this.mainClass = mainClass;
+			this.additionalInterfaces = additionalInterfaces;
+		}
+		
+		T provide(Object seed) {
+			if(seed==null) return null;
+			Object schemaKey = driver.getEntitySchemaKey(seed);
+			if(schemaKey==null) return Transponder.this.provide(seed, mainClass, additionalInterfaces);
+			if(lastResolution==null || !schemaKey.equals(lastSchemaKey)) {
+				lastResolution = resolve(schemaKey, seed, mainClass, additionalInterfaces);
+				lastSchemaKey = schemaKey;
+			}
+			return Transponder.this.provide(lastResolution, seed);
+		}
 	}
 	
 	private static class DescribeContext {
@@ -718,4 +1204,32 @@ public class Transponder {
 
 	}
 	
+	/**
+	 * Lazy holder of default {@link Executor} for asynchronous invocations
+	 */
+	private static final class DefaultExecutorHolder {
+		private static final int QUEUE_CAPACITY = 1024;
+		private static final Executor INSTANCE = createDefaultExecutor();
+		
+		private static Executor createDefaultExecutor() {
+			try {
+				//Virtual threads are available since Java 21
+				return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				//Don't occupy ForkJoinPool.commonPool() by blocking database calls
+				int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+				AtomicInteger counter = new AtomicInteger();
+				ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+						r -> {
+							Thread thread = new Thread(r, "transponder-async-"+counter.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						},
+						new ThreadPoolExecutor.CallerRunsPolicy());
+				pool.allowCoreThreadTimeOut(true);
+				return pool;
+			}
+		}
+	}
 }
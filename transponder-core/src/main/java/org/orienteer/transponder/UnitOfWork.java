@@ -0,0 +1,162 @@
+package org.orienteer.transponder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Scope of work with a {@link Transponder} within current thread. While unit of work is active:
+ * <ul>
+ * 	<li>Wrappers are reused for seeds with the same identity (see {@link IDriver#getSeedId(Object)}).
+ * 		Wrappers are weakly referenced and number of remembered wrappers is limited</li>
+ *  <li>{@link Transponder#save(Object)} and {@link Transponder#saveAll(java.util.Collection)} just queue entities.
+ *  	Queued entities are persisted by driver within one transaction or bulk operation on {@link #flush()} or {@link #close()}</li>
+ * </ul>
+ * Nested calls of {@link Transponder#unitOfWork()} join already active unit of work.
+ * Usage: <code>try(UnitOfWork uow = transponder.unitOfWork()) {...}</code>.
+ * Unit of work can't detect exceptions thrown within try-with-resources block, so failed work should be discarded by
+ * {@link #rollback()} explicitly. {@link Transponder#inUnitOfWork(java.util.function.Function)} does that automatically.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+	/**
+	 * Default max number of wrappers remembered by unit of work
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	private final Transponder transponder;
+	private final Cache<Object, Object> identityMap;
+	private final Set<Object> queuedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final List<Object> queued = new ArrayList<>();
+	private int depth = 1;
+	private boolean rolledBack = false;
+
+	UnitOfWork(Transponder transponder, int maxSize) {
+		if(maxSize<0) throw new IllegalArgumentException("Max size of unit of work should not be negative, but was "+maxSize);
+		this.transponder = transponder;
+		this.identityMap = CacheBuilder.newBuilder().weakValues().maximumSize(maxSize).build();
+		transponder.getDriver().beginUnitOfWork();
+	}
+
+	/**
+	 * @return {@link Transponder} of this unit of work
+	 */
+	public Transponder getTransponder() {
+		return transponder;
+	}
+
+	UnitOfWork join() {
+		depth++;
+		return this;
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> T wrap(Class<T> proxyClass, Object seed) {
+		IDriver driver = transponder.getDriver();
+		Object seedId = driver.getSeedId(seed);
+		if(seedId==null) return driver.wrapEntityInstance(proxyClass, seed);
+		Object key = new AbstractMap.SimpleImmutableEntry<>(seedId, proxyClass);
+		T ret = (T) identityMap.getIfPresent(key);
+		if(ret==null) {
+			ret = driver.wrapEntityInstance(proxyClass, seed);
+			identityMap.put(key, ret);
+		}
+		return ret;
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> T wrapLazy(Class<T> proxyClass, Object reference) {
+		IDriver driver = transponder.getDriver();
+		Object seedId = driver.getSeedId(reference);
+		if(seedId==null) return driver.wrapLazyEntityInstance(proxyClass, reference);
+		//Key is the same as for loaded seed: so lazy and loaded wrappers of the same entity are shared
+		Object key = new AbstractMap.SimpleImmutableEntry<>(seedId, proxyClass);
+		T ret = (T) identityMap.getIfPresent(key);
+		if(ret==null) {
+			ret = driver.wrapLazyEntityInstance(proxyClass, reference);
+			if(ret!=null) identityMap.put(key, ret);
+		}
+		return ret;
+	}
+
+	void queue(Object wrapper) {
+		checkNotRolledBack();
+		if(queuedSet.add(wrapper)) queued.add(wrapper);
+	}
+
+	/**
+	 * @return number of entities queued for saving
+	 */
+	public int getQueuedCount() {
+		return queued.size();
+	}
+
+	/**
+	 * Persist all queued entities within one transaction or bulk operation.
+	 * Unit of work stays active after flush
+	 */
+	public void flush() {
+		checkNotRolledBack();
+		commit();
+		transponder.getDriver().beginUnitOfWork();
+	}
+
+	private void commit() {
+		IDriver driver = transponder.getDriver();
+		List<Object> toSave = new ArrayList<>(queued);
+		queued.clear();
+		queuedSet.clear();
+		try {
+			driver.commitUnitOfWork(toSave);
+			transponder.getQueryCache().invalidate(toSave);
+		} catch (RuntimeException e) {
+			driver.rollbackUnitOfWork();
+			throw e;
+		}
+	}
+
+	/**
+	 * Discard all queued entities and rollback modifications done by driver within this unit of work.
+	 * Whole unit of work, including outer scopes joined by nested calls, is marked as failed:
+	 * nothing will be persisted on {@link #close()} and new entities can't be queued
+	 */
+	public void rollback() {
+		if(rolledBack) return;
+		rolledBack = true;
+		queued.clear();
+		queuedSet.clear();
+		transponder.getDriver().rollbackUnitOfWork();
+	}
+
+	/**
+	 * @return true if this unit of work was rolled back
+	 */
+	public boolean isRolledBack() {
+		return rolledBack;
+	}
+
+	private void checkNotRolledBack() {
+		if(rolledBack) throw new IllegalStateException("Unit of work has been rolled back");
+	}
+
+	/**
+	 * Complete unit of work: persist queued entities, if unit of work was not rolled back, and release remembered wrappers.
+	 * If this unit of work was joined by nested calls, only the outermost close completes it
+	 */
+	@Override
+	public void close() {
+		if(--depth>0) return;
+		try {
+			if(!rolledBack) commit();
+		} finally {
+			identityMap.invalidateAll();
+			transponder.detachUnitOfWork(this);
+		}
+	}
+}
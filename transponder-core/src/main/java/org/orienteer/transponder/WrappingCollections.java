@@ -0,0 +1,629 @@
+package org.orienteer.transponder;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * Lazy views over collections of seed objects. Elements are wrapped only on access and wrappers are memoized,
+ * while {@link Collection#size()} and {@link Collection#isEmpty()} are answered by the underlying seed collection.
+ * Views are copy-on-write: the first modification detaches a view into a regular collection with all elements
+ * wrapped, so, as before, changes of a returned collection never touch the seed collection.
+ * Live views (see {@link #live(Collection, Function, Class)}) write modifications through to the seed collection instead.
+ * Till detaching, views read the seed collection directly: so later changes of the seed collection are visible through a view.
+ * Lists can be read concurrently, but modifications of views are not thread-safe.
+ */
+@UtilityClass
+class WrappingCollections {
+
+	/**
+	 * Create lazy view for provided seeds if it's compatible with required class
+	 * @param seeds seed objects to be wrapped
+	 * @param wrapper function to wrap a single seed
+	 * @param masterClass required class of the result
+	 * @return lazy view or null if view can't satisfy required class
+	 */
+	public Collection<?> wrap(Iterable<?> seeds, Function<Object, ?> wrapper, Class<?> masterClass) {
+		if(seeds instanceof List && masterClass.isAssignableFrom(List.class)) {
+			return WrappingList.of((List<?>) seeds, wrapper, false);
+		} else if(seeds instanceof Set && masterClass.isAssignableFrom(Set.class)) {
+			return new WrappingSet<>((Set<?>) seeds, wrapper, false);
+		} else if(seeds instanceof Collection && masterClass.isAssignableFrom(Collection.class)) {
+			return new WrappingCollection<>((Collection<?>) seeds, wrapper, false);
+		}
+		return null;
+	}
+
+	/**
+	 * Create live view for provided seeds: modifications of the view are unwrapped and applied to the seeds
+	 * @param seeds live collection of seed objects
+	 * @param wrapper function to wrap a single seed
+	 * @param masterClass required class of the result
+	 * @return live view or null if view can't satisfy required class
+	 */
+	public Collection<?> live(Collection<?> seeds, Function<Object, ?> wrapper, Class<?> masterClass) {
+		if(masterClass.isAssignableFrom(List.class)) {
+			List<?> list = seeds instanceof List ? (List<?>) seeds : new SeedList(seeds);
+			return WrappingList.of(list, wrapper, true);
+		} else if(masterClass.isAssignableFrom(Set.class)) {
+			return new WrappingSet<>(seeds, wrapper, true);
+		} else if(masterClass.isAssignableFrom(Collection.class)) {
+			return new WrappingCollection<>(seeds, wrapper, true);
+		}
+		return null;
+	}
+
+	/**
+	 * Create lazy view for provided map of seeds: keys are kept as is and only values are wrapped
+	 * @param seeds map with seed objects as values
+	 * @param wrapper function to wrap a single seed
+	 * @return lazy view
+	 */
+	public Map<?, ?> wrap(Map<?, ?> seeds, Function<Object, ?> wrapper) {
+		return new WrappingMap<>(seeds, wrapper);
+	}
+
+	/**
+	 * Lazy view over a {@link List} of seeds. Wrappers are memoized per index for positions which existed on creation of the view.
+	 * Iteration goes through iterator of the seeds: so lists without positional access (see {@link SeedList}) are iterated in O(n)
+	 * @param <T> type of wrappers
+	 */
+	static class WrappingList<T> extends AbstractList<T> {
+		private final List<Object> seeds;
+		private final Function<Object, ? extends T> wrapper;
+		private final boolean live;
+		private final Memo<T>[] memo;
+		private List<T> detached;
+
+		@SuppressWarnings("unchecked")
+		WrappingList(List<?> seeds, Function<Object, ? extends T> wrapper, boolean live) {
+			this.seeds = (List<Object>) seeds;
+			this.wrapper = wrapper;
+			this.live = live;
+			this.memo = new Memo[seeds.size()];
+		}
+
+		static <T> WrappingList<T> of(List<?> seeds, Function<Object, ? extends T> wrapper, boolean live) {
+			return seeds instanceof RandomAccess
+					? new RandomAccessWrappingList<>(seeds, wrapper, live)
+					: new WrappingList<>(seeds, wrapper, live);
+		}
+
+		@Override
+		public T get(int index) {
+			if(detached!=null) return detached.get(index);
+			return wrapAt(index, seeds.get(index));
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			if(detached!=null) return detached.iterator();
+			Iterator<Object> it = seeds.iterator();
+			return new Iterator<T>() {
+				private int index = 0;
+				private int removed = 0;
+				private boolean canRemove = false;
+
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public T next() {
+					Object seed = it.next();
+					//View might be detached by removal through this iterator
+					T ret = detached!=null ? detached.get(index - removed) : wrapAt(index, seed);
+					index++;
+					canRemove = true;
+					return ret;
+				}
+
+				@Override
+				public void remove() {
+					if(!canRemove) throw new IllegalStateException();
+					canRemove = false;
+					if(live) {
+						it.remove();
+						index--;
+					} else {
+						//Seeds are not changed: so position in detached list is shifted by number of removed elements
+						detach().remove(index - 1 - removed);
+						removed++;
+					}
+					modCount++;
+				}
+			};
+		}
+
+		private T wrapAt(int index, Object seed) {
+			if(seed==null) return null;
+			if(index>=memo.length) return wrapper.apply(seed);
+			Memo<T> memoized = memo[index];
+			//Underlying list might be changed since wrapper was memoized
+			if(memoized==null || memoized.seed!=seed) {
+				memoized = new Memo<>(seed, wrapper.apply(seed));
+				memo[index] = memoized;
+			}
+			return memoized.wrapper;
+		}
+
+		@Override
+		public int size() {
+			return detached!=null ? detached.size() : seeds.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return detached!=null ? detached.isEmpty() : seeds.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return live ? seeds.contains(Transponder.unwrap(o)) : super.contains(o);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if(!live) return super.remove(o);
+			boolean ret = seeds.remove(Transponder.unwrap(o));
+			if(ret) modCount++;
+			return ret;
+		}
+
+		@Override
+		public T set(int index, T element) {
+			if(live) return wrapSeed(seeds.set(index, Transponder.unwrap(element)));
+			return detach().set(index, element);
+		}
+
+		@Override
+		public void add(int index, T element) {
+			if(live) seeds.add(index, Transponder.unwrap(element));
+			else detach().add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public T remove(int index) {
+			T ret = live ? wrapSeed(seeds.remove(index)) : detach().remove(index);
+			modCount++;
+			return ret;
+		}
+
+		@Override
+		public void clear() {
+			if(live) seeds.clear();
+			else detached = new ArrayList<>();
+			Arrays.fill(memo, null);
+			modCount++;
+		}
+
+		private T wrapSeed(Object seed) {
+			return seed!=null ? wrapper.apply(seed) : null;
+		}
+
+		private List<T> detach() {
+			if(detached==null) {
+				List<T> copy = new ArrayList<>(size());
+				for (T element : this) copy.add(element);
+				detached = copy;
+				Arrays.fill(memo, null);
+			}
+			return detached;
+		}
+	}
+
+	/**
+	 * {@link WrappingList} over seeds with fast positional access
+	 * @param <T> type of wrappers
+	 */
+	static class RandomAccessWrappingList<T> extends WrappingList<T> implements RandomAccess {
+
+		RandomAccessWrappingList(List<?> seeds, Function<Object, ? extends T> wrapper, boolean live) {
+			super(seeds, wrapper, live);
+		}
+	}
+
+	/**
+	 * Memoized wrapper of a seed. Fields are final: so memo is safely published to concurrent readers of a view
+	 * @param <T> type of the wrapper
+	 */
+	private static final class Memo<T> {
+		private final Object seed;
+		private final T wrapper;
+
+		private Memo(Object seed, T wrapper) {
+			this.seed = seed;
+			this.wrapper = wrapper;
+		}
+	}
+
+	/**
+	 * {@link List} adapter for live collections of seeds without positional access (links, edges, etc.).
+	 * Elements are accessed by iteration and can be added only to the end of the list
+	 */
+	static class SeedList extends AbstractList<Object> {
+		private final Collection<Object> seeds;
+
+		@SuppressWarnings("unchecked")
+		SeedList(Collection<?> seeds) {
+			this.seeds = (Collection<Object>) seeds;
+		}
+
+		@Override
+		public Object get(int index) {
+			if(index<0) throw new IndexOutOfBoundsException("Index: "+index);
+			Iterator<Object> it = seeds.iterator();
+			for (int i = 0; it.hasNext(); i++) {
+				Object seed = it.next();
+				if(i==index) return seed;
+			}
+			throw new IndexOutOfBoundsException("Index: "+index);
+		}
+
+		@Override
+		public Iterator<Object> iterator() {
+			return seeds.iterator();
+		}
+
+		@Override
+		public int size() {
+			return seeds.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return seeds.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return seeds.contains(o);
+		}
+
+		@Override
+		public void add(int index, Object element) {
+			if(index!=size()) throw new UnsupportedOperationException("Only appending is supported by this collection");
+			seeds.add(element);
+			modCount++;
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			boolean ret = seeds.remove(o);
+			if(ret) modCount++;
+			return ret;
+		}
+
+		@Override
+		public Object remove(int index) {
+			if(index<0) throw new IndexOutOfBoundsException("Index: "+index);
+			Iterator<Object> it = seeds.iterator();
+			for (int i = 0; it.hasNext(); i++) {
+				Object seed = it.next();
+				if(i==index) {
+					it.remove();
+					modCount++;
+					return seed;
+				}
+			}
+			throw new IndexOutOfBoundsException("Index: "+index);
+		}
+
+		@Override
+		public void clear() {
+			seeds.clear();
+			modCount++;
+		}
+	}
+
+	/**
+	 * Lazy view over a generic {@link Collection} of seeds. Wrappers are memoized per seed
+	 * @param <T> type of wrappers
+	 */
+	static class WrappingCollection<T> extends AbstractCollection<T> {
+		private final Collection<Object> seeds;
+		private final Function<Object, ? extends T> wrapper;
+		private final boolean live;
+		private Map<Object, T> memo;
+		private Collection<T> detached;
+
+		@SuppressWarnings("unchecked")
+		WrappingCollection(Collection<?> seeds, Function<Object, ? extends T> wrapper, boolean live) {
+			this.seeds = (Collection<Object>) seeds;
+			this.wrapper = wrapper;
+			this.live = live;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			if(detached!=null) return detached.iterator();
+			Iterator<?> it = seeds.iterator();
+			return new Iterator<T>() {
+				private T last;
+				private boolean canRemove = false;
+
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public T next() {
+					last = wrap(it.next());
+					canRemove = true;
+					return last;
+				}
+
+				@Override
+				public void remove() {
+					if(!canRemove) throw new IllegalStateException();
+					canRemove = false;
+					if(live) it.remove();
+					else detach().remove(last);
+				}
+			};
+		}
+
+		private T wrap(Object seed) {
+			if(seed==null) return null;
+			if(memo==null) memo = new IdentityHashMap<>();
+			T ret = memo.get(seed);
+			if(ret==null) {
+				ret = wrapper.apply(seed);
+				memo.put(seed, ret);
+			}
+			return ret;
+		}
+
+		@Override
+		public int size() {
+			return detached!=null ? detached.size() : seeds.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return detached!=null ? detached.isEmpty() : seeds.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return live ? seeds.contains(Transponder.unwrap(o)) : super.contains(o);
+		}
+
+		@Override
+		public boolean add(T e) {
+			if(live) return seeds.add(Transponder.unwrap(e));
+			return detach().add(e);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if(live) return seeds.remove(Transponder.unwrap(o));
+			return detach().remove(o);
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c) {
+			return live ? super.removeAll(c) : detach().removeAll(c);
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c) {
+			return live ? super.retainAll(c) : detach().retainAll(c);
+		}
+
+		@Override
+		public boolean removeIf(Predicate<? super T> filter) {
+			return live ? super.removeIf(filter) : detach().removeIf(filter);
+		}
+
+		@Override
+		public void clear() {
+			if(live) seeds.clear();
+			else detached = newDetached();
+			memo = null;
+		}
+
+		protected Collection<T> newDetached() {
+			return new ArrayList<>();
+		}
+
+		private Collection<T> detach() {
+			if(detached==null) {
+				Collection<T> copy = newDetached();
+				for (Object seed : seeds) copy.add(wrap(seed));
+				detached = copy;
+				memo = null;
+			}
+			return detached;
+		}
+	}
+
+	/**
+	 * Lazy view over a {@link Set} of seeds. Wrappers are memoized per seed.
+	 * Except live views, {@link #contains(Object)} iterates the view, so it's O(n) and wraps every element
+	 * @param <T> type of wrappers
+	 */
+	static class WrappingSet<T> extends WrappingCollection<T> implements Set<T> {
+
+		WrappingSet(Collection<?> seeds, Function<Object, ? extends T> wrapper, boolean live) {
+			super(seeds, wrapper, live);
+		}
+
+		@Override
+		public boolean add(T e) {
+			//Seeds of live view might be not a set
+			return !contains(e) && super.add(e);
+		}
+
+		@Override
+		protected Collection<T> newDetached() {
+			return new LinkedHashSet<>();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(o==this) return true;
+			if(!(o instanceof Set)) return false;
+			Collection<?> other = (Collection<?>) o;
+			return other.size()==size() && containsAll(other);
+		}
+
+		@Override
+		public int hashCode() {
+			int ret = 0;
+			for (T element : this) ret += Objects.hashCode(element);
+			return ret;
+		}
+	}
+
+	/**
+	 * Lazy view over a {@link Map} with seeds as values. Wrappers are memoized per key
+	 * @param <K> type of keys
+	 * @param <V> type of wrappers
+	 */
+	static class WrappingMap<K, V> extends AbstractMap<K, V> {
+		private final Map<K, ?> seeds;
+		private final Function<Object, ? extends V> wrapper;
+		private Map<Object, Object[]> memo;
+		private Map<K, V> detached;
+		private Set<Map.Entry<K, V>> entrySet;
+
+		WrappingMap(Map<K, ?> seeds, Function<Object, ? extends V> wrapper) {
+			this.seeds = seeds;
+			this.wrapper = wrapper;
+		}
+
+		@SuppressWarnings("unchecked")
+		private V wrap(Object key, Object seed) {
+			if(seed==null) return null;
+			if(memo==null) memo = new HashMap<>();
+			Object[] memoized = memo.get(key);
+			if(memoized==null || memoized[0]!=seed) {
+				memoized = new Object[] {seed, wrapper.apply(seed)};
+				memo.put(key, memoized);
+			}
+			return (V) memoized[1];
+		}
+
+		@Override
+		public V get(Object key) {
+			return detached!=null ? detached.get(key) : wrap(key, seeds.get(key));
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return detached!=null ? detached.containsKey(key) : seeds.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return detached!=null ? detached.size() : seeds.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return detached!=null ? detached.isEmpty() : seeds.isEmpty();
+		}
+
+		@Override
+		public V put(K key, V value) {
+			return detach().put(key, value);
+		}
+
+		@Override
+		public V remove(Object key) {
+			return detach().remove(key);
+		}
+
+		@Override
+		public void clear() {
+			detached = new HashMap<>();
+			memo = null;
+		}
+
+		@Override
+		public Set<Map.Entry<K, V>> entrySet() {
+			if(entrySet==null) {
+				entrySet = new AbstractSet<Map.Entry<K, V>>() {
+					@Override
+					public Iterator<Map.Entry<K, V>> iterator() {
+						return entryIterator();
+					}
+
+					@Override
+					public int size() {
+						return WrappingMap.this.size();
+					}
+				};
+			}
+			return entrySet;
+		}
+
+		private Iterator<Map.Entry<K, V>> entryIterator() {
+			if(detached!=null) return detached.entrySet().iterator();
+			Iterator<? extends Map.Entry<K, ?>> it = seeds.entrySet().iterator();
+			return new Iterator<Map.Entry<K, V>>() {
+				private K lastKey;
+				private boolean canRemove = false;
+
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Map.Entry<K, V> next() {
+					if(!it.hasNext()) throw new NoSuchElementException();
+					Map.Entry<K, ?> entry = it.next();
+					lastKey = entry.getKey();
+					canRemove = true;
+					return new AbstractMap.SimpleEntry<K, V>(lastKey, wrap(lastKey, entry.getValue())) {
+						@Override
+						public V setValue(V value) {
+							super.setValue(value);
+							return put(getKey(), value);
+						}
+					};
+				}
+
+				@Override
+				public void remove() {
+					if(!canRemove) throw new IllegalStateException();
+					canRemove = false;
+					detach().remove(lastKey);
+				}
+			};
+		}
+
+		private Map<K, V> detach() {
+			if(detached==null) {
+				Map<K, V> copy = new HashMap<>(seeds.size());
+				for (Map.Entry<K, ?> entry : seeds.entrySet()) copy.put(entry.getKey(), wrap(entry.getKey(), entry.getValue()));
+				detached = copy;
+				memo = null;
+			}
+			return detached;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.Slice;
+
+/**
+ * Annotation for a parameter of a method annotated by {@link Query} which defines cursor for keyset pagination:
+ * identity of the last entity of previous page (see {@link Slice#getNextCursor()}) or the entity itself.
+ * Null or absent cursor means the first page
+ */
+@Retention(RUNTIME)
+@Target(PARAMETER)
+public @interface After {
+}
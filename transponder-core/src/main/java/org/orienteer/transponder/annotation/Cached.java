@@ -0,0 +1,92 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.orienteer.transponder.QueryCache;
+import org.orienteer.transponder.Transponder;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import net.bytebuddy.implementation.bytecode.assign.Assigner.Typing;
+
+import static net.bytebuddy.asm.Advice.*;
+
+/**
+ * Annotation for methods (mostly annotated by {@link Query} or {@link Lookup}) to cache results per arguments.
+ * Results are cached in {@link QueryCache} of a {@link Transponder}: only scalar values and projections can be cached,
+ * because entities might be bound to a session or transaction. Lookups of entities can't be cached.
+ * Cache of a method is invalidated if entities of returned or listed in {@link #invalidatedBy()} types are saved
+ * or any {@link Command} is invoked. Results which are streamed are not cached.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+@AdviceAnnotation(Cached.CachedDelegate.class)
+public @interface Cached {
+	/**
+	 * @return time to live of a cached result. Not positive value means that results are not expired by time
+	 */
+	long ttl() default 0;
+
+	/**
+	 * @return time unit of {@link #ttl()}
+	 */
+	TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+	/**
+	 * @return max number of cached results for the method
+	 */
+	long maxSize() default 1000;
+
+	/**
+	 * @return names of parameters to be used as a key for caching. All parameters are used by default
+	 */
+	String[] key() default {};
+
+	/**
+	 * @return additional classes of entities which should invalidate the cache when saved.
+	 * If entity type can't be resolved neither from returned type nor from these classes: cache is invalidated by any save
+	 */
+	Class<?>[] invalidatedBy() default {};
+
+	/**
+	 * {@link Advice} delegate which provide required functionality: skip invocation of method
+	 * if result is present in the cache and remember result otherwise
+	 */
+	public static class CachedDelegate {
+
+		/**
+		 * Implementation of the {@link Advice} to be invoked before actual method call
+		 * @param thiz object which method is invoked
+		 * @param origin invoked method
+		 * @param args arguments of the invocation
+		 * @return cached entry or null if nothing was cached
+		 */
+		@OnMethodEnter(skipOn = OnNonDefaultValue.class)
+		public static Object onEnter(@This Object thiz, @Origin Method origin, @AllArguments Object[] args) {
+			return Transponder.getTransponder(thiz).getQueryCache().lookup(thiz, origin, args);
+		}
+
+		/**
+		 * Implementation of the {@link Advice} to be invoked after actual method call or instead of it
+		 * @param ret object which was returned by actual method call
+		 * @param cached cached entry which was found before method call
+		 * @param thiz object which method is invoked
+		 * @param origin invoked method
+		 * @param args arguments of the invocation
+		 */
+		@RuntimeType
+		@OnMethodExit
+		public static void onExit(@Return(readOnly = false, typing = Typing.DYNAMIC) Object ret, @Enter Object cached,
+								  @This Object thiz, @Origin Method origin, @AllArguments Object[] args) {
+			QueryCache cache = Transponder.getTransponder(thiz).getQueryCache();
+			if(cached!=null) ret = cache.restore(origin, cached);
+			else cache.store(thiz, origin, args, ret);
+		}
+	}
+}
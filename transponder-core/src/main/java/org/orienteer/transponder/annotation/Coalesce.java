@@ -0,0 +1,64 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.orienteer.transponder.RequestCoalescer;
+import org.orienteer.transponder.Transponder;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+import net.bytebuddy.implementation.bytecode.assign.Assigner.Typing;
+
+import static net.bytebuddy.asm.Advice.*;
+
+/**
+ * Annotation for methods (mostly annotated by {@link Query} or {@link Lookup}) to share one invocation
+ * between concurrent calls on the same DAO or entity with equal arguments.
+ * Only scalar values and projections can be shared between threads. Lookups of entities can't be shared.
+ * See {@link RequestCoalescer}
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+@AdviceAnnotation(Coalesce.CoalesceDelegate.class)
+public @interface Coalesce {
+
+	/**
+	 * {@link Advice} delegate which provide required functionality: wait for result of concurrent invocation
+	 * with the same arguments instead of actual method call
+	 */
+	public static class CoalesceDelegate {
+
+		/**
+		 * Implementation of the {@link Advice} to be invoked before actual method call
+		 * @param thiz object which method is invoked
+		 * @param origin invoked method
+		 * @param args arguments of the invocation
+		 * @return shared result, token of started invocation or null
+		 * @throws Throwable exception thrown by concurrent invocation
+		 */
+		@OnMethodEnter(skipOn = RequestCoalescer.Shared.class)
+		public static Object onEnter(@This Object thiz, @Origin Method origin, @AllArguments Object[] args) throws Throwable {
+			return Transponder.getTransponder(thiz).getRequestCoalescer().join(thiz, origin, args);
+		}
+
+		/**
+		 * Implementation of the {@link Advice} to be invoked after actual method call or instead of it
+		 * @param ret object which was returned by actual method call
+		 * @param thrown exception thrown by actual method call
+		 * @param joined object which was returned on enter
+		 * @param thiz object which method is invoked
+		 * @param origin invoked method
+		 */
+		@RuntimeType
+		@OnMethodExit(onThrowable = Throwable.class)
+		public static void onExit(@Return(readOnly = false, typing = Typing.DYNAMIC) Object ret, @Thrown Throwable thrown,
+								  @Enter Object joined, @This Object thiz, @Origin Method origin) {
+			ret = Transponder.getTransponder(thiz).getRequestCoalescer().leave(origin, joined, ret, thrown);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.IDriver;
+
+/**
+ * Annotation for methods annotated by {@link Query} which return number of results of the query
+ * (<code>long</code>, <code>int</code> or their wrappers) instead of results themselves.
+ * Records are not loaded: drivers execute native count of the query.
+ * See {@link IDriver#queryCount(String, String, java.util.Map, java.lang.reflect.Type)}
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Count {
+	/**
+	 * @return entity class which is being counted. Some drivers use it to resolve where to query data from
+	 */
+	Class<?> value() default Object.class;
+}
@@ -29,4 +29,10 @@ public @interface EntityProperty {
 	 * @return explicit order for the property. Take effect only if driver supports orders
 	 */
 	int order() default -1;
+	
+	/**
+	 * @return true if referenced entity should be loaded only on first access to its properties.
+	 * Applicable only for getters of a single entity. Take effect only if driver supports lazy loading
+	 */
+	boolean lazy() default false;
 }
@@ -0,0 +1,24 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.IDriver;
+
+/**
+ * Annotation for methods annotated by {@link Query} which return <code>boolean</code>: true if query has any result.
+ * Methods annotated by {@link Query} which return <code>boolean</code> without this annotation are executed as usual queries.
+ * Records are not loaded: drivers stop on the first found one.
+ * See {@link IDriver#queryExists(String, String, java.util.Map, java.lang.reflect.Type)}
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Exists {
+	/**
+	 * @return entity class which is being checked. Some drivers use it to resolve where to query data from
+	 */
+	Class<?> value() default Object.class;
+}
@@ -0,0 +1,25 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.IDriver;
+
+/**
+ * Annotation for methods annotated by {@link Query} or {@link Lookup} to load referenced entities
+ * of the results in advance: by one bulk request per property instead of a request per entity.
+ * Example: <code>@Fetch({"owner", "items.product"})</code>.
+ * Prefetching is not applied to results which are streamed.
+ * See {@link IDriver#prefetch(java.util.Collection, Class, String...)}
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Fetch {
+	/**
+	 * @return paths of properties to be prefetched. Nested properties are separated by dot
+	 */
+	String[] value();
+}
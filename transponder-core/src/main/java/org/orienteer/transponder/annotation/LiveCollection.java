@@ -0,0 +1,20 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.IDriver;
+
+/**
+ * Annotation for getters of collection properties to return live view instead of a copy.
+ * Modifications of returned collection (add, remove, etc.) are written directly into the data-source:
+ * see {@link IDriver#getPropertyCollection(Object, String, java.lang.reflect.Type)}
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface LiveCollection {
+
+}
@@ -0,0 +1,18 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.Page;
+
+/**
+ * Annotation for a parameter of a method annotated by {@link Query} which defines zero-based number of a page
+ * for offset pagination. Methods with such parameter return {@link Page}
+ */
+@Retention(RUNTIME)
+@Target(PARAMETER)
+public @interface PageNumber {
+}
@@ -0,0 +1,19 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.Page;
+import org.orienteer.transponder.Slice;
+
+/**
+ * Annotation for a parameter of a method annotated by {@link Query} which defines max number of entities per page.
+ * Required for methods which return {@link Slice} or {@link Page}
+ */
+@Retention(RUNTIME)
+@Target(PARAMETER)
+public @interface PageSize {
+}
@@ -0,0 +1,30 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.IDriver;
+
+/**
+ * Annotation for interfaces and classes which declare subset of properties of an entity or columns of a query result.
+ * If method annotated by {@link Query} returns such type (or collection of them),
+ * only declared properties are read from the data-source:
+ * <ul>
+ * <li>For interfaces: properties of getters. Read-only implementation is generated</li>
+ * <li>For classes (POJOs, records): parameters of a constructor with named parameters
+ * or, if there is no such constructor, setters and public fields</li>
+ * </ul>
+ * See {@link org.orienteer.transponder.ProjectionMapper} and
+ * {@link IDriver#queryProjected(String, String, java.util.Map, java.lang.reflect.Type, String...)}
+ */
+@Retention(RUNTIME)
+@Target(TYPE)
+public @interface Projection {
+	/**
+	 * @return entity class which is being projected. Some drivers use it to resolve where to query data from
+	 */
+	Class<?> value() default Object.class;
+}
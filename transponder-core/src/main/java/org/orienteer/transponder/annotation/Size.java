@@ -0,0 +1,25 @@
+package org.orienteer.transponder.annotation;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.orienteer.transponder.IDriver;
+
+/**
+ * Annotation for getters which return size of a collection property (<code>int</code>, <code>long</code> or their wrappers)
+ * without loading and wrapping of its elements. Example: <code>@Size("items") public int getNumberOfItems();</code>.
+ * Collection property might be declared by any interface of an entity: not only by the one which declares annotated getter.
+ * Annotated getters don't define separate properties of an entity.
+ * See {@link IDriver#getPropertySize(Object, String, java.lang.reflect.Type)}
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Size {
+	/**
+	 * @return name of a collection property to return size of
+	 */
+	String value();
+}
@@ -9,9 +9,6 @@ import java.lang.annotation.Target;
 
 import org.orienteer.transponder.annotation.EntityProperty;
 
-import com.google.common.base.Strings;
-
-import net.bytebuddy.description.annotation.AnnotationDescription;
 import net.bytebuddy.description.annotation.AnnotationDescription.Loadable;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.method.ParameterDescription;
@@ -46,24 +43,8 @@ public @interface PropertyName {
 		public ParameterBinding<?> bind(Loadable<PropertyName> annotation, MethodDescription source,
 				ParameterDescription target, net.bytebuddy.implementation.Implementation.Target implementationTarget,
 				Assigner assigner, Typing typing) {
-			String methodName = source.getName();
-			AnnotationDescription.Loadable<EntityProperty> entityProperty 
-						= source.getDeclaredAnnotations().ofType(EntityProperty.class);
-			String propertyName = null;
-			if(entityProperty!=null) {
-				propertyName = entityProperty.load().value();
-			}
-			if(Strings.isNullOrEmpty(propertyName)) {
-				if(methodName.startsWith("set") && source.getParameters().size()==1) {
-					propertyName = decapitalize(methodName.substring(3));
-				} else if(methodName.startsWith("get") && source.getParameters().size()==0) {
-					propertyName = decapitalize(methodName.substring(3));
-				} else if(methodName.startsWith("is") && source.getParameters().size()==0) {
-					propertyName = decapitalize(methodName.substring(2));
-				} else {
-					return MethodDelegationBinder.ParameterBinding.Illegal.INSTANCE;
-				}
-			}
+			String propertyName = resolvePropertyName(source);
+			if(propertyName==null) return MethodDelegationBinder.ParameterBinding.Illegal.INSTANCE;
 			return new MethodDelegationBinder.ParameterBinding.Anonymous(new JavaConstantValue(JavaConstant.Simple.ofLoaded(propertyName)));
 		}
 		
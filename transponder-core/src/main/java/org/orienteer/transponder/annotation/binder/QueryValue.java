@@ -83,16 +83,9 @@ public @interface QueryValue {
 			AnnotationList annotations = source.getDeclaredAnnotations().filter(MATCHER);
 			if(annotations==null || annotations.size()!=1)
 				return MethodDelegationBinder.ParameterBinding.Illegal.INSTANCE;
-			AnnotationDescription ann = annotations.get(0);
-			Class<?> ownerClass = safeClassForName(source.getDeclaringType().getTypeName());
-			final String queryId = defaultIfNullOrEmpty(ann.getValue("id").resolve(String.class), 
-								() -> source.getDeclaringType().getTypeName()+"."+source.getName());
-			final String language = emptyToNull(ann.getValue("language").resolve(String.class));
-			final String value = emptyToNull(ann.getValue("value").resolve(String.class));
-			final String dialect = emptyToNull(ann.getValue("dialect").resolve(String.class));
-			
-			IPolyglot.Translation translation = transponder.getPolyglot()
-								.translate(ownerClass, queryId, language, value, dialect, transponder.getDriver().getDialect());
+			final String queryId = getQueryId(source, annotations.get(0));
+			final String dialect = emptyToNull(annotations.get(0).getValue("dialect").resolve(String.class));
+			IPolyglot.Translation translation = translate(transponder, source);
 			if(translation==null)
 				return new ParameterBinding<Void>() {
 					@Override
@@ -113,6 +106,32 @@ public @interface QueryValue {
 				);
 		}
 		
+		/**
+		 * Translate query/command defined for the method by {@link Query}, {@link Lookup} or {@link Command}
+		 * into dialect of a driver of provided {@link Transponder}
+		 * @param transponder transponder to translate for
+		 * @param source method to translate query/command for
+		 * @return translation or null if translation is not possible
+		 */
+		public static IPolyglot.Translation translate(Transponder transponder, MethodDescription source) {
+			AnnotationList annotations = source.getDeclaredAnnotations().filter(MATCHER);
+			if(annotations==null || annotations.size()!=1) return null;
+			AnnotationDescription ann = annotations.get(0);
+			Class<?> ownerClass = safeClassForName(source.getDeclaringType().getTypeName());
+			final String queryId = getQueryId(source, ann);
+			final String language = emptyToNull(ann.getValue("language").resolve(String.class));
+			final String value = emptyToNull(ann.getValue("value").resolve(String.class));
+			final String dialect = emptyToNull(ann.getValue("dialect").resolve(String.class));
+			
+			return transponder.getPolyglot()
+								.translate(ownerClass, queryId, language, value, dialect, transponder.getDriver().getDialect());
+		}
+		
+		private static String getQueryId(MethodDescription source, AnnotationDescription ann) {
+			return defaultIfNullOrEmpty(ann.getValue("id").resolve(String.class), 
+								() -> source.getDeclaringType().getTypeName()+"."+source.getName());
+		}
+		
 		private static StackManipulation createStringArray(String... array) {
 			List<JavaConstantValue> values = new ArrayList<>();
 			for (String value : array) 
@@ -0,0 +1,86 @@
+package org.orienteer.transponder.mutator;
+
+import static net.bytebuddy.matcher.ElementMatchers.*;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+import org.orienteer.transponder.BuilderScheduler;
+import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.IPolyglot;
+import org.orienteer.transponder.InvocationPlan;
+import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.Transponder.ITransponderEntity;
+import org.orienteer.transponder.Transponder.ITransponderHolder;
+import org.orienteer.transponder.annotation.binder.QueryValue;
+
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.MethodGraph;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Base {@link IMutator} for methods which require query or command.
+ * {@link InvocationPlan} is created for every such method during class generation and generated method
+ * just calls it. Methods for which plan can't be created are implemented by delegates as usual.
+ */
+abstract class AbstractInvocationMutator implements IMutator {
+
+	private static final Method INVOKE_METHOD;
+
+	static {
+		try {
+			INVOKE_METHOD = InvocationPlan.class.getMethod("invoke", Object.class, Object[].class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Can't resolve method of invocation plan", e);
+		}
+	}
+
+	private final Class<? extends Annotation> annotation;
+	private final InvocationPlan.Kind kind;
+
+	protected AbstractInvocationMutator(Class<? extends Annotation> annotation, InvocationPlan.Kind kind) {
+		this.annotation = annotation;
+		this.kind = kind;
+	}
+
+	@Override
+	public <T> DynamicType.Builder<T> mutate(Transponder transponder, DynamicType.Builder<T> builder,
+			BuilderScheduler scheduler) {
+		TypeDescription instrumentedType = builder.toTypeDescription();
+		boolean entity = instrumentedType.isAssignableTo(ITransponderEntity.class);
+		for (MethodGraph.Node node : MethodGraph.Compiler.DEFAULT.compile((TypeDefinition) instrumentedType).listNodes()) {
+			MethodDescription method = node.getRepresentative();
+			if(method.getDeclaringType().asErasure().represents(ITransponderHolder.class)
+					|| !method.isAbstract()
+					|| !method.getDeclaredAnnotations().isAnnotationPresent(annotation)) continue;
+			ElementMatcher<MethodDescription> matcher = hasSignature(method.asSignatureToken()).and(isAbstract());
+			Method loadedMethod = CommonUtils.toLoadedMethod(method);
+			IPolyglot.Translation translation = loadedMethod!=null ? QueryValue.Binder.translate(transponder, method) : null;
+			if(translation==null) {
+				scheduleDelegate(transponder, scheduler, matcher, method);
+			} else {
+				InvocationPlan plan = InvocationPlan.of(kind, loadedMethod, translation, entity);
+				scheduler.schedule(matcher, MethodCall.invoke(INVOKE_METHOD).on(plan, InvocationPlan.class)
+														.withThis().withArgumentArray()
+														.withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC));
+			}
+		}
+		return builder;
+	}
+
+	/**
+	 * Schedule generic delegate for a method for which {@link InvocationPlan} can't be created
+	 * @param transponder transponder instance for which class is being generated
+	 * @param scheduler scheduler to schedule delegate in
+	 * @param matcher matcher for the method
+	 * @param method method to be implemented
+	 */
+	protected abstract void scheduleDelegate(Transponder transponder, BuilderScheduler scheduler,
+											 ElementMatcher<MethodDescription> matcher, MethodDescription method);
+}
@@ -4,19 +4,18 @@ import static org.orienteer.transponder.CommonUtils.*;
 
 import org.orienteer.transponder.BuilderScheduler;
 import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.InvocationPlan;
 import org.orienteer.transponder.Transponder;
 import org.orienteer.transponder.Transponder.ITransponderEntity;
 import org.orienteer.transponder.annotation.Command;
 import org.orienteer.transponder.annotation.binder.QueryValue;
 
+import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Origin;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.This;
-
-import static net.bytebuddy.matcher.ElementMatchers.*;
-
-import net.bytebuddy.matcher.ElementMatchers;
+import net.bytebuddy.matcher.ElementMatcher;
 
 import java.lang.reflect.Method;
 import java.util.Map;
@@ -24,17 +23,21 @@ import java.util.Map;
 /**
  * {@link IMutator} and delegate to implement methods annotated by {@link Command}
  */
-public class CommandMutator implements IMutator {
+public class CommandMutator extends AbstractInvocationMutator {
+
+	/**
+	 * Creates mutator for methods annotated by {@link Command}
+	 */
+	public CommandMutator() {
+		super(Command.class, InvocationPlan.Kind.COMMAND);
+	}
 
 	@Override
-	public void schedule(Transponder transponder, BuilderScheduler scheduler) {
-		// Schedule void methods separately to avoid ByteBuddy delegation issues
-		scheduler.scheduleDelegate(isAnnotatedWith(Command.class).and(isAbstract()).and(returns(void.class)),
-								   VoidCommandDelegate.class,
-								   new QueryValue.Binder(transponder));
-		// Schedule non-void methods with the original delegate
-		scheduler.scheduleDelegate(isAnnotatedWith(Command.class).and(isAbstract()).and(not(returns(void.class))),
-								   CommandDelegate.class,
+	protected void scheduleDelegate(Transponder transponder, BuilderScheduler scheduler,
+									ElementMatcher<MethodDescription> matcher, MethodDescription method) {
+		// Void methods use separate delegate to avoid ByteBuddy delegation issues
+		scheduler.scheduleDelegate(matcher,
+								   method.getReturnType().represents(void.class) ? VoidCommandDelegate.class : CommandDelegate.class,
 								   new QueryValue.Binder(transponder));
 	}
 	
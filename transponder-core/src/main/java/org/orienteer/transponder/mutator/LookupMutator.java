@@ -4,6 +4,7 @@ import static org.orienteer.transponder.CommonUtils.*;
 
 import org.orienteer.transponder.BuilderScheduler;
 import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.InvocationPlan;
 import org.orienteer.transponder.Transponder;
 import org.orienteer.transponder.Transponder.ITransponderEntity;
 import org.orienteer.transponder.annotation.Lookup;
@@ -12,12 +13,12 @@ import org.orienteer.transponder.annotation.binder.QueryValue;
 
 import com.google.common.primitives.Primitives;
 
+import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Origin;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.This;
-
-import static net.bytebuddy.matcher.ElementMatchers.*;
+import net.bytebuddy.matcher.ElementMatcher;
 
 import java.lang.reflect.Method;
 import java.util.Map;
@@ -25,13 +26,19 @@ import java.util.Map;
 /**
  * {@link IMutator} and delegate to implement methods annotated by {@link Lookup}
  */
-public class LookupMutator implements IMutator {
+public class LookupMutator extends AbstractInvocationMutator {
+
+	/**
+	 * Creates mutator for methods annotated by {@link Lookup}
+	 */
+	public LookupMutator() {
+		super(Lookup.class, InvocationPlan.Kind.LOOKUP);
+	}
 
 	@Override
-	public void schedule(Transponder transponder, BuilderScheduler scheduler) {
-		scheduler.scheduleDelegate(isAnnotatedWith(Lookup.class).and(isAbstract()),
-								   LookupDelegate.class,
-								   new QueryValue.Binder(transponder));
+	protected void scheduleDelegate(Transponder transponder, BuilderScheduler scheduler,
+									ElementMatcher<MethodDescription> matcher, MethodDescription method) {
+		scheduler.scheduleDelegate(matcher, LookupDelegate.class, new QueryValue.Binder(transponder));
 	}
 	
 	/**
@@ -0,0 +1,98 @@
+package org.orienteer.transponder.mutator;
+
+import static net.bytebuddy.matcher.ElementMatchers.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import org.orienteer.transponder.BuilderScheduler;
+import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.ConversionPlan;
+import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.ProjectionWrapper;
+import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.Transponder.ITransponderHolder;
+
+import com.google.common.base.Defaults;
+
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.MethodGraph;
+import net.bytebuddy.implementation.ExceptionMethod;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * {@link IMutator} to implement getters of projections: values are taken from {@link ProjectionWrapper}.
+ * Projections are read-only, so setters throw {@link UnsupportedOperationException}
+ */
+public class ProjectionMutator implements IMutator {
+	
+	private static final ElementMatcher<MethodDescription> GETTER = isGetter().and(isAbstract());
+	private static final ElementMatcher<MethodDescription> SETTER = nameStartsWith("set")
+																		.and(takesArguments(1))
+																		.and(isAbstract());
+	private static final Method GET_METHOD;
+
+	static {
+		try {
+			GET_METHOD = ProjectionGetter.class.getMethod("get", Object.class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Can't resolve method of projection getter", e);
+		}
+	}
+
+	@Override
+	public <T> DynamicType.Builder<T> mutate(Transponder transponder, DynamicType.Builder<T> builder,
+			BuilderScheduler scheduler) {
+		TypeDescription instrumentedType = builder.toTypeDescription();
+		for (MethodGraph.Node node : MethodGraph.Compiler.DEFAULT.compile((TypeDefinition) instrumentedType).listNodes()) {
+			MethodDescription method = node.getRepresentative();
+			if(method.getDeclaringType().asErasure().represents(ITransponderHolder.class)) continue;
+			ElementMatcher<MethodDescription> matcher = hasSignature(method.asSignatureToken()).and(isAbstract());
+			if(GETTER.matches(method)) {
+				String property = CommonUtils.resolvePropertyName(method);
+				Method loadedMethod = CommonUtils.toLoadedMethod(method);
+				if(property==null || loadedMethod==null) continue;
+				ProjectionGetter getter = new ProjectionGetter(property, loadedMethod.getGenericReturnType(), loadedMethod.getReturnType());
+				scheduler.schedule(matcher, MethodCall.invoke(GET_METHOD).on(getter, ProjectionGetter.class)
+													.withThis()
+													.withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC));
+			} else if(SETTER.matches(method)) {
+				scheduler.schedule(matcher, ExceptionMethod.throwing(UnsupportedOperationException.class, 
+																"Projection is read-only: "+method.getName()));
+			}
+		}
+		return builder;
+	}
+	
+	/**
+	 * Specialized getter of a single projected property
+	 */
+	public static final class ProjectionGetter {
+		private final String property;
+		private final ConversionPlan plan;
+		private final Object stubValue;
+		
+		ProjectionGetter(String property, Type type, Class<?> returnClass) {
+			this.property = property;
+			this.plan = ConversionPlan.of(type);
+			this.stubValue = Defaults.defaultValue(returnClass);
+		}
+		
+		/**
+		 * Obtain value of the projected property
+		 * @param wrapper projection object
+		 * @return property value
+		 */
+		public Object get(Object wrapper) {
+			Object value = ((ProjectionWrapper)wrapper).get$values().get(property);
+			Object ret = plan.wrap(Transponder.getTransponder(wrapper), value);
+			return ret!=null ? ret : stubValue;
+		}
+	}
+
+}
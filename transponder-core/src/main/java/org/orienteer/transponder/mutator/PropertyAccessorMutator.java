@@ -0,0 +1,249 @@
+package org.orienteer.transponder.mutator;
+
+import static net.bytebuddy.matcher.ElementMatchers.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import org.orienteer.transponder.BuilderScheduler;
+import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.ConversionPlan;
+import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.Transponder.ITransponderHolder;
+import org.orienteer.transponder.annotation.EntityProperty;
+import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.annotation.LiveCollection;
+import org.orienteer.transponder.annotation.binder.PropertyName;
+import org.orienteer.transponder.mutator.GetterMutator.GetDelegate;
+import org.orienteer.transponder.mutator.SetterMutator.SetDelegate;
+
+import com.google.common.base.Defaults;
+
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.MethodGraph;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * {@link IMutator} to implement getters and setters methods.
+ * In comparison to {@link GetterMutator} and {@link SetterMutator} it generates specialized call per property:
+ * name of a property, its generic type and conversion strategy are resolved once during class generation
+ * and stored in generated class as constants together with {@link ConversionPlan} for values of the property.
+ */
+public class PropertyAccessorMutator implements IMutator {
+
+	private static final ElementMatcher<MethodDescription> GETTER = isGetter().and(isAbstract());
+	private static final ElementMatcher<MethodDescription> SETTER = nameStartsWith("set")
+																		.and(takesArguments(1))
+																		.and(isAbstract());
+	private static final Method GET_METHOD;
+	private static final Method SET_METHOD;
+
+	static {
+		try {
+			GET_METHOD = PropertyGetter.class.getMethod("get", Object.class);
+			SET_METHOD = PropertySetter.class.getMethod("set", Object.class, Object.class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Can't resolve methods of property accessors", e);
+		}
+	}
+
+	@Override
+	public <T> DynamicType.Builder<T> mutate(Transponder transponder, DynamicType.Builder<T> builder,
+			BuilderScheduler scheduler) {
+		TypeDescription instrumentedType = builder.toTypeDescription();
+		for (MethodGraph.Node node : MethodGraph.Compiler.DEFAULT.compile((TypeDefinition) instrumentedType).listNodes()) {
+			MethodDescription method = node.getRepresentative();
+			if(method.getDeclaringType().asErasure().represents(ITransponderHolder.class)) continue;
+			boolean isGetter = GETTER.matches(method);
+			if(!isGetter && !SETTER.matches(method)) continue;
+			ElementMatcher<MethodDescription> matcher = hasSignature(method.asSignatureToken()).and(isAbstract());
+			Implementation implementation = isGetter
+												? toGetterImplementation(instrumentedType, method)
+												: toSetterImplementation(instrumentedType, method);
+			scheduler.schedule(matcher, implementation);
+		}
+		return builder;
+	}
+
+	private static Implementation toGetterImplementation(TypeDescription instrumentedType, MethodDescription method) {
+		String property = CommonUtils.resolvePropertyName(method);
+		Method loadedMethod = CommonUtils.toLoadedMethod(method);
+		if(property==null || loadedMethod==null) {
+			return MethodDelegation.withDefaultConfiguration().withBinders(PropertyName.Binder.INSTANCE).to(GetDelegate.class);
+		}
+		PropertyGetter getter;
+		String sizedProperty = CommonUtils.resolveSizedProperty(loadedMethod);
+		if(sizedProperty!=null) {
+			if(!CommonUtils.isSizeClass(loadedMethod.getReturnType()))
+				throw new IllegalStateException("@Size can be used only for getters which return int or long: "+loadedMethod);
+			Type propertyType = resolvePropertyType(instrumentedType, sizedProperty);
+			if(propertyType==null)
+				throw new IllegalStateException("Getter of property '"+sizedProperty+"' was not found for "+loadedMethod);
+			getter = new PropertyGetter(sizedProperty, propertyType, loadedMethod.getReturnType(), false, false, true);
+		} else getter = toPropertyGetter(property, loadedMethod);
+		return MethodCall.invoke(GET_METHOD).on(getter, PropertyGetter.class)
+						.withThis()
+						.withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC);
+	}
+
+	private static Type resolvePropertyType(TypeDescription instrumentedType, String property) {
+		//Collection property might be declared not in the same interface as getter of its size
+		for (MethodGraph.Node node : MethodGraph.Compiler.DEFAULT.compile((TypeDefinition) instrumentedType).listNodes()) {
+			MethodDescription method = node.getRepresentative();
+			if(!GETTER.matches(method) || !property.equals(CommonUtils.resolvePropertyName(method))) continue;
+			Method loadedMethod = CommonUtils.toLoadedMethod(method);
+			if(loadedMethod!=null && CommonUtils.resolveSizedProperty(loadedMethod)==null) return loadedMethod.getGenericReturnType();
+		}
+		return null;
+	}
+
+	private static PropertyGetter toPropertyGetter(String property, Method loadedMethod) {
+		boolean live = loadedMethod.isAnnotationPresent(LiveCollection.class);
+		if(live && !Collection.class.isAssignableFrom(loadedMethod.getReturnType()))
+			throw new IllegalStateException("@LiveCollection can be used only for getters of collections: "+loadedMethod);
+		EntityProperty entityProperty = loadedMethod.getAnnotation(EntityProperty.class);
+		boolean lazy = entityProperty!=null && entityProperty.lazy();
+		if(lazy && loadedMethod.getReturnType().getAnnotation(EntityType.class)==null)
+			throw new IllegalStateException("Lazy loading can be used only for getters of @EntityType entities: "+loadedMethod);
+		return new PropertyGetter(property, loadedMethod.getGenericReturnType(), loadedMethod.getReturnType(), live, lazy, false);
+	}
+
+	private static Implementation toSetterImplementation(TypeDescription instrumentedType, MethodDescription method) {
+		String property = CommonUtils.resolvePropertyName(method);
+		Method loadedMethod = CommonUtils.toLoadedMethod(method);
+		if(property==null || loadedMethod==null) {
+			return MethodDelegation.withDefaultConfiguration().withBinders(PropertyName.Binder.INSTANCE).to(SetDelegate.class);
+		}
+		TypeDescription returnType = method.getReturnType().asErasure();
+		boolean chaining = !returnType.represents(void.class) && instrumentedType.isAssignableTo(returnType);
+		PropertySetter setter = new PropertySetter(property, loadedMethod.getGenericParameterTypes()[0], chaining);
+		return MethodCall.invoke(SET_METHOD).on(setter, PropertySetter.class)
+						.withThis().withArgument(0)
+						.withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC);
+	}
+
+	/**
+	 * Specialized getter of a single property
+	 */
+	public static final class PropertyGetter {
+		private final String property;
+		private final Type type;
+		private final ConversionPlan plan;
+		private final Object stubValue;
+		private final boolean live;
+		private final Class<?> lazyClass;
+		private final Class<?> sizeClass;
+
+		PropertyGetter(String property, Type type, Class<?> returnClass, boolean live, boolean lazy, boolean sized) {
+			this.property = property;
+			this.type = type;
+			this.plan = ConversionPlan.of(type);
+			this.stubValue = Defaults.defaultValue(returnClass);
+			this.live = live;
+			this.lazyClass = lazy ? returnClass : null;
+			this.sizeClass = sized ? returnClass : null;
+		}
+
+		/**
+		 * Obtain value of the property
+		 * @param wrapper wrapper object
+		 * @return property value
+		 */
+		public Object get(Object wrapper) {
+			Transponder transponder = Transponder.getTransponder(wrapper);
+			if(live) return plan.wrapLive(transponder, transponder.getDriver().getPropertyCollection(wrapper, property, type));
+			if(sizeClass!=null) return CommonUtils.toSize(transponder.getDriver().getPropertySize(wrapper, property, type), sizeClass);
+			if(lazyClass!=null) return transponder.provideLazy(transponder.getDriver().getPropertyReference(wrapper, property, type), lazyClass);
+			Object ret = plan.wrap(transponder, transponder.getDriver().getPropertyValue(wrapper, property, type));
+			return ret!=null ? ret : stubValue;
+		}
+
+		/**
+		 * @return name of the property
+		 */
+		public String getProperty() {
+			return property;
+		}
+
+		/**
+		 * @return conversion plan for values of the property
+		 */
+		public ConversionPlan getPlan() {
+			return plan;
+		}
+
+		/**
+		 * @return true if getter returns live collection
+		 */
+		public boolean isLive() {
+			return live;
+		}
+
+		/**
+		 * @return true if getter returns lazily loaded entity
+		 */
+		public boolean isLazy() {
+			return lazyClass!=null;
+		}
+
+		/**
+		 * @return true if getter returns size of the collection property
+		 */
+		public boolean isSized() {
+			return sizeClass!=null;
+		}
+	}
+
+	/**
+	 * Specialized setter of a single property
+	 */
+	public static final class PropertySetter {
+		private final String property;
+		private final Type type;
+		private final ConversionPlan plan;
+		private final boolean chaining;
+
+		PropertySetter(String property, Type type, boolean chaining) {
+			this.property = property;
+			this.type = type;
+			this.plan = ConversionPlan.of(type);
+			this.chaining = chaining;
+		}
+
+		/**
+		 * Sets value of a property
+		 * @param wrapper wrapper object
+		 * @param value actual value to set
+		 * @return null or wrapper object: depends on method definition
+		 */
+		public Object set(Object wrapper, Object value) {
+			Transponder transponder = Transponder.getTransponder(wrapper);
+			transponder.getDriver().setPropertyValue(wrapper, property, plan.unwrap(value), type);
+			return chaining ? wrapper : null;
+		}
+
+		/**
+		 * @return name of the property
+		 */
+		public String getProperty() {
+			return property;
+		}
+
+		/**
+		 * @return conversion plan for values of the property
+		 */
+		public ConversionPlan getPlan() {
+			return plan;
+		}
+	}
+
+}
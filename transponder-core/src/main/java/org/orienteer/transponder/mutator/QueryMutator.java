@@ -4,18 +4,19 @@ import static org.orienteer.transponder.CommonUtils.*;
 
 import org.orienteer.transponder.BuilderScheduler;
 import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.InvocationPlan;
 import org.orienteer.transponder.Transponder;
 import org.orienteer.transponder.Transponder.ITransponderEntity;
 import org.orienteer.transponder.annotation.Command;
 import org.orienteer.transponder.annotation.Query;
 import org.orienteer.transponder.annotation.binder.QueryValue;
 
+import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Origin;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 import net.bytebuddy.implementation.bind.annotation.This;
-
-import static net.bytebuddy.matcher.ElementMatchers.*;
+import net.bytebuddy.matcher.ElementMatcher;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -25,13 +26,19 @@ import java.util.Map;
 /**
  * {@link IMutator} and delegate to implement methods annotated by {@link Query}
  */
-public class QueryMutator implements IMutator {
+public class QueryMutator extends AbstractInvocationMutator {
+
+	/**
+	 * Creates mutator for methods annotated by {@link Query}
+	 */
+	public QueryMutator() {
+		super(Query.class, InvocationPlan.Kind.QUERY);
+	}
 
 	@Override
-	public void schedule(Transponder transponder, BuilderScheduler scheduler) {
-		scheduler.scheduleDelegate(isAnnotatedWith(Query.class).and(isAbstract()),
-								   QueryDelegate.class,
-								   new QueryValue.Binder(transponder));
+	protected void scheduleDelegate(Transponder transponder, BuilderScheduler scheduler,
+									ElementMatcher<MethodDescription> matcher, MethodDescription method) {
+		scheduler.scheduleDelegate(matcher, QueryDelegate.class, new QueryValue.Binder(transponder));
 	}
 	
 	/**
@@ -6,6 +6,8 @@ import java.util.List;
 import org.orienteer.transponder.BuilderScheduler;
 import org.orienteer.transponder.IMutator;
 import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.annotation.Cached;
+import org.orienteer.transponder.annotation.Coalesce;
 import org.orienteer.transponder.annotation.DefaultValue;
 
 import net.bytebuddy.dynamic.DynamicType.Builder;
@@ -19,6 +21,8 @@ public class StackedMutator implements IMutator {
 	 * Predefined mutators for DAO classes
 	 */
 	public static final IMutator DAO_MUTATOR 	= new StackedMutator(new AnnotationMutator(DefaultValue.class),
+																	 new AnnotationMutator(Cached.class),
+																	 new AnnotationMutator(Coalesce.class),
 																	 new CommandMutator(),
 			 														 new LookupMutator(), 
 																     new QueryMutator());
@@ -28,17 +32,26 @@ public class StackedMutator implements IMutator {
 	 */
 	public static final IMutator DELEGATE_MUTATOR 	= new StackedMutator(new DelegatorMutator(),
 																		 new AnnotationMutator(DefaultValue.class),
+																		 new AnnotationMutator(Cached.class),
+																		 new AnnotationMutator(Coalesce.class),
 																		 new CommandMutator(),
 				 														 new LookupMutator(), 
 																	     new QueryMutator());
 	
+	/**
+	 * Predefined mutators for PROJECTION classes
+	 */
+	public static final IMutator PROJECTION_MUTATOR = new StackedMutator(new AnnotationMutator(DefaultValue.class),
+																		 new ProjectionMutator());
+	
 	/**
 	 * Predefined mutators for entity/wrapper classes
 	 */
 	public static final IMutator ENTITY_MUTATOR = new StackedMutator(new AnnotationMutator(DefaultValue.class),
+																	 new AnnotationMutator(Cached.class),
+																	 new AnnotationMutator(Coalesce.class),
 																	 new CommandMutator(),
-																	 new GetterMutator(),
-																	 new SetterMutator(),
+																	 new PropertyAccessorMutator(),
 																	 new LookupMutator(),
 																	 new QueryMutator());
 	
@@ -5,15 +5,26 @@ import static org.orienteer.transponder.CommonUtils.*;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.orienteer.transponder.Transponder.ITransponderHolder;
 import org.orienteer.transponder.datamodel.ClassTestDAO;
+import org.orienteer.transponder.datamodel.ILinkedEntity;
 import org.orienteer.transponder.datamodel.ISimpleEntity;
+import org.orienteer.transponder.datamodel.ISimpleProjection;
+import org.orienteer.transponder.datamodel.SimpleProjectionBean;
 import org.orienteer.transponder.datamodel.ISuperSimpleEntity;
 import org.orienteer.transponder.datamodel.ITestDAO;
 import org.orienteer.transponder.datamodel.sample.IFile;
@@ -190,6 +201,31 @@ public abstract class AbstractUniversalTest
 		assertEquals(description, driver.getPropertyValue(otherEntityInstance, "description", String.class));
 	}
 	
+	@Test
+	public void testDAOStreamQuery() {
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		driver.createSeedObject("Simple", CommonUtils.toMap("pk", "s1", "name", "Stream 1"));
+		driver.createSeedObject("Simple", CommonUtils.toMap("pk", "s2", "name", "Stream 2"));
+		Set<String> expected = dao.getAll().stream().map(ISimpleEntity::getName).collect(Collectors.toSet());
+		assertTrue(expected.containsAll(Arrays.asList("Stream 1", "Stream 2")));
+		
+		try(Stream<ISimpleEntity> stream = dao.streamAll()) {
+			assertEquals(expected, stream.map(ISimpleEntity::getName).collect(Collectors.toSet()));
+		}
+		
+		Iterator<ISimpleEntity> it = dao.iterateAll();
+		Set<String> names = new HashSet<>();
+		while(it.hasNext()) names.add(it.next().getName());
+		assertEquals(expected, names);
+		
+		Iterable<ISimpleEntity> iterable = dao.iterableAll();
+		for(int i=0; i<2; i++) {
+			names = new HashSet<>();
+			for (ISimpleEntity entity : iterable) names.add(entity.getName());
+			assertEquals(expected, names);
+		}
+	}
+	
 	@Test
 	public void testDAOQuery() {
 		ITestDAO dao = transponder.dao(ITestDAO.class);
@@ -221,6 +257,55 @@ public abstract class AbstractUniversalTest
 		assertEquals("Triple A", ret.getName());
 	}
 	
+	@Test
+	public void testCountAndExists() {
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		driver.createSeedObject("Simple", CommonUtils.toMap("pk", "count1", "name", "Count 1"));
+		driver.createSeedObject("Simple", CommonUtils.toMap("pk", "count2", "name", "Count 2"));
+		assertEquals(dao.getAll().size(), dao.countAll());
+		assertTrue(dao.countAll()>=2);
+		assertTrue(dao.existsAny());
+	}
+	
+	@Test
+	public void testPagination() {
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		for(int i=0; i<5; i++) {
+			driver.createSeedObject("Simple", CommonUtils.toMap("pk", "page"+i, "name", "Page "+i));
+		}
+		//Entities are compared by primary keys which might be absent or duplicated in entities created by other tests
+		List<String> expected = dao.getAll().stream().map(e -> String.valueOf(e.getPk())).sorted().collect(Collectors.toList());
+		assertTrue(expected.size()>=5);
+		
+		List<String> sliced = new ArrayList<>();
+		Object cursor = null;
+		Slice<ISimpleEntity> slice;
+		do {
+			slice = dao.getAllSliced(2, cursor);
+			if(slice.hasNext()) assertEquals(2, slice.size());
+			else assertTrue(slice.size()<=2);
+			for (ISimpleEntity entity : slice) sliced.add(String.valueOf(entity.getPk()));
+			cursor = slice.getNextCursor();
+		} while(slice.hasNext() && sliced.size()<=expected.size());
+		Collections.sort(sliced);
+		assertEquals(expected, sliced);
+		
+		List<String> paged = new ArrayList<>();
+		Page<ISimpleEntity> page;
+		int pageNumber = 0;
+		do {
+			page = dao.getAllPaged(2, pageNumber);
+			assertEquals(pageNumber, page.getPageNumber());
+			if(page.hasNext()) assertEquals(2, page.size());
+			else assertTrue(page.size()<=2);
+			for (ISimpleEntity entity : page) paged.add(String.valueOf(entity.getPk()));
+			pageNumber++;
+		} while(page.hasNext() && paged.size()<=expected.size());
+		Collections.sort(paged);
+		assertEquals(expected, paged);
+		assertTrue(dao.getAllPaged(2, pageNumber).isEmpty());
+	}
+	
 	@Test
 	public void testLookupInDAO() {
 		driver.createSeedObject("Simple", CommonUtils.toMap("pk", "dao1LookupInDAO", "name",  "DAO1"));
@@ -239,6 +324,102 @@ public abstract class AbstractUniversalTest
 		assertFalse(dao.checkPresenseByPk("dao3LookupInDAO"));
 	}
 	
+	@Test
+	public void testSaveAll() {
+		List<ISimpleEntity> entities = new ArrayList<>();
+		for(int i=0; i<5; i++) {
+			ISimpleEntity entity = transponder.create(ISimpleEntity.class);
+			entity.setPk("saveAll"+i);
+			entity.setName("Save All "+i);
+			entities.add(entity);
+		}
+		Transponder.saveAll(entities, 2);
+		Transponder.saveAll(new ArrayList<>());
+		assertThrows(IllegalArgumentException.class, () -> Transponder.saveAll(entities, 0));
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		Set<String> names = dao.getAll().stream().map(ISimpleEntity::getName).collect(Collectors.toSet());
+		for(int i=0; i<5; i++) {
+			assertTrue(names.contains("Save All "+i));
+		}
+	}
+	
+	@Test
+	public void testProjection() {
+		List<ISimpleEntity> entities = new ArrayList<>();
+		for(int i=0; i<3; i++) {
+			entities.add(transponder.create(ISimpleEntity.class)
+							.setPk("projection"+i)
+							.setName("Projection "+i));
+		}
+		Transponder.saveAll(entities);
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		Map<String, ISimpleProjection> projections = new HashMap<>();
+		for (ISimpleProjection projection : dao.projectAll()) {
+			if(projection.getPk()!=null) projections.put(projection.getPk(), projection);
+		}
+		for(int i=0; i<3; i++) {
+			ISimpleProjection projection = projections.get("projection"+i);
+			assertNotNull(projection);
+			assertEquals("Projection "+i, projection.getName());
+			assertEquals("projection"+i+": Projection "+i, projection.getTitle());
+		}
+		Map<String, SimpleProjectionBean> beans = new HashMap<>();
+		for (SimpleProjectionBean bean : dao.projectAllAsBeans()) {
+			if(bean.getPk()!=null) beans.put(bean.getPk(), bean);
+		}
+		for(int i=0; i<3; i++) {
+			SimpleProjectionBean bean = beans.get("projection"+i);
+			assertNotNull(bean);
+			assertEquals("Projection "+i, bean.name);
+		}
+	}
+	
+	@Test
+	public void testLiveCollection() {
+		transponder.define(ILinkedEntity.class);
+		ILinkedEntity root = transponder.create(ILinkedEntity.class).setName("Root");
+		ILinkedEntity child1 = transponder.create(ILinkedEntity.class).setName("Child1");
+		ILinkedEntity child2 = transponder.create(ILinkedEntity.class).setName("Child2");
+		Transponder.saveAll(Arrays.asList(child1, child2, root));
+		
+		List<ILinkedEntity> links = root.getLinks();
+		assertTrue(links.isEmpty());
+		assertEquals(0, root.getLinksCount());
+		links.add(child1);
+		links.add(child2);
+		Transponder.save(root);
+		assertEquals(2, links.size());
+		assertEquals(2, root.getLinksCount());
+		assertEquals(2L, root.getNumberOfLinks());
+		assertEquals(new HashSet<>(Arrays.asList("Child1", "Child2")),
+					 root.getLinks().stream().map(ILinkedEntity::getName).collect(Collectors.toSet()));
+		
+		assertTrue(root.getLinks().remove(child1));
+		Transponder.save(root);
+		links = root.getLinks();
+		assertEquals(1, links.size());
+		assertEquals(1, root.getLinksCount());
+		assertEquals(1L, root.getNumberOfLinks());
+		assertEquals("Child2", links.get(0).getName());
+		assertFalse(links.contains(child1));
+		assertTrue(links.contains(child2));
+	}
+	
+	@Test
+	public void testLazyReference() {
+		transponder.define(ILinkedEntity.class);
+		ILinkedEntity parent = transponder.create(ILinkedEntity.class).setName("LazyParent");
+		Transponder.save(parent);
+		ILinkedEntity child = transponder.create(ILinkedEntity.class).setName("LazyChild").setParent(parent);
+		Transponder.save(child);
+		
+		assertNull(parent.getParent());
+		ILinkedEntity lazyParent = child.getParent();
+		assertNotNull(lazyParent);
+		assertEquals("LazyParent", lazyParent.getName());
+		assertNull(lazyParent.getParent());
+	}
+	
 	@Test
 	public void testLookupInEntity() {
 		driver.createSeedObject("Simple", CommonUtils.toMap("pk", "dao1LookupInEntity", "name",  "DAO1"));
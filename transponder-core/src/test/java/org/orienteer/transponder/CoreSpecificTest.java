@@ -1,29 +1,81 @@
 package org.orienteer.transponder;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static net.bytebuddy.matcher.ElementMatchers.named;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.orienteer.transponder.IPolyglot.Translation;
 import org.orienteer.transponder.Transponder.ITransponderDelegator;
 import org.orienteer.transponder.annotation.AdviceAnnotation;
+import org.orienteer.transponder.annotation.Cached;
+import org.orienteer.transponder.annotation.Coalesce;
+import org.orienteer.transponder.annotation.Count;
 import org.orienteer.transponder.annotation.DefaultValue;
 import org.orienteer.transponder.annotation.DelegateAnnotation;
 import org.orienteer.transponder.annotation.EntityProperty;
 import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.annotation.Exists;
+import org.orienteer.transponder.annotation.Fetch;
 import org.orienteer.transponder.annotation.Lookup;
 import org.orienteer.transponder.annotation.OverrideByThis;
+import org.orienteer.transponder.annotation.Projection;
+import org.orienteer.transponder.annotation.Query;
+import org.orienteer.transponder.annotation.Size;
 import org.orienteer.transponder.datamodel.ClassTestDAO;
+import org.orienteer.transponder.datamodel.ILinkedEntity;
 import org.orienteer.transponder.datamodel.IRemoteEntity;
 import org.orienteer.transponder.datamodel.ISimpleEntity;
+import org.orienteer.transponder.datamodel.ISimpleProjection;
 import org.orienteer.transponder.datamodel.ITestDAO;
+import org.orienteer.transponder.mutator.PropertyAccessorMutator.PropertyGetter;
+import org.orienteer.transponder.mutator.PropertyAccessorMutator.PropertySetter;
+import org.orienteer.transponder.polyglot.DefaultPolyglot;
+
+import com.google.common.cache.CacheStats;
+import com.google.common.reflect.TypeToken;
 
 import net.bytebuddy.asm.Advice;
 
@@ -115,6 +167,1164 @@ public class CoreSpecificTest
 		}
 	}
 	
+	@Test
+	public void testManyScheduledCases() {
+		final int casesCount = 32;
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public IMutator getMutator() {
+				return new IMutator() {
+					@Override
+					public void schedule(Transponder transponder, BuilderScheduler scheduler) {
+						for (int i = 0; i < casesCount; i++) {
+							scheduler.scheduleAdvice(named(i%2==0?"getIncEven":"getIncOdd").or(named("getIncAll")), IncAdvice.class);
+						}
+					}
+				};
+			}
+		});
+		ManyCasesDAO dao = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> transponder.dao(ManyCasesDAO.class));
+		assertEquals((Integer)casesCount, dao.getIncAll());
+		assertEquals((Integer)(casesCount/2), dao.getIncEven());
+		assertEquals((Integer)(casesCount/2), dao.getIncOdd());
+		assertEquals((Integer)0, dao.getNotIncremented());
+	}
+	
+	public static interface ManyCasesDAO {
+		public default Integer getIncAll() {
+			return 0;
+		}
+		
+		public default Integer getIncEven() {
+			return 0;
+		}
+		
+		public default Integer getIncOdd() {
+			return 0;
+		}
+		
+		public default Integer getNotIncremented() {
+			return 0;
+		}
+	}
+	
+	@Test
+	public void testProxyClassRegistry() {
+		ProxyClassRegistry registry = Transponder.getProxyClassRegistry();
+		Transponder transponder = new Transponder(new TestDriver());
+		Class<?> daoClass = transponder.dao(ITestDAO.class).getClass();
+		long hits = registry.getHitCount();
+		assertEquals(daoClass, transponder.dao(ITestDAO.class).getClass());
+		assertTrue(registry.getHitCount()>hits);
+		assertTrue(registry.getGeneratedClasses().containsValue(daoClass));
+		
+		//Transponders with equivalent drivers and polyglots share generated classes
+		Transponder otherTransponder = new Transponder(new TestDriver());
+		assertSame(daoClass, otherTransponder.dao(ITestDAO.class).getClass());
+		assertSame(transponder.provide(new HashMap<>(), ISimpleEntity.class).getClass(),
+					otherTransponder.provide(new HashMap<>(), ISimpleEntity.class).getClass());
+		
+		transponder.setPolyglot(new DefaultPolyglot());
+		assertSame(daoClass, transponder.dao(ITestDAO.class).getClass());
+		transponder.setPolyglot(new DefaultPolyglot() {});
+		assertNotEquals(daoClass, transponder.dao(ITestDAO.class).getClass());
+		
+		ProxyClassRegistry lruRegistry = new ProxyClassRegistry(ProxyClassRegistry.Retention.LRU, 1);
+		ProxyClassRegistry.Key key1 = ProxyClassRegistry.key(TestDriver.class, Object.class, ITestDAO.class, null, ProxyType.DAO, null);
+		ProxyClassRegistry.Key key2 = ProxyClassRegistry.key(TestDriver.class, Object.class, ClassTestDAO.class, null, ProxyType.DAO, null);
+		assertEquals(ITestDAO.class, lruRegistry.findOrGenerate(key1, () -> ITestDAO.class));
+		assertEquals(ITestDAO.class, lruRegistry.findOrGenerate(key1, () -> ClassTestDAO.class));
+		assertEquals(ClassTestDAO.class, lruRegistry.findOrGenerate(key2, () -> ClassTestDAO.class));
+		assertEquals(1, lruRegistry.size());
+		assertEquals(1, lruRegistry.getEvictionCount());
+		assertEquals(1, lruRegistry.getHitCount());
+		assertEquals(2, lruRegistry.getGenerationCount());
+	}
+	
+	@Test
+	public void testSingleFlightGeneration() throws Exception {
+		final int threadsCount = 64;
+		final int typesCount = 20;
+		ProxyClassRegistry registry = Transponder.getProxyClassRegistry();
+		final String prefix = CommonUtils.RANDOM_STRING.nextString();
+		List<Transponder> transponders = new ArrayList<>();
+		for (int i = 0; i < typesCount; i++) {
+			final String cacheKey = prefix+i;
+			transponders.add(new Transponder(new TestDriver() {
+				@Override
+				public Object getCacheKey() {
+					return cacheKey;
+				}
+			}));
+		}
+		Map<Integer, Set<Class<?>>> generated = new ConcurrentHashMap<>();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+		long generationsBefore = registry.getGenerationCount();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threadsCount; t++) {
+				final int shift = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < typesCount; i++) {
+						int index = (i + shift) % typesCount;
+						Class<?> daoClass = transponders.get(index).dao(ITestDAO.class).getClass();
+						generated.computeIfAbsent(index, k -> ConcurrentHashMap.newKeySet()).add(daoClass);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) future.get(1, TimeUnit.MINUTES);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(typesCount, generated.size());
+		for (Set<Class<?>> classes : generated.values()) {
+			assertEquals(1, classes.size());
+		}
+		assertEquals(typesCount, registry.getGenerationCount() - generationsBefore);
+	}
+	
+	@Test
+	public void testWarmUp() {
+		Transponder transponder = new Transponder(new TestDriver());
+		Map<Class<?>, Duration> report = transponder.warmUp(ISimpleEntity.class, ITestDAO.class);
+		assertEquals(2, report.size());
+		assertTrue(report.containsKey(ISimpleEntity.class));
+		assertTrue(report.containsKey(ITestDAO.class));
+		
+		long misses = Transponder.getProxyClassRegistry().getMissCount();
+		transponder.create(ISimpleEntity.class);
+		transponder.dao(ITestDAO.class);
+		assertEquals(misses, Transponder.getProxyClassRegistry().getMissCount());
+		
+		report = transponder.warmUp("org.orienteer.transponder.datamodel");
+		assertTrue(report.containsKey(ISimpleEntity.class));
+		assertTrue(report.containsKey(ITestDAO.class));
+		assertTrue(report.containsKey(org.orienteer.transponder.datamodel.sample.IFolder.class));
+		assertFalse(report.containsKey(ClassTestDAO.class));
+	}
+	
+	@Test
+	public void testSpecializedPropertyAccessors() {
+		Transponder transponder = new Transponder(new TestDriver());
+		ISimpleEntity entity = transponder.create(ISimpleEntity.class);
+		long accessors = Arrays.stream(entity.getClass().getDeclaredFields())
+							.filter(f -> PropertyGetter.class.equals(f.getType()) || PropertySetter.class.equals(f.getType()))
+							.count();
+		assertTrue(accessors>0);
+		assertSame(entity, entity.setName("Name"));
+		assertEquals("Name", entity.getName());
+		((Map<Object, Object>)entity).put("name", 100);
+		assertNull(entity.getName());
+		
+		ISimpleEntity other = transponder.create(ISimpleEntity.class).setName("Other");
+		entity.setOtherEntity(other);
+		assertTrue(((Map<?, ?>)entity).get("otherEntity") instanceof HashMap);
+		assertFalse(((Map<?, ?>)entity).get("otherEntity") instanceof ISimpleEntity);
+		assertEquals("Other", entity.getOtherEntity().getName());
+		
+		DefaultValueTestCaseEntity defaults = transponder.create(DefaultValueTestCaseEntity.class);
+		((Map<Object, Object>)defaults).put("noDefaultPrimitive", 5);
+		assertEquals(5, defaults.getNoDefaultPrimitive());
+		((Map<Object, Object>)defaults).put("noDefaultPrimitive", "text");
+		assertEquals(0, defaults.getNoDefaultPrimitive());
+	}
+	
+	@Test
+	public void testConversionPlans() throws Exception {
+		assertSame(ConversionPlan.of(String.class), ConversionPlan.of(String.class));
+		assertEquals(ConversionPlan.Strategy.SCALAR, ConversionPlan.of(String.class).getStrategy());
+		assertEquals(ConversionPlan.Strategy.SCALAR, ConversionPlan.of(int.class).getStrategy());
+		assertEquals(ConversionPlan.Strategy.ENTITY, ConversionPlan.of(ISimpleEntity.class).getStrategy());
+		Type listOfEntities = PlanSample.class.getMethod("getEntities").getGenericReturnType();
+		assertSame(ConversionPlan.of(listOfEntities),
+				   ConversionPlan.of(PlanSample.class.getMethod("getEntities").getGenericReturnType()));
+		assertEquals(ConversionPlan.Strategy.COLLECTION, ConversionPlan.of(listOfEntities).getStrategy());
+		Type listOfStrings = PlanSample.class.getMethod("getNames").getGenericReturnType();
+		assertEquals(ConversionPlan.Strategy.SCALAR_COLLECTION, ConversionPlan.of(listOfStrings).getStrategy());
+		Type mapOfEntities = PlanSample.class.getMethod("getEntitiesMap").getGenericReturnType();
+		assertEquals(ConversionPlan.Strategy.MAP, ConversionPlan.of(mapOfEntities).getStrategy());
+		//Plans for generic types are kept by the most specific class, rather than by List or Map
+		assertEquals(ISimpleEntity.class, ConversionPlan.toOwnerClass(listOfEntities, null));
+		assertEquals(ISimpleEntity.class, ConversionPlan.toOwnerClass(mapOfEntities, null));
+		assertNull(ConversionPlan.toOwnerClass(listOfStrings, null).getClassLoader());
+		
+		Transponder transponder = new Transponder(new TestDriver());
+		List<String> names = Arrays.asList("a", "b");
+		Object wrappedNames = transponder.wrap(names, listOfStrings);
+		assertEquals(names, wrappedNames);
+		assertNotSame(names, wrappedNames);
+		
+		Map<String, Object> seed = new HashMap<>();
+		seed.put("name", "Seed");
+		List<ISimpleEntity> entities = transponder.wrap(Arrays.asList(seed), listOfEntities);
+		assertEquals("Seed", entities.get(0).getName());
+		assertEquals(seed, ConversionPlan.of(ISimpleEntity.class).unwrap(entities.get(0)));
+		assertEquals("text", ConversionPlan.of(String.class).unwrap("text"));
+		
+		List<ISimpleEntity> empty = transponder.wrap(Collections.emptyList(), listOfEntities);
+		assertTrue(empty.isEmpty());
+	}
+	
+	public static interface PlanSample {
+		public List<ISimpleEntity> getEntities();
+		public List<String> getNames();
+		public Map<String, ISimpleEntity> getEntitiesMap();
+	}
+	
+	@Test
+	public void testProvideAll() {
+		final AtomicInteger resolutions = new AtomicInteger();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public Class<?> getEntityMainClass(Object object) {
+				resolutions.incrementAndGet();
+				return super.getEntityMainClass(object);
+			}
+		});
+		List<Map<String, Object>> seeds = new ArrayList<>();
+		for(int i=0; i<100; i++) {
+			Map<String, Object> seed = new HashMap<>();
+			seed.put("name", "Name"+i);
+			seeds.add(seed);
+		}
+		List<ISimpleEntity> entities = transponder.provideAll(seeds, ISimpleEntity.class);
+		assertEquals(100, entities.size());
+		assertEquals(1, resolutions.get());
+		for(int i=0; i<100; i++) {
+			assertEquals("Name"+i, entities.get(i).getName());
+			assertSame(entities.get(0).getClass(), entities.get(i).getClass());
+		}
+		assertSame(entities.get(0).getClass(), transponder.provide(seeds.get(0), ISimpleEntity.class).getClass());
+		assertEquals(1, resolutions.get());
+		assertNotSame(entities.get(0).getClass(), 
+					  transponder.provide(seeds.get(0), ISimpleEntity.class, IRemoteEntity.class).getClass());
+		assertEquals(2, resolutions.get());
+		transponder.define(ISimpleEntity.class);
+		transponder.provide(seeds.get(0), ISimpleEntity.class);
+		assertEquals(3, resolutions.get());
+	}
+
+	@Test
+	public void testInstantiators() {
+		Transponder transponder = new Transponder(new TestDriver());
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		assertSame(dao, transponder.dao(ITestDAO.class));
+		assertSame(transponder, Transponder.getTransponder(dao));
+		assertNotSame(transponder.dao(ClassTestDAO.class), transponder.dao(ClassTestDAO.class));
+		assertNotSame(dao, new Transponder(new TestDriver()).dao(ITestDAO.class));
+		transponder.setPolyglot(new DefaultPolyglot());
+		assertNotSame(dao, transponder.dao(ITestDAO.class));
+
+		Class<?> proxyClass = transponder.provide(new HashMap<>(), ISimpleEntity.class).getClass();
+		ClassValue<Function<Object, Object>> wrappers = Instantiators.forConstructor(Map.class);
+		assertSame(wrappers.get(proxyClass), wrappers.get(proxyClass));
+		Map<String, Object> seed = new HashMap<>();
+		seed.put("name", "Wrapped");
+		Object wrapped = wrappers.get(proxyClass).apply(seed);
+		assertSame(proxyClass, wrapped.getClass());
+		assertEquals(seed, wrapped);
+		assertThrows(IllegalArgumentException.class, () -> Instantiators.forConstructor(Thread.State.class).get(proxyClass));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testLazyWrapping() {
+		final AtomicInteger wrapped = new AtomicInteger();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public <T> T wrapEntityInstance(Class<T> proxyClass, Object obj) {
+				wrapped.incrementAndGet();
+				return super.wrapEntityInstance(proxyClass, obj);
+			}
+		});
+		List<Map<String, Object>> seeds = new ArrayList<>();
+		Map<String, Map<String, Object>> seedsMap = new HashMap<>();
+		for(int i=0; i<100; i++) {
+			Map<String, Object> seed = new HashMap<>();
+			seed.put("name", "Name"+i);
+			seeds.add(seed);
+			seedsMap.put("key"+i, seed);
+		}
+		List<ISimpleEntity> list = transponder.wrap(seeds, new TypeToken<List<ISimpleEntity>>() {}.getType());
+		assertEquals(100, list.size());
+		assertEquals(0, wrapped.get());
+		assertEquals("Name5", list.get(5).getName());
+		assertSame(list.get(5), list.get(5));
+		assertEquals(1, wrapped.get());
+		//Not detached view reflects changes of the seeds
+		Map<String, Object> replacement = new HashMap<>();
+		replacement.put("name", "Replaced5");
+		seeds.set(5, replacement);
+		assertEquals("Replaced5", list.get(5).getName());
+		list.remove(0);
+		assertEquals(99, list.size());
+		assertEquals(100, seeds.size());
+		assertEquals("Name1", list.get(0).getName());
+
+		Set<ISimpleEntity> set = transponder.wrap(new LinkedHashSet<>(seeds), new TypeToken<Set<ISimpleEntity>>() {}.getType());
+		wrapped.set(0);
+		assertEquals(100, set.size());
+		assertEquals("Name0", set.iterator().next().getName());
+		assertSame(set.iterator().next(), set.iterator().next());
+		assertEquals(1, wrapped.get());
+
+		//Map is a seed itself for TestDriver, so view is created directly
+		Map<String, ISimpleEntity> map = (Map<String, ISimpleEntity>) WrappingCollections.wrap(seedsMap,
+															seed -> transponder.provide(seed, ISimpleEntity.class));
+		wrapped.set(0);
+		assertEquals(100, map.size());
+		assertTrue(map.containsKey("key7"));
+		assertEquals("Name7", map.get("key7").getName());
+		assertSame(map.get("key7"), map.get("key7"));
+		assertEquals(1, wrapped.get());
+		map.remove("key7");
+		assertEquals(99, map.size());
+		assertEquals(100, seedsMap.size());
+		
+		//Live view over seeds without positional access is iterated through iterator of the seeds
+		AtomicInteger iterations = new AtomicInteger();
+		Collection<Map<String, Object>> links = new ArrayDeque<Map<String, Object>>(seeds) {
+			@Override
+			public Iterator<Map<String, Object>> iterator() {
+				iterations.incrementAndGet();
+				return super.iterator();
+			}
+		};
+		List<ISimpleEntity> live = (List<ISimpleEntity>) WrappingCollections.live(links,
+													seed -> transponder.provide(seed, ISimpleEntity.class), List.class);
+		assertFalse(live instanceof RandomAccess);
+		assertTrue(list instanceof RandomAccess);
+		assertEquals(100, live.stream().count());
+		assertTrue(live.contains(live.get(99)));
+		assertTrue(iterations.get()<5);
+		Iterator<ISimpleEntity> it = live.iterator();
+		it.next();
+		it.remove();
+		assertEquals(99, links.size());
+		
+		//Removal through iterator detaches view which is not live
+		List<ISimpleEntity> copy = transponder.wrap(seeds, new TypeToken<List<ISimpleEntity>>() {}.getType());
+		ISimpleEntity second = copy.get(1);
+		it = copy.iterator();
+		it.next();
+		it.remove();
+		assertSame(second, it.next());
+		it.remove();
+		assertEquals(98, copy.size());
+		assertEquals(100, seeds.size());
+		assertEquals("Name2", copy.get(0).getName());
+	}
+
+	@Test
+	public void testUnitOfWork() {
+		final List<Object> committed = new ArrayList<>();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public Object getSeedId(Object seed) {
+				return ((Map<?, ?>) seed).get("pk");
+			}
+
+			@Override
+			public void commitUnitOfWork(Collection<?> wrappers) {
+				committed.addAll(wrappers);
+				super.commitUnitOfWork(wrappers);
+			}
+		});
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		Map<String, Object> seed = CommonUtils.toMap("pk", "uow1", "name", "UnitOfWork");
+		try(UnitOfWork uow = transponder.unitOfWork()) {
+			ISimpleEntity entity = transponder.provide(seed, ISimpleEntity.class);
+			assertSame(entity, transponder.provide(seed, ISimpleEntity.class));
+			assertSame(entity, transponder.provideAll(Arrays.asList(seed), ISimpleEntity.class).get(0));
+			try(UnitOfWork nested = transponder.unitOfWork()) {
+				assertSame(uow, nested);
+				Transponder.save(entity);
+			}
+			assertSame(uow, transponder.getUnitOfWork());
+			Transponder.saveAll(Arrays.asList(entity));
+			assertEquals(1, uow.getQueuedCount());
+			assertTrue(committed.isEmpty());
+			assertNull(dao.lookupByPk("uow1"));
+		}
+		assertNull(transponder.getUnitOfWork());
+		assertEquals(1, committed.size());
+		assertEquals("UnitOfWork", dao.lookupByPk("uow1").getName());
+		assertNotSame(transponder.provide(seed, ISimpleEntity.class), transponder.provide(seed, ISimpleEntity.class));
+	}
+
+	@Test
+	public void testLazyReferences() {
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public <T> T wrapLazyEntityInstance(Class<T> proxyClass, Object reference) {
+				return wrapEntityInstance(proxyClass, reference);
+			}
+			
+			@Override
+			public Class<?> getReferenceMainClass(Object reference) {
+				return "sub".equals(((Map<?, ?>) reference).get("pk")) ? ISubSimpleEntity.class : null;
+			}
+		});
+		Map<String, Object> subReference = CommonUtils.toMap("pk", "sub");
+		Map<String, Object> otherReference = CommonUtils.toMap("pk", "other");
+		assertTrue(transponder.provideLazy(subReference, ISimpleEntity.class) instanceof ISubSimpleEntity);
+		assertFalse(transponder.provideLazy(otherReference, ISimpleEntity.class) instanceof ISubSimpleEntity);
+		assertNotSame(transponder.provideLazy(otherReference, ISimpleEntity.class),
+					  transponder.provideLazy(otherReference, ISimpleEntity.class));
+		try(UnitOfWork uow = transponder.unitOfWork()) {
+			ISimpleEntity loaded = transponder.provide(CommonUtils.toMap("pk", "sub", "name", "Sub"), ISubSimpleEntity.class);
+			assertSame(loaded, transponder.provideLazy(subReference, ISimpleEntity.class));
+			ISimpleEntity other = transponder.provideLazy(otherReference, ISimpleEntity.class);
+			assertSame(other, transponder.provideLazy(otherReference, ISimpleEntity.class));
+			assertSame(other, transponder.provide(CommonUtils.toMap("pk", "other"), ISimpleEntity.class));
+		}
+	}
+	
+	@EntityType("SubSimple")
+	public static interface ISubSimpleEntity extends ISimpleEntity {
+		
+	}
+
+	@Test
+	public void testUnitOfWorkRollback() {
+		final List<Object> committed = new ArrayList<>();
+		final AtomicInteger rollbacks = new AtomicInteger();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public void commitUnitOfWork(Collection<?> wrappers) {
+				committed.addAll(wrappers);
+				super.commitUnitOfWork(wrappers);
+			}
+			
+			@Override
+			public void rollbackUnitOfWork() {
+				rollbacks.incrementAndGet();
+			}
+		});
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		assertThrows(IllegalStateException.class, () -> transponder.inUnitOfWork(uow -> {
+			Transponder.save(transponder.create(ISimpleEntity.class).setPk("rollback1").setName("Failed"));
+			try(UnitOfWork nested = transponder.unitOfWork()) {
+				throw new IllegalStateException("Failure within unit of work");
+			}
+		}));
+		assertNull(transponder.getUnitOfWork());
+		assertTrue(committed.isEmpty());
+		assertEquals(1, rollbacks.get());
+		assertNull(dao.lookupByPk("rollback1"));
+		
+		try(UnitOfWork uow = transponder.unitOfWork()) {
+			ISimpleEntity entity = transponder.create(ISimpleEntity.class).setPk("rollback2").setName("RolledBack");
+			Transponder.save(entity);
+			try(UnitOfWork nested = transponder.unitOfWork()) {
+				nested.rollback();
+			}
+			assertTrue(uow.isRolledBack());
+			assertEquals(0, uow.getQueuedCount());
+			assertThrows(IllegalStateException.class, () -> Transponder.save(entity));
+			assertThrows(IllegalStateException.class, uow::flush);
+		}
+		assertTrue(committed.isEmpty());
+		assertEquals(2, rollbacks.get());
+		assertNull(dao.lookupByPk("rollback2"));
+		
+		assertEquals("Committed", transponder.inUnitOfWork(uow -> {
+			ISimpleEntity entity = transponder.create(ISimpleEntity.class).setPk("rollback3").setName("Committed");
+			Transponder.save(entity);
+			return entity.getName();
+		}));
+		assertEquals(1, committed.size());
+		assertEquals("Committed", dao.lookupByPk("rollback3").getName());
+	}
+
+	@Test
+	public void testFetch() {
+		final List<Object[]> prefetched = new ArrayList<>();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public void prefetch(Collection<?> seeds, Class<?> mainClass, String... paths) {
+				prefetched.add(new Object[] {seeds.size(), mainClass, paths});
+			}
+		});
+		FetchDAO dao = transponder.dao(FetchDAO.class);
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Fetch").setPk("fetch1"));
+		assertEquals(1, transponder.dao(ITestDAO.class).getAll().size());
+		assertTrue(prefetched.isEmpty());
+		
+		assertEquals(1, dao.getAllLinked().size());
+		assertEquals(1, prefetched.size());
+		assertEquals(1, prefetched.get(0)[0]);
+		assertEquals(ILinkedEntity.class, prefetched.get(0)[1]);
+		assertArrayEquals(new String[] {"parent", "links.parent"}, (String[]) prefetched.get(0)[2]);
+		
+		assertNull(dao.lookupLinkedByPk("absent"));
+		assertEquals(1, prefetched.size());
+		assertNotNull(dao.lookupLinkedByPk("fetch1"));
+		assertEquals(2, prefetched.size());
+		assertEquals(ILinkedEntity.class, prefetched.get(1)[1]);
+		assertArrayEquals(new String[] {"parent"}, (String[]) prefetched.get(1)[2]);
+		
+		assertEquals(ILinkedEntity.class, CommonUtils.resolveReferencedClass(ILinkedEntity.class, "parent"));
+		assertEquals(ILinkedEntity.class, CommonUtils.resolveReferencedClass(ILinkedEntity.class, "links"));
+		assertNull(CommonUtils.resolveReferencedClass(ILinkedEntity.class, "absent"));
+	}
+
+	@Test
+	public void testPageSizeLimits() {
+		ITestDAO dao = new Transponder(new TestDriver()).dao(ITestDAO.class);
+		assertThrows(IllegalArgumentException.class, () -> dao.getAllPaged(0, 0));
+		assertThrows(IllegalArgumentException.class, () -> dao.getAllPaged(Integer.MAX_VALUE, 0));
+		assertThrows(IllegalArgumentException.class, () -> dao.getAllSliced(Integer.MAX_VALUE, null));
+		assertThrows(IllegalArgumentException.class, () -> dao.getAllPaged(2, -1));
+		assertTrue(dao.getAllPaged(Integer.MAX_VALUE-1, Integer.MAX_VALUE).isEmpty());
+	}
+	
+	@Test
+	public void testIndexOfTopLevelKeyword() {
+		assertEquals(19, CommonUtils.indexOfTopLevelKeyword("select from Simple where name = 'a'", "where"));
+		assertEquals(19, CommonUtils.indexOfTopLevelKeyword("select from Simple WHERE name = 'a'", "where"));
+		assertEquals(-1, CommonUtils.indexOfTopLevelKeyword("select from (select from Simple where a = 1)", "where"));
+		assertEquals(-1, CommonUtils.indexOfTopLevelKeyword("select from Simple let $x = 'where'", "where"));
+		assertEquals(-1, CommonUtils.indexOfTopLevelKeyword("select nowhere, whereabouts from Simple", "where"));
+		assertEquals(-1, CommonUtils.indexOfTopLevelKeyword("select from Simple where name = 'it\\'s order'", "order"));
+		assertEquals(26, CommonUtils.indexOfTopLevelKeyword("match (n:Simple) return n ORDER BY n.name", "order"));
+	}
+
+	public static interface FetchDAO {
+		@Fetch({"parent", "links.parent"})
+		@Query(value=".*", dialect = "test")
+		public List<ILinkedEntity> getAllLinked();
+		
+		@Fetch("parent")
+		@Lookup(id="byPk")
+		public ILinkedEntity lookupLinkedByPk(String pk);
+	}
+	
+	@Test
+	public void testProjectionMapping() {
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public List<Map<String, Object>> queryProjected(String language, String query, Map<String, Object> params,
+					Type type, String... properties) {
+				assertArrayEquals(new String[] {"name", "count", "ratio"}, properties);
+				List<Map<String, Object>> ret = new ArrayList<>();
+				ret.add(CommonUtils.toMap("name", "A", "count", 2L, "ratio", 0.5d));
+				ret.add(CommonUtils.toMap("name", "B", "count", null));
+				return ret;
+			}
+		});
+		StatisticsDAO dao = transponder.dao(StatisticsDAO.class);
+		List<Statistics> stats = dao.getStatistics();
+		assertEquals(2, stats.size());
+		assertEquals("A", stats.get(0).name);
+		assertEquals(2, stats.get(0).count);
+		assertEquals(0.5d, stats.get(0).ratio);
+		assertEquals("B", stats.get(1).name);
+		assertEquals(0, stats.get(1).count);
+		assertNull(stats.get(1).ratio);
+		assertEquals("A", dao.getSingleStatistics().name);
+		assertThrows(IllegalArgumentException.class, () -> ProjectionMapper.of(AbstractStatistics.class));
+	}
+	
+	@Projection
+	public static class Statistics {
+		private final String name;
+		private final int count;
+		private final Double ratio;
+		
+		public Statistics(String name, int count, Double ratio) {
+			this.name = name;
+			this.count = count;
+			this.ratio = ratio;
+		}
+	}
+	
+	@Projection
+	public abstract static class AbstractStatistics {
+		
+	}
+	
+	public static interface StatisticsDAO {
+		@Query(value=".*", dialect = "test")
+		public List<Statistics> getStatistics();
+		
+		@Query(value=".*", dialect = "test")
+		public Statistics getSingleStatistics();
+	}
+	
+	@Test
+	public void testCached() throws Exception {
+		final AtomicInteger queries = new AtomicInteger();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
+				queries.incrementAndGet();
+				return super.query(language, query, params, type);
+			}
+		});
+		CachedDAO dao = transponder.dao(CachedDAO.class);
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Cached1").setPk("Cached1"));
+		assertEquals(1, dao.findByPrefix("Cached", 1).size());
+		assertEquals(1, queries.get());
+		List<ISimpleProjection> found = dao.findByPrefix("Cached", 2);
+		assertEquals(1, found.size());
+		assertEquals("Cached1", found.get(0).getName());
+		assertEquals(1, queries.get());
+		found.clear();
+		assertEquals(1, dao.findByPrefix("Cached", 1).size());
+		
+		QueryCache cache = transponder.getQueryCache();
+		CacheStats stats = cache.getStats(CachedDAO.class.getMethod("findByPrefix", String.class, int.class));
+		assertEquals(2, stats.hitCount());
+		assertEquals(1, stats.missCount());
+		
+		//Saving of an entity of the same type should invalidate cache
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Cached2").setPk("Cached2"));
+		assertEquals(2, dao.findByPrefix("Cached", 1).size());
+		assertEquals(2, queries.get());
+		assertTrue(dao.findByPrefix("Absent", 1).isEmpty());
+		assertTrue(dao.findByPrefix("Other", 1).isEmpty());
+		assertEquals(4, queries.get());
+		assertEquals(1, cache.getStats().evictionCount());
+		
+		//Saving of an entity of another type should not invalidate cache
+		Transponder.save(transponder.create(ILinkedEntity.class).setName("Linked"));
+		assertTrue(dao.findByPrefix("Other", 1).isEmpty());
+		assertEquals(4, queries.get());
+		try(UnitOfWork uow = transponder.unitOfWork()) {
+			Transponder.save(transponder.create(ISimpleEntity.class).setName("Other").setPk("Other"));
+			assertTrue(dao.findByPrefix("Other", 1).isEmpty());
+			assertEquals(4, queries.get());
+		}
+		assertEquals(1, dao.findByPrefix("Other", 1).size());
+		assertEquals(5, queries.get());
+		
+		assertNull(dao.getAbsent());
+		assertNull(dao.getAbsent());
+		assertEquals(6, queries.get());
+		cache.invalidateAll();
+		assertNull(dao.getAbsent());
+		assertEquals(7, queries.get());
+		
+		assertEquals(1, dao.getShortLived().size());
+		assertEquals(1, dao.getShortLived().size());
+		assertEquals(8, queries.get());
+		Thread.sleep(100);
+		assertEquals(1, dao.getShortLived().size());
+		assertEquals(9, queries.get());
+		
+		//Commands invalidate all caches
+		assertEquals(1, dao.countByPrefix("Cached1"));
+		assertEquals(10, queries.get());
+		dao.removeByPk("Cached1");
+		assertEquals(0, dao.countByPrefix("Cached1"));
+		assertEquals(11, queries.get());
+		
+		//Entities are bound to a session, so they can't be cached
+		assertThrows(IllegalArgumentException.class, () -> transponder.dao(CachedEntitiesDAO.class));
+		assertThrows(IllegalArgumentException.class, () -> transponder.create(CachedLookupEntity.class));
+	}
+	
+	@Test
+	public void testCachedForEntities() {
+		final AtomicInteger queries = new AtomicInteger();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
+				queries.incrementAndGet();
+				//Results depend on the entity which method is invoked
+				Map<?, ?> target = (Map<?, ?>) params.get("target");
+				return super.query(language, target.get("prefix")+query, params, type);
+			}
+		});
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Cached1").setPk("Cached1"));
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Cached2").setPk("Cached2"));
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Other").setPk("Other"));
+		CachedEntity entity1 = transponder.create(CachedEntity.class).setPk("entity1").setPrefix("Cached");
+		CachedEntity entity2 = transponder.create(CachedEntity.class).setPk("entity2").setPrefix("Other");
+		Transponder.save(entity1);
+		Transponder.save(entity2);
+		
+		assertEquals(2, entity1.countMatching());
+		assertEquals(1, entity2.countMatching());
+		assertEquals(2, queries.get());
+		assertEquals(2, entity1.countMatching());
+		assertEquals(1, entity2.countMatching());
+		assertEquals(2, queries.get());
+		assertEquals(2, transponder.provide(Transponder.unwrap(entity1), CachedEntity.class).countMatching());
+		assertEquals(2, queries.get());
+	}
+	
+	public static interface CachedDAO {
+		@Cached(maxSize = 2, key = "prefix")
+		@Query(value="${prefix}.*", dialect = "test")
+		public List<ISimpleProjection> findByPrefix(String prefix, int ignored);
+		
+		@Cached
+		@Query(value="absent", dialect = "test")
+		public ISimpleProjection getAbsent();
+		
+		@Cached(ttl = 50, timeUnit = TimeUnit.MILLISECONDS)
+		@Query(value="Cached1", dialect = "test")
+		public List<ISimpleProjection> getShortLived();
+		
+		@Cached
+		@Count
+		@Query(value="${prefix}.*", dialect = "test")
+		public long countByPrefix(String prefix);
+		
+		@org.orienteer.transponder.annotation.Command(value="${pk}", dialect = "test")
+		public void removeByPk(String pk);
+	}
+	
+	public static interface CachedEntitiesDAO {
+		@Cached
+		@Query(value="${prefix}.*", dialect = "test")
+		public List<ISimpleEntity> findByPrefix(String prefix);
+	}
+	
+	@EntityType("CachedLookup")
+	public static interface CachedLookupEntity {
+		@Cached
+		@Lookup(value="${pk}", dialect = "test")
+		public CachedLookupEntity lookupByPk(String pk);
+	}
+	
+	@EntityType("Cached")
+	public static interface CachedEntity {
+		public String getPk();
+		public CachedEntity setPk(String value);
+		
+		public String getPrefix();
+		public CachedEntity setPrefix(String value);
+		
+		@Cached(invalidatedBy = ISimpleEntity.class)
+		@Count
+		@Query(value=".*", dialect = "test")
+		public long countMatching();
+	}
+	
+	@Test
+	public void testCoalesce() throws Throwable {
+		final AtomicInteger queries = new AtomicInteger();
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
+				queries.incrementAndGet();
+				if("fail".equals(params.get("prefix"))) throw new IllegalStateException("Expected failure");
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return super.query(language, query, params, type);
+			}
+		});
+		CoalesceDAO dao = transponder.dao(CoalesceDAO.class);
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Coalesce1").setPk("Coalesce1"));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<ISimpleProjection>>> futures = new ArrayList<>();
+			futures.add(executor.submit(() -> dao.findByPrefix("Coalesce")));
+			entered.await();
+			List<Thread> followers = new CopyOnWriteArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				futures.add(executor.submit(() -> {
+					followers.add(Thread.currentThread());
+					return dao.findByPrefix("Coalesce");
+				}));
+			}
+			assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				while(followers.size()<3 || followers.stream().anyMatch(t -> t.getState()!=Thread.State.WAITING)) {
+					Thread.sleep(10);
+				}
+			});
+			assertEquals(1, transponder.getRequestCoalescer().getInFlightCount());
+			release.countDown();
+			Set<Object> results = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (Future<List<ISimpleProjection>> future : futures) {
+				List<ISimpleProjection> result = future.get(10, TimeUnit.SECONDS);
+				assertEquals(1, result.size());
+				assertEquals("Coalesce1", result.get(0).getName());
+				results.add(result);
+			}
+			assertEquals(4, results.size());
+			assertEquals(1, queries.get());
+			assertEquals(0, transponder.getRequestCoalescer().getInFlightCount());
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThrows(IllegalStateException.class, () -> dao.findByPrefix("fail"));
+		assertEquals(0, transponder.getRequestCoalescer().getInFlightCount());
+		assertEquals(1, dao.findByPrefix("Coalesce").size());
+		assertEquals(3, queries.get());
+		
+		//Entities are bound to a session or transaction, so they can't be shared between threads
+		assertThrows(IllegalArgumentException.class, () -> transponder.dao(CoalesceEntitiesDAO.class));
+		
+		//Invocations on different receivers are not coalesced
+		RequestCoalescer coalescer = transponder.getRequestCoalescer();
+		Method method = CoalesceDAO.class.getMethod("findByPrefix", String.class);
+		ISimpleEntity entity1 = transponder.provide(CommonUtils.toMap("pk", "receiver1"), ISimpleEntity.class);
+		ISimpleEntity entity2 = transponder.provide(CommonUtils.toMap("pk", "receiver2"), ISimpleEntity.class);
+		Object joined1 = coalescer.join(entity1, method, new Object[] {"Coalesce"});
+		Object joined2 = coalescer.join(entity2, method, new Object[] {"Coalesce"});
+		assertFalse(joined2 instanceof RequestCoalescer.Shared);
+		assertEquals(2, coalescer.getInFlightCount());
+		coalescer.leave(method, joined1, null, null);
+		coalescer.leave(method, joined2, null, null);
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+	
+	public static interface CoalesceDAO {
+		@Coalesce
+		@Query(value="${prefix}.*", dialect = "test")
+		public List<ISimpleProjection> findByPrefix(String prefix);
+	}
+	
+	public static interface CoalesceEntitiesDAO {
+		@Coalesce
+		@Query(value="${prefix}.*", dialect = "test")
+		public List<ISimpleEntity> findByPrefix(String prefix);
+	}
+	
+	@Test
+	public void testAsync() throws Exception {
+		final ThreadLocal<String> context = new ThreadLocal<>();
+		final List<String> contexts = new CopyOnWriteArrayList<>();
+		final CountDownLatch release = new CountDownLatch(1);
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
+				contexts.add(context.get());
+				if("block".equals(params.get("prefix"))) {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return super.query(language, query, params, type);
+			}
+			
+			@Override
+			public <T> Supplier<T> propagateContext(Supplier<T> task) {
+				String captured = context.get();
+				return () -> {
+					context.set(captured);
+					try {
+						return task.get();
+					} finally {
+						context.remove();
+					}
+				};
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			assertNotNull(transponder.getExecutor());
+			transponder.setExecutor(executor);
+			assertSame(executor, transponder.getExecutor());
+			AsyncDAO dao = transponder.dao(AsyncDAO.class);
+			Transponder.save(transponder.create(ISimpleEntity.class).setName("Async1").setPk("Async1"));
+			context.set("caller");
+			CompletableFuture<List<ISimpleEntity>> future = dao.findByPrefix("Async");
+			List<ISimpleEntity> found = future.get(10, TimeUnit.SECONDS);
+			assertEquals(1, found.size());
+			assertEquals("Async1", found.get(0).getName());
+			assertEquals(Arrays.asList("caller"), contexts);
+			assertEquals("Async1", dao.findFirstByPrefix("Async").toCompletableFuture().get(10, TimeUnit.SECONDS).getName());
+			assertNull(dao.findFirstByPrefix("Absent").toCompletableFuture().get(10, TimeUnit.SECONDS));
+			
+			//Only one invocation is allowed at a time: next one should wait
+			transponder.setMaxConcurrency(1);
+			CompletableFuture<List<ISimpleEntity>> blocked = dao.findByPrefix("block");
+			Future<CompletableFuture<List<ISimpleEntity>>> waiting = caller.submit(() -> dao.findByPrefix("Async"));
+			assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+			release.countDown();
+			assertTrue(blocked.get(10, TimeUnit.SECONDS).isEmpty());
+			assertEquals(1, waiting.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS).size());
+		} finally {
+			context.remove();
+			executor.shutdownNow();
+			caller.shutdownNow();
+		}
+		assertThrows(IllegalArgumentException.class, () -> InvocationPlan.of(InvocationPlan.Kind.QUERY,
+							AsyncDAO.class.getMethod("streamAll"), new Translation("test", ".*"), false));
+	}
+	
+	@Test
+	public void testAsyncRejection() throws Exception {
+		final AtomicInteger closed = new AtomicInteger();
+		class ContextualTask<T> implements Supplier<T>, AutoCloseable {
+			private final Supplier<T> task;
+			
+			ContextualTask(Supplier<T> task) {
+				this.task = task;
+			}
+			
+			@Override
+			public T get() {
+				return task.get();
+			}
+			
+			@Override
+			public void close() {
+				closed.incrementAndGet();
+			}
+		}
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public <T> Supplier<T> propagateContext(Supplier<T> task) {
+				return new ContextualTask<>(task);
+			}
+		});
+		transponder.setExecutor(r -> {
+			throw new RejectedExecutionException("Rejected");
+		});
+		transponder.setMaxConcurrency(1);
+		AsyncDAO dao = transponder.dao(AsyncDAO.class);
+		assertThrows(RejectedExecutionException.class, () -> dao.findByPrefix("Async"));
+		assertEquals(1, closed.get());
+		//Permit should be released as well
+		assertThrows(RejectedExecutionException.class, () -> dao.findByPrefix("Async"));
+		assertEquals(2, closed.get());
+	}
+	
+	public static interface AsyncDAO {
+		@Query(value="${prefix}.*", dialect = "test")
+		public CompletableFuture<List<ISimpleEntity>> findByPrefix(String prefix);
+		
+		@Query(value="${prefix}.*", dialect = "test")
+		public CompletionStage<ISimpleEntity> findFirstByPrefix(String prefix);
+		
+		public CompletableFuture<Stream<ISimpleEntity>> streamAll();
+	}
+	
+	@Test
+	public void testCountAndExists() throws Exception {
+		final List<String> calls = new ArrayList<>();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
+				calls.add("query");
+				return super.query(language, query, params, type);
+			}
+			
+			@Override
+			public long queryCount(String language, String query, Map<String, Object> params, Type type) {
+				calls.add("count");
+				return super.queryCount(language, query, params, type);
+			}
+			
+			@Override
+			public boolean queryExists(String language, String query, Map<String, Object> params, Type type) {
+				calls.add("exists");
+				return super.queryExists(language, query, params, type);
+			}
+		});
+		CountDAO dao = transponder.dao(CountDAO.class);
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Count1").setPk("Count1"));
+		Transponder.save(transponder.create(ISimpleEntity.class).setName("Count2").setPk("Count2"));
+		
+		assertEquals(2, dao.countByPrefix("Count"));
+		assertEquals("count", calls.get(0));
+		assertEquals(0, dao.countIntByPrefix("Absent"));
+		assertEquals(1, dao.countIntByPrefix("Count1"));
+		assertEquals(Long.valueOf(2), dao.countNumberByPrefix("Count"));
+		calls.clear();
+		assertTrue(dao.existsByPrefix("Count"));
+		assertEquals("exists", calls.get(0));
+		assertFalse(dao.existsByPrefix("Absent"));
+		assertEquals(Boolean.TRUE, dao.checkByPrefix("Count2"));
+		assertEquals(Boolean.FALSE, dao.checkByPrefix("Absent"));
+		calls.clear();
+		//Boolean lookups still check that result is a seed: so they are not replaced by existence checks
+		assertTrue(dao.lookupExists("Count1"));
+		assertFalse(dao.lookupExists("Absent"));
+		assertFalse(calls.contains("exists"));
+		assertEquals(2L, dao.countByPrefixAsync("Count").get(10, TimeUnit.SECONDS));
+		//Boolean queries without @Exists are not replaced by existence checks
+		assertEquals(InvocationPlan.ResultStrategy.SINGLE, InvocationPlan.of(InvocationPlan.Kind.QUERY,
+				CountDAO.class.getMethod("computeByPrefix", String.class), new Translation("test", ".*"), false).getResultStrategy());
+		
+		assertThrows(IllegalArgumentException.class, () -> InvocationPlan.of(InvocationPlan.Kind.QUERY,
+				WrongCountDAO.class.getMethod("countAsString"), new Translation("test", ".*"), false));
+		assertThrows(IllegalArgumentException.class, () -> InvocationPlan.of(InvocationPlan.Kind.QUERY,
+				WrongCountDAO.class.getMethod("existsAsString"), new Translation("test", ".*"), false));
+	}
+	
+	public static interface CountDAO {
+		@Count
+		@Query(value="${prefix}.*", dialect = "test")
+		public long countByPrefix(String prefix);
+		
+		@Count
+		@Query(value="${prefix}.*", dialect = "test")
+		public int countIntByPrefix(String prefix);
+		
+		@Count
+		@Query(value="${prefix}.*", dialect = "test")
+		public Number countNumberByPrefix(String prefix);
+		
+		@Count
+		@Query(value="${prefix}.*", dialect = "test")
+		public CompletableFuture<Long> countByPrefixAsync(String prefix);
+		
+		@Exists
+		@Query(value="${prefix}.*", dialect = "test")
+		public boolean existsByPrefix(String prefix);
+		
+		@Query(value="${prefix}.*", dialect = "test")
+		public boolean computeByPrefix(String prefix);
+		
+		@Exists(ISimpleEntity.class)
+		@Query(value="${prefix}.*", dialect = "test")
+		public Boolean checkByPrefix(String prefix);
+		
+		@Lookup(value="${pk}", dialect = "test")
+		public boolean lookupExists(String pk);
+	}
+	
+	public static interface WrongCountDAO {
+		@Count
+		@Query(value=".*", dialect = "test")
+		public String countAsString();
+		
+		@Exists
+		@Query(value=".*", dialect = "test")
+		public String existsAsString();
+	}
+	
+	@Test
+	public void testSize() {
+		TestDriver driver = new TestDriver();
+		Transponder transponder = new Transponder(driver);
+		transponder.define(SizedEntity.class);
+		assertTrue(driver.hasProperty("Sized", "tags"));
+		assertFalse(driver.hasProperty("Sized", "tagsCount"));
+		assertFalse(driver.hasProperty("Sized", "numberOfTags"));
+		assertTrue(driver.hasProperty("Sized", "itemsCount"));
+		assertTrue(driver.hasProperty("Sized", "labelsCount"));
+		
+		SizedEntity entity = transponder.create(SizedEntity.class);
+		assertEquals(0, entity.getTagsCount());
+		assertEquals(Long.valueOf(0), entity.getNumberOfTags());
+		entity.setTags(Arrays.asList("a", "b", "c"));
+		assertEquals(3, entity.getTagsCount());
+		assertEquals(Long.valueOf(3), entity.getNumberOfTags());
+		
+		//Count which has setter is a separate property
+		entity.setItems(Arrays.asList("a"));
+		entity.setItemsCount(5);
+		assertEquals(5, entity.getItemsCount());
+		
+		//Count without @Size is a regular property even if there is no setter
+		entity.setLabels(Arrays.asList("a", "b"));
+		assertEquals(0, entity.getLabelsCount());
+		
+		assertThrows(IllegalStateException.class, () -> transponder.create(WrongSizedEntity.class));
+	}
+	
+	public static interface SizedBase {
+		@Size("tags")
+		public int getTagsCount();
+	}
+	
+	@EntityType("Sized")
+	public static interface SizedEntity extends SizedBase {
+		public List<String> getTags();
+		public SizedEntity setTags(List<String> value);
+		
+		@Size("tags")
+		public Long getNumberOfTags();
+		
+		public List<String> getLabels();
+		public SizedEntity setLabels(List<String> value);
+		
+		public int getLabelsCount();
+		
+		public List<String> getItems();
+		public SizedEntity setItems(List<String> value);
+		
+		public int getItemsCount();
+		public SizedEntity setItemsCount(int value);
+	}
+	
+	@EntityType("WrongSized")
+	public static interface WrongSizedEntity {
+		@Size("absent")
+		public int getAbsentSize();
+	}
+	
+	@Test
+	public void testInvocationPlans() throws Exception {
+		final List<Map<String, Object>> captured = new ArrayList<>();
+		Transponder transponder = new Transponder(new TestDriver() {
+			@Override
+			public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
+				captured.add(params);
+				return super.query(language, query, params, type);
+			}
+			
+			@Override
+			public Object command(String language, String command, Map<String, Object> params, Type type) {
+				captured.add(params);
+				return super.command(language, command, params, type);
+			}
+		});
+		InvocationSampleDAO dao = transponder.dao(InvocationSampleDAO.class);
+		ISimpleEntity entity = transponder.create(ISimpleEntity.class);
+		entity.setName("Sample");
+		transponder.save(entity);
+		
+		assertEquals(1, dao.findByName("Sample", 10).size());
+		Map<String, Object> params = captured.get(0);
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("name", "Sample");
+		expected.put("arg0", "Sample");
+		expected.put("limit", 10);
+		expected.put("arg1", 10);
+		assertEquals(expected, params);
+		assertEquals(expected, new HashMap<>(params));
+		assertEquals(expected.hashCode(), params.hashCode());
+		params.put("extra", "value");
+		assertEquals("value", params.get("extra"));
+		assertEquals(5, params.size());
+		assertEquals("Sample", params.remove("arg0"));
+		assertFalse(params.containsKey("arg0"));
+		assertEquals(4, params.entrySet().size());
+		params.clear();
+		assertTrue(params.isEmpty());
+		
+		assertSame(dao.findByName("Sample", 1).get(0).getClass(), entity.getClass());
+		assertEquals("Sample", dao.lookupByName("Sample").getName());
+		assertTrue(dao.existsByName("Sample"));
+		assertFalse(dao.existsByName("Missing"));
+		dao.removeByName("Sample");
+		assertFalse(dao.existsByName("Sample"));
+		assertTrue(dao.findByName("Sample", 10).isEmpty());
+	}
+	
+	public static interface InvocationSampleDAO {
+		@org.orienteer.transponder.annotation.Query("${name}")
+		public List<ISimpleEntity> findByName(String name, int limit);
+		@Lookup("${name}")
+		public ISimpleEntity lookupByName(String name);
+		@Lookup("${name}")
+		public boolean existsByName(String name);
+		@org.orienteer.transponder.annotation.Command("${name}")
+		public void removeByName(String name);
+	}
+	
 	@Test
 	public void testProperOrder() {
 		TestDriver driver = new TestDriver();
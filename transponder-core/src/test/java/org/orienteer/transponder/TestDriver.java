@@ -213,11 +213,21 @@ public class TestDriver implements ITestDriver {
 		return object.getClass();
 	}
 	
+	@Override
+	public Object getEntitySchemaKey(Object seed) {
+		return seed.getClass();
+	}
+	
 	@Override
 	public boolean isSeedClass(Class<?> seedClass) {
 		return Map.class.isAssignableFrom(seedClass);
 	}
 	
+	@Override
+	public Object getSeedId(Object seed) {
+		return seed instanceof Map ? ((Map<?, ?>) seed).get("pk") : null;
+	}
+	
 	@Override
 	public Map<String, Object> toSeed(Object wrapped) {
 		return new HashMap<>((Map<String, Object>)wrapped);
@@ -0,0 +1,29 @@
+package org.orienteer.transponder.datamodel;
+
+import java.util.List;
+
+import org.orienteer.transponder.annotation.EntityProperty;
+import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.annotation.LiveCollection;
+import org.orienteer.transponder.annotation.Size;
+
+@EntityType("Linked")
+public interface ILinkedEntity {
+
+	public String getName();
+	public ILinkedEntity setName(String value);
+	
+	@LiveCollection
+	public List<ILinkedEntity> getLinks();
+	public void setLinks(List<ILinkedEntity> value);
+	
+	@Size("links")
+	public int getLinksCount();
+	
+	@Size("links")
+	public long getNumberOfLinks();
+	
+	@EntityProperty(lazy = true)
+	public ILinkedEntity getParent();
+	public ILinkedEntity setParent(ILinkedEntity value);
+}
@@ -0,0 +1,15 @@
+package org.orienteer.transponder.datamodel;
+
+import org.orienteer.transponder.annotation.Projection;
+
+@Projection(ISimpleEntity.class)
+public interface ISimpleProjection {
+	
+	public String getPk();
+	
+	public String getName();
+	
+	public default String getTitle() {
+		return getPk()+": "+getName();
+	}
+}
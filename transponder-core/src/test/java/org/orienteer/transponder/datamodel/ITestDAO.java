@@ -1,10 +1,19 @@
 package org.orienteer.transponder.datamodel;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.orienteer.transponder.Page;
+import org.orienteer.transponder.Slice;
+import org.orienteer.transponder.annotation.After;
 import org.orienteer.transponder.annotation.Command;
+import org.orienteer.transponder.annotation.Count;
 import org.orienteer.transponder.annotation.DefaultValue;
+import org.orienteer.transponder.annotation.Exists;
 import org.orienteer.transponder.annotation.Lookup;
+import org.orienteer.transponder.annotation.PageNumber;
+import org.orienteer.transponder.annotation.PageSize;
 import org.orienteer.transponder.annotation.Query;
 
 public interface ITestDAO {
@@ -20,6 +29,35 @@ public interface ITestDAO {
 	@Query(value=".*", dialect = "test")
 	public List<ISimpleEntity> getAll();
 	
+	@Query(value=".*", dialect = "test")
+	public Stream<ISimpleEntity> streamAll();
+	
+	@Query(value=".*", dialect = "test")
+	public Slice<ISimpleEntity> getAllSliced(@PageSize int pageSize, @After Object after);
+	
+	@Query(value=".*", dialect = "test")
+	public Page<ISimpleEntity> getAllPaged(@PageSize int pageSize, @PageNumber int pageNumber);
+	
+	@Count(ISimpleEntity.class)
+	@Query(value=".*", dialect = "test")
+	public long countAll();
+	
+	@Exists(ISimpleEntity.class)
+	@Query(value=".*", dialect = "test")
+	public boolean existsAny();
+	
+	@Query(value=".*", dialect = "test")
+	public List<ISimpleProjection> projectAll();
+	
+	@Query(value=".*", dialect = "test")
+	public List<SimpleProjectionBean> projectAllAsBeans();
+	
+	@Query(value=".*", dialect = "test")
+	public Iterator<ISimpleEntity> iterateAll();
+	
+	@Query(value=".*", dialect = "test")
+	public Iterable<ISimpleEntity> iterableAll();
+	
 	@Lookup(id="byPk")
 	public ISimpleEntity lookupByPk(String pk);
 	
@@ -0,0 +1,19 @@
+package org.orienteer.transponder.datamodel;
+
+import org.orienteer.transponder.annotation.Projection;
+
+@Projection(ISimpleEntity.class)
+public class SimpleProjectionBean {
+	
+	private String pk;
+	
+	public String name;
+	
+	public String getPk() {
+		return pk;
+	}
+	
+	public void setPk(String pk) {
+		this.pk = pk;
+	}
+}
@@ -2,11 +2,17 @@ package org.orienteer.transponder.janusgraph;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversal;
 import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.GraphTraversalSource;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.Element;
@@ -14,8 +20,10 @@ import org.apache.tinkerpop.gremlin.structure.T;
 import org.janusgraph.core.JanusGraph;
 import org.janusgraph.core.VertexLabel;
 import org.janusgraph.core.schema.JanusGraphManagement;
+import org.orienteer.transponder.ICloseableIterator;
 import org.orienteer.transponder.IDriver;
 import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.Instantiators;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
@@ -30,6 +38,10 @@ public class JanusGraphDriver implements IDriver {
 	public static final String TYPE_CUSTOM_TRANSPONDER_WRAPPER = "transponder.wrapper";
 	
 	private static final BiMap<String, Class<?>> TYPE_TO_MAIN_CLASS = HashBiMap.create(); 
+	private static final ClassValue<Function<Object, Object>> WRAPPERS = Instantiators.forConstructor(Vertex.class);
+	private static final Pattern HAS_LABEL_PATTERN = Pattern.compile("hasLabel\\(\\s*['\"]([^'\"]+)['\"]\\s*\\)");
+	private static final Pattern HAS_PATTERN
+			= Pattern.compile("\\.has\\(\\s*['\"]([^'\"]+)['\"]\\s*,\\s*(?:['\"]([^'\"]*)['\"]|(\\w+))\\s*\\)");
 	
 	private final JanusGraph graph;
 	private final GraphTraversalSource g;
@@ -135,11 +147,23 @@ public class JanusGraphDriver implements IDriver {
 		((VertexWrapper)wrapper).set(property, value, type);
 	}
 
+	@Override
+	public Collection<?> getPropertyCollection(Object wrapper, String property, Type type) {
+		Collection<?> ret = ((VertexWrapper)wrapper).getLive(property, type);
+		return ret!=null ? ret : IDriver.super.getPropertyCollection(wrapper, property, type);
+	}
+
+	@Override
+	public long getPropertySize(Object wrapper, String property, Type type) {
+		Long ret = ((VertexWrapper)wrapper).getSize(property, type);
+		return ret!=null ? ret : IDriver.super.getPropertySize(wrapper, property, type);
+	}
+
 	@Override
 	public <T> T newEntityInstance(Class<T> proxyClass, String type) {
 		try {
 			Vertex vertex = graph.addVertex(org.apache.tinkerpop.gremlin.structure.T.label, type);
-			return proxyClass.getConstructor(Vertex.class).newInstance(vertex);
+			return (T) WRAPPERS.get(proxyClass).apply(vertex);
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Can't create new entityInstance for class " + proxyClass + " with VertexLabel " + type, e);
 		}
@@ -163,11 +187,24 @@ public class JanusGraphDriver implements IDriver {
 			throw new RuntimeException("Failed to save entity", e);
 		}
 	}
+	
+	@Override
+	public void saveEntityInstances(Collection<?> wrappers, int batchSize) {
+		// Changes of entities are applied to the thread-bound transaction: commit it on every batch boundary
+		int inBatch = 0;
+		for (Object wrapper : wrappers) {
+			if(++inBatch>=batchSize) {
+				saveEntityInstance(wrapper);
+				inBatch = 0;
+			}
+		}
+		if(inBatch>0) saveEntityInstance(null);
+	}
 
 	@Override
 	public <T> T wrapEntityInstance(Class<T> proxyClass, Object seed) {
 		try {
-			return proxyClass.getConstructor(Vertex.class).newInstance((Vertex)seed);
+			return (T) WRAPPERS.get(proxyClass).apply((Vertex)seed);
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Can't wrap seed by class " + proxyClass + ". Seed: " + seed, e);
 		}
@@ -186,6 +223,21 @@ public class JanusGraphDriver implements IDriver {
 		}
 		return null;
 	}
+	
+	@Override
+	public Object getSeedId(Object seed) {
+		return seed instanceof Element ? ((Element)seed).id() : null;
+	}
+	
+	@Override
+	public void rollbackUnitOfWork() {
+		if(graph.tx().isOpen()) graph.tx().rollback();
+	}
+	
+	@Override
+	public Object getEntitySchemaKey(Object seed) {
+		return seed instanceof Vertex ? ((Vertex)seed).label() : null;
+	}
 
 	@Override
 	public boolean isSeedClass(Class<?> seedClass) {
@@ -200,30 +252,100 @@ public class JanusGraphDriver implements IDriver {
 	@Override
 	public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
 		try {
-			// Simple implementation for basic queries
-			// TODO: Implement full Gremlin query parsing and parameter substitution
-			if (query.contains("select") && query.contains("from")) {
-				// Handle SQL-like queries by converting to Gremlin
-				String entityType = extractEntityTypeFromQuery(query);
-				if (entityType != null) {
-					return g.V().hasLabel(entityType)
-							.toList()
-							.stream()
-							.map(v -> (Object)v)
-							.collect(Collectors.toList());
+			// Simple implementation for basic queries: see toTraversal(...)
+			// TODO: Implement full Gremlin query parsing
+			return new ArrayList<>(toTraversal(query, params).toList());
+		} catch (Exception e) {
+			throw new RuntimeException("Query execution failed: " + query, e);
+		}
+	}
+	
+	@Override
+	public List<Map<String, Object>> queryProjected(String language, String query, Map<String, Object> params,
+			Type type, String... properties) {
+		List<Object> results = query(language, query, params, type);
+		List<Map<String, Object>> ret = new ArrayList<>(results.size());
+		for (Object result : results) {
+			Map<String, Object> row = new HashMap<>();
+			if(result instanceof Element) {
+				//Only required properties are read from the element
+				((Element)result).properties(properties)
+						.forEachRemaining(p -> row.put(p.key(), p.value()));
+			} else if(result instanceof Map) {
+				//Rows produced by valueMap(), project(), etc.
+				Map<?, ?> map = (Map<?, ?>) result;
+				for (String property : properties) {
+					row.put(property, map.get(property));
 				}
 			}
-			
-			// Fallback: return all vertices
-			return g.V().toList()
-					.stream()
-					.map(v -> (Object)v)
-					.collect(Collectors.toList());
+			ret.add(row);
+		}
+		return ret;
+	}
+	
+	@Override
+	public ICloseableIterator<Object> queryStream(String language, String query, Map<String, Object> params, Type type) {
+		// Same simplified translation as for query(...), but vertices are read from traversal lazily
+		GraphTraversal<Vertex, Vertex> traversal = toTraversal(query, params);
+		return ICloseableIterator.of(traversal, traversal);
+	}
+	
+	@Override
+	public List<Object> queryPage(String language, String query, Map<String, Object> params, Type type,
+								  long offset, int limit) {
+		// Same simplified translation as for queryCount(...), but only the page is read from traversal
+		return new ArrayList<>(toTraversal(query, params).range(offset, offset + limit).toList());
+	}
+	
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public List<Object> querySlice(String language, String query, Map<String, Object> params, Type type,
+								   Object after, int limit) {
+		// Keyset is applied to ids of vertices: so pages are ordered by id
+		GraphTraversal<Vertex, Vertex> traversal = toTraversal(query, params);
+		if(after!=null) traversal = traversal.filter(t -> ((Comparable) t.get().id()).compareTo(after) > 0);
+		return new ArrayList<>(traversal.order().by(T.id).limit(limit).toList());
+	}
+	
+	@Override
+	public long queryCount(String language, String query, Map<String, Object> params, Type type) {
+		return toTraversal(query, params).count().next();
+	}
+	
+	@Override
+	public boolean queryExists(String language, String query, Map<String, Object> params, Type type) {
+		try(GraphTraversal<Vertex, Vertex> traversal = toTraversal(query, params)) {
+			return traversal.hasNext();
 		} catch (Exception e) {
 			throw new RuntimeException("Query execution failed: " + query, e);
 		}
 	}
 	
+	/**
+	 * Simplified translation of a query to a traversal over vertices.
+	 * SQL-like queries are limited by type: "select from MyEntity".
+	 * For Gremlin queries hasLabel('MyEntity') and has('property', value) steps are applied,
+	 * where value is either a quoted literal or a name of a parameter
+	 * @param query query to translate
+	 * @param params parameters of the query
+	 * @return traversal over vertices
+	 */
+	private GraphTraversal<Vertex, Vertex> toTraversal(String query, Map<String, Object> params) {
+		if(query.contains("select") && query.contains("from")) {
+			String entityType = extractEntityTypeFromQuery(query);
+			return entityType!=null ? g.V().hasLabel(entityType) : g.V();
+		}
+		GraphTraversal<Vertex, Vertex> traversal = g.V();
+		Matcher labels = HAS_LABEL_PATTERN.matcher(query);
+		if(labels.find()) traversal = traversal.hasLabel(labels.group(1));
+		Matcher has = HAS_PATTERN.matcher(query);
+		while(has.find()) {
+			Object value = has.group(2)!=null ? has.group(2) : params.get(has.group(3));
+			traversal = traversal.has(has.group(1), value);
+		}
+		return traversal;
+	}
+	
 	@Override
 	public Object querySingle(String language, String query, Map<String, Object> params, Type type) {
 		List<Object> results = query(language, query, params, type);
@@ -9,6 +9,7 @@ import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.annotation.EntityType;
 
 /**
  * Utility class for JanusGraph specific operations
@@ -37,7 +38,8 @@ public class JanusGraphUtils {
 	 * @return Vertex.class, Edge.class or null if not a graph element wrapper
 	 */
 	public static Class<? extends Element> getExpectedElementClass(Class<?> wrapperClass) {
-		if(Transponder.ITransponderHolder.class.isAssignableFrom(wrapperClass)) {
+		if(Transponder.ITransponderHolder.class.isAssignableFrom(wrapperClass)
+				|| wrapperClass.getAnnotation(EntityType.class)!=null) {
 			// This is a wrapper - determine if it wraps Vertex or Edge
 			// For now, assume all wrappers are Vertices unless specified otherwise
 			return Vertex.class;
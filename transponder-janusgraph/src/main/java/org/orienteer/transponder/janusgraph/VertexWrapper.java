@@ -1,8 +1,10 @@
 package org.orienteer.transponder.janusgraph;
 
 import java.lang.reflect.Type;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -72,6 +74,36 @@ public class VertexWrapper {
 		}
 	}
 	
+	/**
+	 * Get live collection for a {@link Transponder} property which is mapped to edges
+	 * @param property name of a property to obtain collection for
+	 * @param type expected type of the collection
+	 * @return live collection or null if property is not mapped to edges
+	 */
+	public Collection<Element> getLive(String property, Type type) {
+		Class<?> requiredClass = CommonUtils.typeToRequiredClass(type);
+		if(JanusGraphUtils.isSupportedPropertyClass(requiredClass)) return null;
+		Class<? extends Element> expectedElementClass = JanusGraphUtils.getExpectedElementClass(requiredClass);
+		if(expectedElementClass==null) return null;
+		return getLiveMultiReferenced(property, Vertex.class.isAssignableFrom(expectedElementClass));
+	}
+	
+	/**
+	 * Get number of edges for a {@link Transponder} property which is mapped to edges.
+	 * Edges are counted without reading of referenced vertices
+	 * @param property name of a property to obtain size for
+	 * @param type expected type of the collection
+	 * @return number of edges or null if property is not mapped to edges
+	 */
+	public Long getSize(String property, Type type) {
+		Class<?> requiredClass = CommonUtils.typeToRequiredClass(type);
+		if(JanusGraphUtils.isSupportedPropertyClass(requiredClass) || vertex==null) return null;
+		if(JanusGraphUtils.getExpectedElementClass(requiredClass)==null) return null;
+		long ret = 0;
+		for (Iterator<Edge> it = vertex.edges(Direction.OUT, property); it.hasNext(); it.next()) ret++;
+		return ret;
+	}
+	
 	/**
 	 * Set value for a provided property
 	 * @param property name of a property to set value to
@@ -146,6 +178,59 @@ public class VertexWrapper {
 		return new ArrayList<>();
 	}
 	
+	/**
+	 * Get live collection of referenced {@link Vertex}s or corresponding {@link Edge}s.
+	 * Adding of a vertex creates single edge and removing of an element removes corresponding edge
+	 * @param property name of a property to obtain collection for
+	 * @param isVertexNeeded what are we looking for: vertex or edge
+	 * @return live collection of referenced {@link Vertex} or {@link Edge} or null
+	 */
+	public Collection<Element> getLiveMultiReferenced(String property, boolean isVertexNeeded) {
+		if(vertex == null) return null;
+		return new AbstractCollection<Element>() {
+
+			@Override
+			public Iterator<Element> iterator() {
+				Iterator<Edge> it = vertex.edges(Direction.OUT, property);
+				return new Iterator<Element>() {
+					private Edge last;
+
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public Element next() {
+						last = it.next();
+						return isVertexNeeded ? last.inVertex() : last;
+					}
+
+					@Override
+					public void remove() {
+						if(last == null) throw new IllegalStateException();
+						last.remove();
+						last = null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				int size = 0;
+				for(Iterator<Edge> it = vertex.edges(Direction.OUT, property); it.hasNext(); it.next()) size++;
+				return size;
+			}
+
+			@Override
+			public boolean add(Element e) {
+				if(!(e instanceof Vertex)) throw new IllegalArgumentException("Only vertices can be added to " + property);
+				vertex.addEdge(property, (Vertex)e);
+				return true;
+			}
+		};
+	}
+	
 	/**
 	 * Sets value to actual JanusGraph property
 	 * @param property name of a property to set value to
@@ -3,26 +3,49 @@ package org.orienteer.transponder.mongodb;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.ICloseableIterator;
 import org.orienteer.transponder.IDriver;
+import org.orienteer.transponder.Instantiators;
 import org.orienteer.transponder.Transponder.ITransponderHolder;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mongodb.client.ClientSession;
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 
 import static org.orienteer.transponder.mongodb.MongoDBUtils.*;
 
@@ -31,14 +54,38 @@ import static org.orienteer.transponder.mongodb.MongoDBUtils.*;
  */
 public class MongoDBDriver implements IDriver {
 	
+	private static final ClassValue<Function<Object, Object>> WRAPPERS = Instantiators.forConstructor(Map.class);
+	
 	protected final MongoDatabase mongoDb;
 	
+	protected final MongoClient mongoClient;
+	
+	/**
+	 * Documents loaded by {@link #prefetch(Collection, Class, String...)}.
+	 * Keys are exactly the same {@link ObjectId} instances which are stored in referencing documents,
+	 * so documents are kept only while referencing documents are alive.
+	 * Prefetched document is used just once: following wrapping of the same reference loads actual version
+	 */
+	protected final Cache<Object, Document> prefetched = CacheBuilder.newBuilder().weakKeys().build();
+	
 	/**
 	 * Creates instance of driver for MongoDB for specified {@link MongoDatabase} 
 	 * @param mongoDb Mongo database to create driver for 
 	 */
 	public MongoDBDriver(MongoDatabase mongoDb) {
+		this(mongoDb, null);
+	}
+	
+	/**
+	 * Creates instance of driver for MongoDB for specified {@link MongoDatabase}.
+	 * Provided {@link MongoClient} is used to persist entities of {@link org.orienteer.transponder.UnitOfWork}
+	 * within one transaction: so MongoDB should be deployed as replica set
+	 * @param mongoDb Mongo database to create driver for
+	 * @param mongoClient Mongo client to start sessions by
+	 */
+	public MongoDBDriver(MongoDatabase mongoDb, MongoClient mongoClient) {
 		this.mongoDb = mongoDb;
+		this.mongoClient = mongoClient;
 	}
 
 	@Override
@@ -66,7 +113,43 @@ public class MongoDBDriver implements IDriver {
 
 	@Override
 	public Object getPropertyValue(Object wrapper, String property, Type type) {
-		return ((Document)wrapper).get(property);
+		return load(wrapper).get(property);
+	}
+	
+	@Override
+	public long getPropertySize(Object wrapper, String property, Type type) {
+		if(wrapper instanceof TransponderDocument && !((TransponderDocument)wrapper).is$loaded()) {
+			//Size of an array is calculated by MongoDB: so document is not loaded
+			TransponderDocument doc = (TransponderDocument)wrapper;
+			String field = "$"+property;
+			Document size = new Document("$cond", Arrays.asList(new Document("$isArray", field),
+																new Document("$size", field), 0));
+			Document result = getDatabase().getCollection(doc.get$collection())
+										.aggregate(Arrays.asList(Aggregates.match(Filters.eq("_id", doc.get("_id"))),
+																 Aggregates.project(new Document("size", size))))
+										.first();
+			Object ret = result!=null ? result.get("size") : null;
+			return ret instanceof Number ? ((Number) ret).longValue() : 0;
+		}
+		return IDriver.super.getPropertySize(wrapper, property, type);
+	}
+	
+	/**
+	 * Load content of lazily wrapped document if it has not been loaded yet
+	 * @param wrapper wrapped document
+	 * @return loaded document
+	 */
+	protected Document load(Object wrapper) {
+		if(wrapper instanceof TransponderDocument && !((TransponderDocument)wrapper).is$loaded()) {
+			TransponderDocument doc = (TransponderDocument)wrapper;
+			Object id = doc.get("_id");
+			Document loaded = takePrefetched(id);
+			if(loaded==null) loaded = getDatabase().getCollection(doc.get$collection())
+										.find(new Document("_id", id)).limit(1).first();
+			if(loaded!=null) doc.putAll(loaded);
+			doc.set$loaded(true);
+		}
+		return (Document)wrapper;
 	}
 
 	@Override
@@ -75,12 +158,23 @@ public class MongoDBDriver implements IDriver {
 			ObjectId valueId = ((Document)value).getObjectId("_id");
 			if(valueId!=null) value = valueId;
 		}
-		((Document)wrapper).put(property, value); //TODO Support of references
+		load(wrapper).put(property, value); //TODO Support of references
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Collection<?> getPropertyCollection(Object wrapper, String property, Type type) {
+		Document doc = load(wrapper);
+		Object value = doc.get(property);
+		if(value instanceof List) return (List<Object>)value;
+		List<Object> list = value instanceof Collection ? new ArrayList<>((Collection<Object>)value) : new ArrayList<>();
+		doc.put(property, list);
+		return list;
 	}
 
 	@Override
 	public <T> T newEntityInstance(Class<T> proxyClass, String type) {
-		T ret = CommonUtils.newInstance(proxyClass);
+		T ret = Instantiators.newInstance(proxyClass);
 		((TransponderDocument)ret).set$collection(CommonUtils.resolveEntityType(proxyClass));
 		return ret;
 	}
@@ -91,7 +185,8 @@ public class MongoDBDriver implements IDriver {
 	}
 	
 	protected void saveTransponderDocument(TransponderDocument doc, List<TransponderDocument> persisted) {
-		if(persisted.contains(doc)) return;
+		//Not loaded document can't have any changes
+		if(persisted.contains(doc) || !doc.is$loaded()) return;
 		persisted.add(doc);
 		doc.forEach((k, v) -> {
 			if(v instanceof TransponderDocument) saveTransponderDocument((TransponderDocument)v, persisted);
@@ -109,17 +204,77 @@ public class MongoDBDriver implements IDriver {
 		doc.set$persisted(true);
 	}
 
+	@Override
+	public void saveEntityInstances(Collection<?> wrappers, int batchSize) {
+		saveEntityInstances(null, wrappers, batchSize);
+	}
+	
+	@Override
+	public void commitUnitOfWork(Collection<?> wrappers) {
+		if(wrappers.isEmpty()) return;
+		if(mongoClient==null) {
+			saveEntityInstances(wrappers, Integer.MAX_VALUE);
+			return;
+		}
+		try(ClientSession session = mongoClient.startSession()) {
+			session.withTransaction(() -> {
+				saveEntityInstances(session, wrappers, Integer.MAX_VALUE);
+				return null;
+			});
+		}
+	}
+	
+	protected void saveEntityInstances(ClientSession session, Collection<?> wrappers, int batchSize) {
+		Set<TransponderDocument> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<TransponderDocument> docs = new ArrayList<>();
+		for (Object wrapper : wrappers) {
+			collectTransponderDocuments((TransponderDocument)wrapper, visited, docs);
+		}
+		Map<String, List<WriteModel<Document>>> perCollection = new LinkedHashMap<>();
+		for (TransponderDocument doc : docs) {
+			List<WriteModel<Document>> writes = perCollection.computeIfAbsent(doc.get$collection(), c -> new ArrayList<>());
+			ObjectId objectId = doc.getObjectId("_id");
+			if(objectId==null) {
+				doc.put("_id", ObjectId.get());
+				writes.add(new InsertOneModel<Document>(doc));
+			} else {
+				writes.add(new ReplaceOneModel<Document>(new Document("_id", objectId), doc, new ReplaceOptions().upsert(true)));
+			}
+		}
+		for (Map.Entry<String, List<WriteModel<Document>>> entry : perCollection.entrySet()) {
+			MongoCollection<Document> collection = getDatabase().getCollection(entry.getKey());
+			List<WriteModel<Document>> writes = entry.getValue();
+			for (int i = 0; i < writes.size(); i += batchSize) {
+				List<WriteModel<Document>> batch = writes.subList(i, Math.min(i + batchSize, writes.size()));
+				if(session!=null) collection.bulkWrite(session, batch);
+				else collection.bulkWrite(batch);
+			}
+		}
+		docs.forEach(doc -> doc.set$persisted(true));
+	}
+	
+	protected void collectTransponderDocuments(TransponderDocument doc, Set<TransponderDocument> visited,
+											   List<TransponderDocument> docs) {
+		if(!visited.add(doc) || !doc.is$loaded()) return;
+		// Referenced documents should be written before documents which refer to them
+		doc.forEach((k, v) -> {
+			if(v instanceof TransponderDocument) collectTransponderDocuments((TransponderDocument)v, visited, docs);
+		});
+		docs.add(doc);
+	}
+
 	@Override
 	public <T> T wrapEntityInstance(Class<T> proxyClass, Object seed) {
 		String collectionName = CommonUtils.resolveEntityType(proxyClass);
 		if(seed instanceof ObjectId) {
-			seed = getDatabase().getCollection(collectionName)
+			Document doc = takePrefetched(seed);
+			seed = doc!=null ? doc : getDatabase().getCollection(collectionName)
  					.find(new Document("_id", seed)).limit(1).first();
 		}
 		
 		if(seed instanceof Document) {
 			try {
-				T ret = (T) proxyClass.getConstructor(Map.class).newInstance(seed);
+				T ret = (T) WRAPPERS.get(proxyClass).apply(seed);
 				((TransponderDocument)ret).set$collection(collectionName);
 				return ret;
 			} catch (Exception e) {
@@ -128,6 +283,75 @@ public class MongoDBDriver implements IDriver {
 		} else return null;
 	}
 
+	@Override
+	public <T> T wrapLazyEntityInstance(Class<T> proxyClass, Object reference) {
+		if(!(reference instanceof ObjectId)) return null;
+		T ret = (T) WRAPPERS.get(proxyClass).apply(new Document("_id", reference));
+		((TransponderDocument)ret).set$collection(CommonUtils.resolveEntityType(proxyClass))
+								  .set$persisted(true)
+								  .set$loaded(false);
+		return ret;
+	}
+
+	@Override
+	public void prefetch(Collection<?> seeds, Class<?> mainClass, String... paths) {
+		for (String path : paths) {
+			List<Document> docs = new ArrayList<>();
+			for (Object seed : seeds) {
+				if(seed instanceof Document) docs.add((Document)seed);
+			}
+			Class<?> clazz = mainClass;
+			for (String property : path.split("\\.")) {
+				clazz = clazz!=null ? CommonUtils.resolveReferencedClass(clazz, property) : null;
+				if(clazz==null || docs.isEmpty()) break;
+				docs = prefetch(docs, property, CommonUtils.resolveEntityType(clazz));
+			}
+		}
+	}
+	
+	/**
+	 * Load by one request all documents which are referenced from provided documents by a property
+	 * @param docs referencing documents
+	 * @param property name of the property
+	 * @param collectionName collection of referenced documents
+	 * @return referenced documents: loaded, prefetched before or embedded
+	 */
+	protected List<Document> prefetch(List<Document> docs, String property, String collectionName) {
+		List<Document> ret = new ArrayList<>();
+		Map<ObjectId, List<ObjectId>> toLoad = new LinkedHashMap<>();
+		for (Document doc : docs) {
+			Object value = doc.get(property);
+			Collection<?> values = value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+			for (Object ref : values) {
+				if(ref instanceof Document) ret.add((Document)ref);
+				else if(ref instanceof ObjectId) {
+					Document loaded = prefetched.getIfPresent(ref);
+					if(loaded!=null) ret.add(loaded);
+					else toLoad.computeIfAbsent((ObjectId)ref, k -> new ArrayList<>()).add((ObjectId)ref);
+				}
+			}
+		}
+		if(!toLoad.isEmpty()) {
+			for (Document loaded : getDatabase().getCollection(collectionName)
+											.find(Filters.in("_id", toLoad.keySet()))) {
+				List<ObjectId> refs = toLoad.get(loaded.getObjectId("_id"));
+				if(refs==null) continue;
+				for (ObjectId ref : refs) {
+					prefetched.put(ref, loaded);
+				}
+				ret.add(loaded);
+			}
+		}
+		return ret;
+	}
+
+	private Document takePrefetched(Object id) {
+		if(id==null) return null;
+		Document ret = prefetched.getIfPresent(id);
+		if(ret!=null) prefetched.invalidate(id);
+		return ret;
+	}
+
 	@Override
 	public Class<?> getDefaultEntityBaseClass() {
 		return TransponderDocument.class;
@@ -137,6 +361,19 @@ public class MongoDBDriver implements IDriver {
 	public Class<?> getEntityMainClass(Object seed) {
 		return null;
 	}
+	
+	@Override
+	public Object getSeedId(Object seed) {
+		if(seed instanceof ObjectId) return seed;
+		else if(seed instanceof Document) return ((Document)seed).getObjectId("_id");
+		else return null;
+	}
+	
+	@Override
+	public Object getEntitySchemaKey(Object seed) {
+		//Main class is never resolved from a document: so all documents share the same key
+		return seed!=null && isSeedClass(seed.getClass()) ? Document.class : null;
+	}
 
 	@Override
 	public boolean isSeedClass(Class<?> seedClass) {
@@ -160,6 +397,81 @@ public class MongoDBDriver implements IDriver {
 					.collect(Collectors.toList());
 	}
 	
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Map<String, Object>> queryProjected(String language, String query, Map<String, Object> params,
+			Type type, String... properties) {
+		String collectionName = CommonUtils.resolveEntityType(CommonUtils.typeToRequiredClass(type));
+		Object results = MongoDBUtils.execute(getDatabase(), query, params, collectionName);
+		if(results instanceof FindIterable) {
+			results = ((FindIterable<Document>)results).projection(Projections.include(properties));
+		}
+		List<Map<String, Object>> ret = new ArrayList<>();
+		for (Document doc : (Iterable<Document>)results) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			for (String property : properties) {
+				row.put(property, doc.get(property));
+			}
+			ret.add(row);
+		}
+		return ret;
+	}
+	
+	@Override
+	public List<Object> queryPage(String language, String query, Map<String, Object> params, Type type,
+								  long offset, int limit) {
+		FindIterable<Document> results = find(query, params, type, null);
+		if(results==null) return IDriver.super.queryPage(language, query, params, type, offset, limit);
+		//Documents are sorted by _id to make order of pages deterministic
+		return results.sort(Sorts.ascending("_id")).skip((int) offset).limit(limit).into(new ArrayList<>());
+	}
+	
+	@Override
+	public List<Object> querySlice(String language, String query, Map<String, Object> params, Type type,
+								   Object after, int limit) {
+		FindIterable<Document> results = find(query, params, type, after);
+		if(results==null) return IDriver.super.querySlice(language, query, params, type, after, limit);
+		//Keyset is applied to identities of documents: so pages are ordered by _id
+		return results.sort(Sorts.ascending("_id")).limit(limit).into(new ArrayList<>());
+	}
+	
+	@Override
+	public long queryCount(String language, String query, Map<String, Object> params, Type type) {
+		String collectionName = CommonUtils.resolveEntityType(CommonUtils.typeToRequiredClass(type));
+		Document command = MongoDBUtils.parseCommand(query, params);
+		String operation = command.getString("$operation");
+		if(!"find".equals(operation) && !"select".equals(operation)) return IDriver.super.queryCount(language, query, params, type);
+		command.put("$operation", "count");
+		return (Long) MongoDBUtils.execute(getDatabase(), command, collectionName);
+	}
+	
+	@Override
+	public boolean queryExists(String language, String query, Map<String, Object> params, Type type) {
+		FindIterable<Document> results = find(query, params, type, null);
+		if(results==null) return IDriver.super.queryExists(language, query, params, type);
+		return results.projection(Projections.include("_id")).limit(1).first()!=null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private FindIterable<Document> find(String query, Map<String, Object> params, Type type, Object after) {
+		String collectionName = CommonUtils.resolveEntityType(CommonUtils.typeToRequiredClass(type));
+		Document command = MongoDBUtils.parseCommand(query, params);
+		if(after!=null) {
+			command.put("$filter", Filters.and((Bson) command.get("$filter", new Document()), Filters.gt("_id", after)));
+		}
+		Object results = MongoDBUtils.execute(getDatabase(), command, collectionName);
+		return results instanceof FindIterable ? (FindIterable<Document>) results : null;
+	}
+	
+	@Override
+	public ICloseableIterator<Object> queryStream(String language, String query, Map<String, Object> params, Type type) {
+		String collectionName = CommonUtils.resolveEntityType(CommonUtils.typeToRequiredClass(type));
+		FindIterable<Document> results = (FindIterable<Document>)MongoDBUtils
+										.execute(getDatabase(), query, params, collectionName);
+		MongoCursor<Document> cursor = results.iterator();
+		return ICloseableIterator.of(cursor, cursor);
+	}
+	
 	@Override
 	public Object querySingle(String language, String query, Map<String, Object> params, Type type) {
 		String collectionName = CommonUtils.resolveEntityType(CommonUtils.typeToRequiredClass(type));
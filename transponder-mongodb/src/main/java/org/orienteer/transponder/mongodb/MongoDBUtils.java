@@ -49,12 +49,22 @@ public class MongoDBUtils {
 	 * @return result of command execution
 	 */
 	public Object execute(MongoDatabase db, String commandStr, Map<String, Object> params, String defaultCollection) {
+		return execute(db, parseCommand(commandStr, params), defaultCollection);
+	}
+	
+	/**
+	 * Parse string representation of a command. If operation is not specified: command is considered as filter for "find"
+	 * @param commandStr string representation of a command
+	 * @param params parameters for interpolation
+	 * @return command in the structure supported by {@link #execute(MongoDatabase, Document, String)}
+	 */
+	public Document parseCommand(String commandStr, Map<String, Object> params) {
 		Document command = Document.parse(CommonUtils.interpolate(commandStr, params));
 		if(command.get("$operation")==null) {
 			command = new Document("$operation", "find")
 							.append("$filter", command);
 		}
-		return execute(db, command, defaultCollection);
+		return command;
 	}
 	
 	/**
@@ -13,6 +13,7 @@ public class TransponderDocument extends Document {
 	
 	private String collection;
 	private boolean persisted = false;
+	private boolean loaded = true;
 
 	/**
 	 * Creates default {@link TransponderDocument}
@@ -28,6 +29,7 @@ public class TransponderDocument extends Document {
 		super(doc);
 		this.persisted = doc.persisted;
 		this.collection = doc.collection;
+		this.loaded = doc.loaded;
 	}
 
 	/**
@@ -47,7 +49,7 @@ public class TransponderDocument extends Document {
 		super(key, value);
 	}
 	
-	//CHECKSTYLE IGNORE MethodName FOR NEXT 30 LINES
+	//CHECKSTYLE IGNORE MethodName FOR NEXT 50 LINES
 	/**
 	 * @return true if document was actually persisted
 	 */
@@ -65,6 +67,23 @@ public class TransponderDocument extends Document {
 		return this;
 	}
 	
+	/**
+	 * @return false if document contains just an identity and content should be loaded from DB
+	 */
+	public boolean is$loaded() {
+		return loaded;
+	}
+	
+	/**
+	 * Mark document as loaded or not
+	 * @param loaded false means that only identity of the document is known
+	 * @return current document
+	 */
+	public TransponderDocument set$loaded(boolean loaded) {
+		this.loaded = loaded;
+		return this;
+	}
+	
 	/**
 	 * @return name of a collection this document belongs to
 	 */
@@ -1,8 +1,10 @@
 package org.orienteer.transponder.neo4j;
 
 import java.lang.reflect.Type;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -75,6 +77,34 @@ public class EntityWrapper {
 		}
 	}
 	
+	/**
+	 * Get live collection for a {@link Transponder} property which is mapped to relationships
+	 * @param property name of a property to obtain collection for
+	 * @param type expected type of the collection
+	 * @return live collection or null if property is not mapped to relationships
+	 */
+	public Collection<Entity> getLive(String property, Type type) {
+		Class<?> requiredClass = CommonUtils.typeToRequiredClass(type);
+		if(Neo4JUtils.isSupportedPropertyClass(requiredClass)) return null;
+		Class<? extends Entity> expectedEntityClass = Neo4JUtils.getExpectedEntityClass(requiredClass);
+		if(expectedEntityClass==null) return null;
+		return getLiveMultiReferenced(property, Node.class.isAssignableFrom(expectedEntityClass));
+	}
+	
+	/**
+	 * Get number of relationships for a {@link Transponder} property which is mapped to relationships.
+	 * Degree of a node is used: so relationships are not loaded
+	 * @param property name of a property to obtain size for
+	 * @param type expected type of the collection
+	 * @return number of relationships or null if property is not mapped to relationships
+	 */
+	public Integer getSize(String property, Type type) {
+		Class<?> requiredClass = CommonUtils.typeToRequiredClass(type);
+		if(Neo4JUtils.isSupportedPropertyClass(requiredClass) || !(entity instanceof Node)) return null;
+		if(Neo4JUtils.getExpectedEntityClass(requiredClass)==null) return null;
+		return ((Node)entity).getDegree(RelationshipType.withName(property), Direction.OUTGOING);
+	}
+	
 	/**
 	 * Set value for a provided property
 	 * @param property name of a property to set value to
@@ -116,6 +146,7 @@ public class EntityWrapper {
 		if(entity instanceof Node) {
 			Node node = (Node)entity;
 			Relationship relationship = node.getSingleRelationship(RelationshipType.withName(property), Direction.OUTGOING);
+			if(relationship==null) return null;
 			return isNodeNeeded?relationship.getEndNode():relationship;
 		} else if (entity instanceof Relationship) {
 			Relationship relationship = (Relationship) entity;
@@ -143,6 +174,59 @@ public class EntityWrapper {
 		return null;
 	}
 	
+	/**
+	 * Get live collection of referenced {@link Node}s or corresponding {@link Relationship}s.
+	 * Adding of a node creates single relationship and removing of an element deletes corresponding relationship
+	 * @param property name of a property to obtain collection for
+	 * @param isNodeNeeded what are we looking for: node or relationship
+	 * @return live collection of referenced {@link Node} or {@link Relationship} or null
+	 */
+	public Collection<Entity> getLiveMultiReferenced(String property, boolean isNodeNeeded) {
+		if(!(entity instanceof Node)) return null;
+		Node node = (Node)entity;
+		RelationshipType relationshipType = RelationshipType.withName(property);
+		return new AbstractCollection<Entity>() {
+			
+			@Override
+			public Iterator<Entity> iterator() {
+				Iterator<Relationship> it = node.getRelationships(Direction.OUTGOING, relationshipType).iterator();
+				return new Iterator<Entity>() {
+					private Relationship last;
+
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public Entity next() {
+						last = it.next();
+						return isNodeNeeded?last.getEndNode():last;
+					}
+
+					@Override
+					public void remove() {
+						if(last==null) throw new IllegalStateException();
+						last.delete();
+						last = null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return node.getDegree(relationshipType, Direction.OUTGOING);
+			}
+
+			@Override
+			public boolean add(Entity e) {
+				if(!(e instanceof Node)) throw new IllegalArgumentException("Only nodes can be added to "+property);
+				node.createRelationshipTo((Node)e, relationshipType);
+				return true;
+			}
+		};
+	}
+	
 	/**
 	 * Sets value to actual Neo4J property
 	 * @param property name of a property to set value to
@@ -4,17 +4,29 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.neo4j.graphdb.Entity;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.Result;
 import org.neo4j.graphdb.Transaction;
+import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.ICloseableIterator;
 import org.orienteer.transponder.IDriver;
+import org.orienteer.transponder.Instantiators;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
@@ -29,8 +41,12 @@ public class Neo4JDriver implements IDriver {
 		private Transaction transaction;
 		
 		public Transaction getTransaction() {
-			if(externalTransaction!=null) return externalTransaction;
-			else if(transaction==null) {
+			if(isolated.get()==null) {
+				if(externalTransaction!=null) return externalTransaction;
+				Transaction uowTransaction = unitOfWorkTransaction.get();
+				if(uowTransaction!=null) return uowTransaction;
+			}
+			if(transaction==null) {
 				transaction = database.beginTx();
 			}
 			return transaction;
@@ -51,11 +67,22 @@ public class Neo4JDriver implements IDriver {
 	public static final String TYPE_CUSTOM_TRANSPONDER_WRAPPER = "transponder.wrapper";
 	
 	private static final BiMap<String, Class<?>> TYPE_TO_MAIN_CLASS = HashBiMap.create(); 
+	private static final ClassValue<Function<Object, Object>> WRAPPERS = Instantiators.forConstructor(Entity.class);
+	
+	private static final String PAGE_OFFSET = "transponderOffset";
+	private static final String PAGE_LIMIT = "transponderLimit";
+	private static final String PAGE_AFTER = "transponderAfter";
 	
 	private final GraphDatabaseService database;
 	
 	private Transaction externalTransaction;
 	
+	private final ThreadLocal<Transaction> unitOfWorkTransaction = new ThreadLocal<>();
+	
+	private final ThreadLocal<Boolean> isolated = new ThreadLocal<>();
+	
+	private final Map<String, String> resultColumns = new ConcurrentHashMap<>();
+	
 	/**
 	 * Creates {@link IDriver} which associated with provided Neo4J database
 	 * @param database Neo4J database instance to associate driver with
@@ -108,6 +135,18 @@ public class Neo4JDriver implements IDriver {
 		((EntityWrapper)wrapper).set(property, value, type);
 	}
 
+	@Override
+	public Collection<?> getPropertyCollection(Object wrapper, String property, Type type) {
+		Collection<?> ret = ((EntityWrapper)wrapper).getLive(property, type);
+		return ret!=null ? ret : IDriver.super.getPropertyCollection(wrapper, property, type);
+	}
+
+	@Override
+	public long getPropertySize(Object wrapper, String property, Type type) {
+		Integer ret = ((EntityWrapper)wrapper).getSize(property, type);
+		return ret!=null ? ret : IDriver.super.getPropertySize(wrapper, property, type);
+	}
+
 	@Override
 	public <T> T newEntityInstance(Class<T> proxyClass, String type) {
 		try(TransactionHolder holder = new TransactionHolder()) {
@@ -123,7 +162,7 @@ public class Neo4JDriver implements IDriver {
 	@Override
 	public <T> T wrapEntityInstance(Class<T> proxyClass, Object seed) {
 		try {
-			return proxyClass.getConstructor(Entity.class).newInstance((Entity)seed);
+			return (T) WRAPPERS.get(proxyClass).apply((Entity)seed);
 		}catch (Exception e) {
 			throw new IllegalArgumentException("Can't wrap seed by class "+proxyClass+". Seed: "+seed, e);
 		}
@@ -143,6 +182,47 @@ public class Neo4JDriver implements IDriver {
 		}
 		return null;
 	}
+	
+	@Override
+	public Object getSeedId(Object seed) {
+		if(seed instanceof Node) return "node:"+((Node)seed).getId();
+		else if(seed instanceof Relationship) return "relationship:"+((Relationship)seed).getId();
+		else return null;
+	}
+	
+	@Override
+	public void beginUnitOfWork() {
+		//External transaction is controlled outside
+		//Unit of work is bound to a thread, so is its transaction
+		if(externalTransaction==null && unitOfWorkTransaction.get()==null) unitOfWorkTransaction.set(database.beginTx());
+	}
+	
+	@Override
+	public void commitUnitOfWork(Collection<?> wrappers) {
+		Transaction uowTransaction = unitOfWorkTransaction.get();
+		if(uowTransaction!=null) {
+			try(Transaction tx = uowTransaction) {
+				unitOfWorkTransaction.remove();
+				tx.commit();
+			}
+		}
+	}
+	
+	@Override
+	public void rollbackUnitOfWork() {
+		Transaction uowTransaction = unitOfWorkTransaction.get();
+		if(uowTransaction!=null) {
+			try(Transaction tx = uowTransaction) {
+				unitOfWorkTransaction.remove();
+				tx.rollback();
+			}
+		}
+	}
+
+	@Override
+	public Object getEntitySchemaKey(Object seed) {
+		return seed instanceof Entity ? Neo4JUtils.entityToType((Entity)seed) : null;
+	}
 
 	@Override
 	public boolean isSeedClass(Class<?> seedClass) {
@@ -154,6 +234,32 @@ public class Neo4JDriver implements IDriver {
 		return ((EntityWrapper)wrapped).getEntity();
 	}
 
+	@Override
+	public List<Map<String, Object>> queryProjected(String language, String query, Map<String, Object> params,
+			Type type, String... properties) {
+		try(TransactionHolder holder = new TransactionHolder()) {
+			Transaction tx = holder.getTransaction();
+			try(Result result = tx.execute(query, params)) {
+				List<String> columns = result.columns();
+				List<Map<String, Object>> ret = new ArrayList<>();
+				while(result.hasNext()) {
+					Map<String, Object> record = result.next();
+					Object single = columns.size()==1 ? record.get(columns.get(0)) : null;
+					Map<String, Object> row = new HashMap<>();
+					//Either only required properties are read from returned entity or query returns them as columns
+					if(single instanceof Entity) row.putAll(((Entity)single).getProperties(properties));
+					else {
+						for (String property : properties) {
+							row.put(property, record.get(property));
+						}
+					}
+					ret.add(row);
+				}
+				return ret;
+			}
+		}
+	}
+	
 	@Override
 	public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
 		try(TransactionHolder holder = new TransactionHolder()) {
@@ -167,6 +273,125 @@ public class Neo4JDriver implements IDriver {
 		}
 	}
 
+	@Override
+	public List<Object> queryPage(String language, String query, Map<String, Object> params, Type type,
+								  long offset, int limit) {
+		Map<String, Object> pageParams = new HashMap<>(params);
+		pageParams.put(PAGE_OFFSET, offset);
+		pageParams.put(PAGE_LIMIT, limit);
+		//Results of subquery are pulled lazily: so only offset+limit rows are produced
+		String column = quoteName(getResultColumn(query, params));
+		return query(language, "CALL { "+trimQuery(query)+" } WITH "+column+" RETURN "+column
+						+" SKIP $"+PAGE_OFFSET+" LIMIT $"+PAGE_LIMIT, pageParams, type);
+	}
+	
+	@Override
+	public List<Object> querySlice(String language, String query, Map<String, Object> params, Type type,
+								   Object after, int limit) {
+		String subquery = trimQuery(query);
+		//Keyset is applied to internal ids of entities: so pages are ordered by id
+		if(CommonUtils.indexOfTopLevelKeyword(subquery, "order")>=0)
+			throw new IllegalArgumentException("Keyset pages are ordered by id, so query should not have ORDER BY: "+query);
+		Map<String, Object> pageParams = new HashMap<>(params);
+		pageParams.put(PAGE_LIMIT, limit);
+		String column = quoteName(getResultColumn(query, params));
+		StringBuilder cypher = new StringBuilder("CALL { ").append(subquery).append(" } WITH ").append(column);
+		if(after!=null) {
+			pageParams.put(PAGE_AFTER, toInternalId(after));
+			cypher.append(" WHERE id(").append(column).append(") > $").append(PAGE_AFTER);
+		}
+		cypher.append(" RETURN ").append(column)
+			  .append(" ORDER BY id(").append(column).append(") LIMIT $").append(PAGE_LIMIT);
+		return query(language, cypher.toString(), pageParams, type);
+	}
+	
+	private String getResultColumn(String query, Map<String, Object> params) {
+		return resultColumns.computeIfAbsent(query, q -> {
+			try(TransactionHolder holder = new TransactionHolder()) {
+				//Query is only planned, but not executed
+				try(Result result = holder.getTransaction().execute("EXPLAIN "+q, params)) {
+					List<String> columns = result.columns();
+					if(columns.isEmpty()) throw new IllegalArgumentException("Query doesn't return anything: "+q);
+					return columns.get(0);
+				}
+			}
+		});
+	}
+	
+	private static long toInternalId(Object seedId) {
+		String id = seedId.toString();
+		return Long.parseLong(id.substring(id.indexOf(':')+1));
+	}
+	
+	private static String quoteName(String name) {
+		return "`"+name.replace("`", "``")+"`";
+	}
+	
+	private static String trimQuery(String query) {
+		//Query is wrapped into subquery: so trailing semicolon should be omitted
+		String ret = query.trim();
+		return ret.endsWith(";") ? ret.substring(0, ret.length()-1).trim() : ret;
+	}
+
+	@Override
+	public long queryCount(String language, String query, Map<String, Object> params, Type type) {
+		try(TransactionHolder holder = new TransactionHolder()) {
+			Transaction tx = holder.getTransaction();
+			try(Result result = tx.execute("CALL { "+trimQuery(query)+" } RETURN count(*) AS count", params)) {
+				Object count = result.hasNext() ? result.next().get("count") : null;
+				return count instanceof Number ? ((Number) count).longValue() : 0;
+			}
+		}
+	}
+	
+	@Override
+	public boolean queryExists(String language, String query, Map<String, Object> params, Type type) {
+		try(TransactionHolder holder = new TransactionHolder()) {
+			Transaction tx = holder.getTransaction();
+			//Results are pulled lazily: so only the first row is produced
+			try(Result result = tx.execute(query, params)) {
+				return result.hasNext();
+			}
+		}
+	}
+	
+	@Override
+	public ICloseableIterator<Object> queryStream(String language, String query, Map<String, Object> params, Type type) {
+		TransactionHolder holder = new TransactionHolder();
+		Result result;
+		try {
+			result = holder.getTransaction().execute(query, params);
+		} catch (RuntimeException e) {
+			holder.close();
+			throw e;
+		}
+		List<String> columns = result.columns();
+		Iterator<Object> iterator = columns.size()>0
+										? result.columnAs(columns.get(0))
+										: Collections.emptyIterator();
+		return ICloseableIterator.of(iterator, () -> {
+			try {
+				result.close();
+			} finally {
+				holder.close();
+			}
+		});
+	}
+
+	@Override
+	public <T> Supplier<T> propagateContext(Supplier<T> task) {
+		//Transactions can't be shared between threads: so worker thread should use own transactions
+		return () -> {
+			Boolean previous = isolated.get();
+			isolated.set(Boolean.TRUE);
+			try {
+				return task.get();
+			} finally {
+				if(previous==null) isolated.remove();
+			}
+		};
+	}
+
 	@Override
 	public String getDialect() {
 		return DIALECT_NEO4J;
@@ -3,10 +3,21 @@ package org.orienteer.transponder.orientdb;
 import java.io.Serializable;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Type;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Strings.emptyToNull;
@@ -14,21 +25,29 @@ import static org.orienteer.transponder.CommonUtils.*;
 
 import org.orienteer.transponder.BuilderScheduler;
 import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.ICloseableIterator;
 import org.orienteer.transponder.IDriver;
 import org.orienteer.transponder.IMutator;
+import org.orienteer.transponder.Instantiators;
 import org.orienteer.transponder.Transponder;
 import org.orienteer.transponder.annotation.common.Sudo;
 import org.orienteer.transponder.mutator.AnnotationMutator;
 import org.orienteer.transponder.orientdb.advice.SudoAdvice;
 
 import com.google.common.base.Strings;
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.OElement;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
@@ -52,12 +71,15 @@ public class ODriver implements IDriver {
 	public static final String OINDEX_DICTIONARY_HASH_INDEX = "DICTIONARY_HASH_INDEX";
 	public static final String OINDEX_SPATIAL = OClass.INDEX_TYPE.SPATIAL.name();
 	
+	private static final String PAGE_AFTER = "transponderAfter";
+	
 	private static final Map<OType, OType> EMBEDDED_TO_LINKS_MAP = toMap(OType.EMBEDDED, OType.LINK,
 																		 OType.EMBEDDEDLIST, OType.LINKLIST,
 																		 OType.EMBEDDEDSET, OType.LINKSET,
 																		 OType.EMBEDDEDMAP, OType.LINKMAP);
 	
 	private static final IMutator MUTATOR = new AnnotationMutator(Sudo.class, SudoAdvice.class);
+	private static final ClassValue<Function<Object, Object>> WRAPPERS = Instantiators.forConstructor(ODocument.class);
 	
 	private final boolean overrideSchema;
 	
@@ -188,6 +210,22 @@ public class ODriver implements IDriver {
 		return doc!=null?doc.field(property):null;
 	}
 
+	@Override
+	public Object getPropertyReference(Object wrapper, String property, Type type) {
+		if(wrapper==null) return null;
+		ODocument doc = ((ODocumentWrapper)wrapper).getDocument();
+		//Raw value of a link is not loaded automatically
+		return doc!=null?doc.rawField(property):null;
+	}
+
+	@Override
+	public long getPropertySize(Object wrapper, String property, Type type) {
+		if(wrapper==null) return 0;
+		ODocument doc = ((ODocumentWrapper)wrapper).getDocument();
+		//Size of raw value (ORidBag, list of links) is known without loading of records
+		return doc!=null ? OMultiValue.getSize(doc.rawField(property)) : 0;
+	}
+
 	@Override
 	public void setPropertyValue(Object wrapper, String property, Object value, Type type) {
 		if(wrapper==null) return;
@@ -195,11 +233,34 @@ public class ODriver implements IDriver {
 		if(doc!=null) doc.field(property, value);
 	}
 
+	@Override
+	public Collection<?> getPropertyCollection(Object wrapper, String property, Type type) {
+		ODocument doc = ((ODocumentWrapper)wrapper).getDocument();
+		Object value = doc.field(property);
+		if(value==null) {
+			//Document converts collection to tracked one, so it should be obtained again
+			doc.field(property, newPropertyCollection(doc, property));
+			value = doc.field(property);
+		}
+		if(value instanceof ORidBag) return new RidBagCollection((ORidBag)value);
+		else if(value instanceof Collection) return (Collection<?>)value;
+		else return IDriver.super.getPropertyCollection(wrapper, property, type);
+	}
+	
+	private static Object newPropertyCollection(ODocument doc, String property) {
+		OClass oClass = doc.getSchemaClass();
+		OProperty oProperty = oClass!=null ? oClass.getProperty(property) : null;
+		OType oType = oProperty!=null ? oProperty.getType() : null;
+		if(OType.LINKBAG.equals(oType)) return new ORidBag();
+		else if(OType.LINKSET.equals(oType) || OType.EMBEDDEDSET.equals(oType)) return new HashSet<>();
+		else return new ArrayList<>();
+	}
+
 	@Override
 	public <T> T newEntityInstance(Class<T> proxyClass, String type) {
 		try {
 			ODocument doc = new ODocument(type);
-			return proxyClass.getConstructor(ODocument.class).newInstance(doc);
+			return (T) WRAPPERS.get(proxyClass).apply(doc);
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Can't create new entityInstance for class "+proxyClass+" with OClass "+type, e);
 		} 
@@ -209,17 +270,58 @@ public class ODriver implements IDriver {
 	public void saveEntityInstance(Object wrapper) {
 		asWrapper(wrapper).save();
 	}
+	
+	@Override
+	public void saveEntityInstances(Collection<?> wrappers, int batchSize) {
+		ODatabaseSession db = getSession();
+		if(db.getTransaction().isActive()) {
+			//Let external transaction to control commits
+			wrappers.forEach(this::saveEntityInstance);
+			return;
+		}
+		int inBatch = 0;
+		db.begin();
+		try {
+			for (Object wrapper : wrappers) {
+				saveEntityInstance(wrapper);
+				if(++inBatch>=batchSize) {
+					db.commit();
+					db.begin();
+					inBatch = 0;
+				}
+			}
+			db.commit();
+		} catch (RuntimeException e) {
+			if(db.getTransaction().isActive()) db.rollback();
+			throw e;
+		}
+	}
 
 	@Override
 	public <T> T wrapEntityInstance(Class<T> proxyClass, Object seed) {
 		try {
 			ODocument doc = ((OIdentifiable)seed).getRecord();
-			return proxyClass.getConstructor(ODocument.class).newInstance(doc);
+			return (T) WRAPPERS.get(proxyClass).apply(doc);
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Can't wrap seed by class "+proxyClass+". Seed: "+seed, e);
 		}
 	}
 
+	@Override
+	public <T> T wrapLazyEntityInstance(Class<T> proxyClass, Object reference) {
+		if(!(reference instanceof ORID) || !((ORID)reference).isPersistent()) return null;
+		//Document created for an identity is loaded on first access to its fields
+		return (T) WRAPPERS.get(proxyClass).apply(new ODocument((ORID)reference));
+	}
+
+	@Override
+	public Class<?> getReferenceMainClass(Object reference) {
+		if(!(reference instanceof ORID) || !((ORID)reference).isPersistent()) return null;
+		//Class of a record is defined by its cluster: so record is not loaded
+		OClass oClass = getSchema().getClassByClusterId(((ORID)reference).getClusterId());
+		return oClass!=null ? safeClassForName(oClass.getCustom(OCLASS_CUSTOM_TRANSPONDER_WRAPPER)) : null;
+	}
+
 	@Override
 	public Class<?> getDefaultEntityBaseClass() {
 		return ODocumentWrapper.class;
@@ -233,6 +335,24 @@ public class ODriver implements IDriver {
 				?safeClassForName(doc.getSchemaClass().getCustom(OCLASS_CUSTOM_TRANSPONDER_WRAPPER))
 				:null;
 	}
+	
+	@Override
+	public Object getSeedId(Object seed) {
+		if(!(seed instanceof OIdentifiable)) return null;
+		ORID rid = ((OIdentifiable)seed).getIdentity();
+		//Identity of not yet persisted documents is temporary
+		return rid!=null && rid.isPersistent() ? rid.copy() : null;
+	}
+	
+	@Override
+	public Object getEntitySchemaKey(Object seed) {
+		if(!(seed instanceof OIdentifiable)) return null;
+		ODocument doc = ((OIdentifiable)seed).getRecord();
+		if(doc==null || doc.getClassName()==null) return null;
+		//Driver is not bound to a single database: the same class name might mean different classes
+		ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
+		return db!=null ? Arrays.asList(db.getURL(), doc.getClassName()) : null;
+	}
 
 	@Override
 	public boolean isSeedClass(Class<?> seedClass) {
@@ -248,35 +368,160 @@ public class ODriver implements IDriver {
 	@Override
 	public List<Object> query(String language, String query, Map<String, Object> params, Type type) {
 		try(OResultSet resultSet = getSession().query(query, params)) {
-			return resultSet.elementStream().map(e -> {
-						ODocument doc = (ODocument)e;
-						if(doc.getClassName()!=null) return doc;
-						else return doc.field("value");
-					}).collect(Collectors.toList());
+			return resultSet.elementStream().map(ODriver::toResult).collect(Collectors.toList());
 		}
 	}
 	
+	/**
+	 * Convert element of a result set: documents of a class are returned as is, otherwise "value" field is extracted
+	 * @param element element of a result set
+	 * @return converted result
+	 */
+	private static Object toResult(OElement element) {
+		ODocument doc = (ODocument)element;
+		return doc.getClassName()!=null ? doc : doc.field("value");
+	}
+	
+	@Override
+	public List<Object> queryPage(String language, String query, Map<String, Object> params, Type type,
+								  long offset, int limit) {
+		String sql = trimQuery(query);
+		//Skip and limit are appended to the query itself, so it's not evaluated completely for every page
+		if(hasTopLevelKeyword(sql, "skip", "limit", "offset")) sql = "select from ("+sql+")";
+		return query(language, sql+" skip "+offset+" limit "+limit, params, type);
+	}
+	
+	@Override
+	public List<Object> querySlice(String language, String query, Map<String, Object> params, Type type,
+								   Object after, int limit) {
+		String sql = trimQuery(query);
+		//Keyset is applied to identities of records: so pages are ordered by @rid
+		if(hasTopLevelKeyword(sql, "order"))
+			throw new IllegalArgumentException("Keyset pages are ordered by @rid, so query should not have ORDER BY: "+query);
+		//Predicate on @rid can't be applied to results of aggregation or expansion: so such queries are wrapped
+		if(hasTopLevelKeyword(sql, "group", "expand", "unwind", "skip", "limit", "offset")) sql = "select from ("+sql+")";
+		Map<String, Object> pageParams = params;
+		if(after!=null) {
+			pageParams = new HashMap<>(params);
+			pageParams.put(PAGE_AFTER, after);
+			int where = CommonUtils.indexOfTopLevelKeyword(sql, "where");
+			String predicate = "@rid > :"+PAGE_AFTER;
+			if(where<0) sql = sql+" where "+predicate;
+			else sql = sql.substring(0, where)+"where "+predicate+" and ("+sql.substring(where+"where".length())+")";
+		}
+		return query(language, sql+" order by @rid limit "+limit, pageParams, type);
+	}
+	
+	private static String trimQuery(String query) {
+		String ret = query.trim();
+		return ret.endsWith(";") ? ret.substring(0, ret.length()-1).trim() : ret;
+	}
+	
+	private static boolean hasTopLevelKeyword(String query, String... keywords) {
+		for (String keyword : keywords) {
+			if(CommonUtils.indexOfTopLevelKeyword(query, keyword)>=0) return true;
+		}
+		return false;
+	}
+	
+	@Override
+	public long queryCount(String language, String query, Map<String, Object> params, Type type) {
+		try(OResultSet resultSet = getSession().query("select count(*) as count from ("+query+")", params)) {
+			Number count = resultSet.hasNext() ? resultSet.next().getProperty("count") : null;
+			return count!=null ? count.longValue() : 0;
+		}
+	}
+	
+	@Override
+	public boolean queryExists(String language, String query, Map<String, Object> params, Type type) {
+		try(OResultSet resultSet = getSession().query("select from ("+query+") limit 1", params)) {
+			return resultSet.hasNext();
+		}
+	}
 	
+	@Override
+	public ICloseableIterator<Object> queryStream(String language, String query, Map<String, Object> params, Type type) {
+		OResultSet resultSet = getSession().query(query, params);
+		return ICloseableIterator.of(resultSet.elementStream().map(ODriver::toResult).iterator(), resultSet);
+	}
 	
 	@Override
 	public Object querySingle(String language, String query, Map<String, Object> params, Type type) {
 		try(OResultSet resultSet = getSession().query(query, params)) {
-			return resultSet.elementStream().map(e -> {
-						ODocument doc = (ODocument)e;
-						if(doc.getClassName()!=null) return doc;
-						else return doc.field("value");
-					}).findFirst().orElse(null);
+			return resultSet.elementStream().map(ODriver::toResult).findFirst().orElse(null);
 		}
 	}
 
+	@Override
+	public List<Map<String, Object>> queryProjected(String language, String query, Map<String, Object> params,
+			Type type, String... properties) {
+		//Wrap original query to read only required properties
+		StringBuilder sql = new StringBuilder("select ");
+		for (int i = 0; i < properties.length; i++) {
+			if(i>0) sql.append(", ");
+			sql.append('`').append(properties[i]).append('`');
+		}
+		sql.append(" from (").append(query).append(")");
+		try(OResultSet resultSet = getSession().query(sql.toString(), params)) {
+			return resultSet.stream().map(r -> {
+				Map<String, Object> row = new HashMap<>();
+				for (String property : properties) {
+					row.put(property, r.getProperty(property));
+				}
+				return row;
+			}).collect(Collectors.toList());
+		}
+	}
+	
+	@Override
+	public void prefetch(Collection<?> seeds, Class<?> mainClass, String... paths) {
+		for (String path : paths) {
+			List<ODocument> docs = new ArrayList<>();
+			for (Object seed : seeds) {
+				if(seed instanceof ODocument) docs.add((ODocument)seed);
+			}
+			for (String property : path.split("\\.")) {
+				if(docs.isEmpty()) break;
+				docs = prefetch(docs, property);
+			}
+		}
+	}
+	
+	/**
+	 * Load by one query all not yet loaded documents which are linked from provided documents by a property.
+	 * Loaded documents are kept in local cache of the session, so following resolving of links doesn't hit storage
+	 * @param docs linking documents
+	 * @param property name of a link property
+	 * @return linked documents
+	 */
+	protected List<ODocument> prefetch(List<ODocument> docs, String property) {
+		List<ODocument> ret = new ArrayList<>();
+		Set<ORID> toLoad = new LinkedHashSet<>();
+		for (ODocument doc : docs) {
+			Object value = doc.rawField(property);
+			Iterator<?> it;
+			if(value instanceof ORecordLazyMultiValue) it = ((ORecordLazyMultiValue)value).rawIterator();
+			else if(value instanceof Collection) it = ((Collection<?>)value).iterator();
+			else it = Collections.singleton(value).iterator();
+			while(it.hasNext()) {
+				Object link = it.next();
+				if(link instanceof ODocument) ret.add((ODocument)link);
+				else if(link instanceof ORID && ((ORID)link).isPersistent()) toLoad.add((ORID)link);
+			}
+		}
+		if(!toLoad.isEmpty()) {
+			ret.addAll(query(null, "select from :rids", 
+						Collections.singletonMap("rids", new ArrayList<>(toLoad)), null)
+							.stream().filter(ODocument.class::isInstance).map(ODocument.class::cast)
+							.collect(Collectors.toList()));
+		}
+		return ret;
+	}
+
 	@Override
 	public Object command(String language, String command, Map<String, Object> params, Type type) {
 		try(OResultSet resultSet = getSession().command(command, params)) {
-			List<?> ret = resultSet.elementStream().map(e -> {
-				ODocument doc = (ODocument)e;
-				if(doc.getClassName()!=null) return doc;
-				else return doc.field("value");
-			}).collect(Collectors.toList());
+			List<?> ret = resultSet.elementStream().map(ODriver::toResult).collect(Collectors.toList());
 			return ret.isEmpty()?null:(ret.size()==1?ret.get(0):ret);
 		}
 	}
@@ -296,6 +541,22 @@ public class ODriver implements IDriver {
 		return MUTATOR;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * Worker gets its own copy of the current session: the copy is taken on the calling thread,
+	 * because original session is not thread-safe. Please note that the copy doesn't see
+	 * uncommitted changes of the transaction of the calling thread.
+	 */
+	@Override
+	public <T> Supplier<T> propagateContext(Supplier<T> task) {
+		ODatabaseDocumentInternal db = ODatabaseRecordThreadLocal.instance().getIfDefined();
+		if(db==null) return task;
+		ODatabaseDocumentInternal copy = db.copy();
+		//Copy is activated on the current thread after creation: so original session should be restored
+		db.activateOnCurrentThread();
+		return new SessionTask<>(copy, task);
+	}
+
 	protected ODatabaseSession getSession() {
 		ODatabaseSession db = ODatabaseRecordThreadLocal.instance().get();
 		if(db==null) throw new IllegalStateException("OrientDB Session is not associated with current thread");
@@ -353,4 +614,78 @@ public class ODriver implements IDriver {
 		asWrapper(obj).reload();
 		return obj;
 	}
+	
+	/**
+	 * {@link Collection} view over {@link ORidBag}
+	 */
+	/**
+	 * Task which is executed within own copy of a session. Session is closed after execution
+	 * or by {@link #close()} if the task has not been executed at all
+	 * @param <T> type of the result
+	 */
+	private static class SessionTask<T> implements Supplier<T>, AutoCloseable {
+		private final ODatabaseDocumentInternal session;
+		private final Supplier<T> task;
+		
+		SessionTask(ODatabaseDocumentInternal session, Supplier<T> task) {
+			this.session = session;
+			this.task = task;
+		}
+		
+		@Override
+		public T get() {
+			ODatabaseDocumentInternal previous = ODatabaseRecordThreadLocal.instance().getIfDefined();
+			try {
+				session.activateOnCurrentThread();
+				return task.get();
+			} finally {
+				closeAndRestore(previous);
+			}
+		}
+		
+		@Override
+		public void close() {
+			closeAndRestore(ODatabaseRecordThreadLocal.instance().getIfDefined());
+		}
+		
+		private void closeAndRestore(ODatabaseDocumentInternal previous) {
+			if(!session.isClosed()) {
+				session.activateOnCurrentThread();
+				session.close();
+			}
+			if(previous!=null && previous!=session) previous.activateOnCurrentThread();
+			else ODatabaseRecordThreadLocal.instance().remove();
+		}
+	}
+	
+	private static class RidBagCollection extends AbstractCollection<OIdentifiable> {
+		private final ORidBag ridBag;
+		
+		RidBagCollection(ORidBag ridBag) {
+			this.ridBag = ridBag;
+		}
+
+		@Override
+		public Iterator<OIdentifiable> iterator() {
+			return ridBag.iterator();
+		}
+
+		@Override
+		public int size() {
+			return ridBag.size();
+		}
+
+		@Override
+		public boolean add(OIdentifiable e) {
+			ridBag.add(e);
+			return true;
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if(!(o instanceof OIdentifiable) || !contains(o)) return false;
+			ridBag.remove((OIdentifiable)o);
+			return true;
+		}
+	}
 }
@@ -2,6 +2,7 @@ package org.orienteer.transponder.orientdb;
 
 import static org.hamcrest.CoreMatchers.everyItem;
 import static org.hamcrest.CoreMatchers.isA;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.hamcrest.collection.IsMapWithSize.aMapWithSize;
@@ -10,6 +11,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.reflect.Method;
@@ -18,21 +20,25 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.orienteer.transponder.CommonUtils;
+import org.orienteer.transponder.Slice;
 import org.orienteer.transponder.Transponder;
 
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.ODatabaseType;
 import com.orientechnologies.orient.core.db.OrientDB;
 import com.orientechnologies.orient.core.db.OrientDBConfig;
 import com.orientechnologies.orient.core.db.OrientDBConfigBuilder;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
@@ -153,6 +159,58 @@ public class DAOTest {
 		assertEquals(testDocs.size(), dao.countAll());
 	}
 	
+	@Test
+	public void testFetch() {
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		List<IDAOTestClass> all = dao.findAllWithLinks();
+		assertEquals(dao.countAll(), all.size());
+		IDAOTestClass root = all.stream().filter(e -> "root".equals(e.getName())).findFirst().get();
+		assertFalse(root.getChild().isEmpty());
+		List<ORID> children = new ArrayList<>();
+		for (IDAOTestClass child : root.getChild()) {
+			assertNotNull(child.getName());
+			children.add(((ODocument) Transponder.unwrap(child)).getIdentity());
+		}
+		
+		ODatabaseDocumentInternal session = ODatabaseRecordThreadLocal.instance().get();
+		//Without prefetch links are not loaded by the query
+		session.getLocalCache().clear();
+		assertNotNull(dao.findRoot());
+		for (ORID rid : children) assertNull(session.getLocalCache().findRecord(rid));
+		//Prefetch loads all links at once: so resolving of them doesn't hit storage
+		session.getLocalCache().clear();
+		assertNotNull(dao.findRootWithChildren());
+		for (ORID rid : children) assertNotNull(session.getLocalCache().findRecord(rid));
+	}
+	
+	@Test
+	public void testSliceWithWhere() {
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		List<String> names = new ArrayList<>();
+		Slice<IDAOTestClass> slice = dao.findChildrenSliced(2, null);
+		assertEquals(2, slice.size());
+		while(true) {
+			for (IDAOTestClass entity : slice) names.add(entity.getName());
+			if(!slice.hasNext()) break;
+			slice = dao.findChildrenSliced(2, slice.getNextCursor());
+		}
+		assertEquals(5, names.size());
+		assertThat(names, everyItem(startsWith("Child#")));
+		assertThrows(IllegalArgumentException.class, () -> dao.findAllOrderedSliced(2, null));
+	}
+	
+	@Test
+	public void testAsync() throws Exception {
+		ITestDAO dao = transponder.dao(ITestDAO.class);
+		ODatabaseSession session = ODatabaseRecordThreadLocal.instance().get();
+		List<IDAOTestClass> all = dao.findAllAsync().get(10, TimeUnit.SECONDS);
+		assertEquals(dao.countAll(), all.size());
+		for (IDAOTestClass entity : all) {
+			assertNotNull(entity.getName());
+		}
+		assertSame(session, ODatabaseRecordThreadLocal.instance().get());
+	}
+	
 	@Test
 	public void testMirroring() {
 		IDAOTestClass doc = transponder.create(IDAOTestClass.class);
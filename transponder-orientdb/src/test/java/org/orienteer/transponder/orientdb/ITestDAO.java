@@ -1,7 +1,12 @@
 package org.orienteer.transponder.orientdb;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import org.orienteer.transponder.Slice;
+import org.orienteer.transponder.annotation.After;
+import org.orienteer.transponder.annotation.Fetch;
+import org.orienteer.transponder.annotation.PageSize;
 import org.orienteer.transponder.annotation.Query;
 import org.orienteer.transponder.annotation.common.Sudo;
 
@@ -28,6 +33,26 @@ public interface ITestDAO {
 	@Query("select from DAOTestClass")
 	public List<IDAOTestClass> findAllAsDAO();
 	
+	@Fetch({"child", "parent"})
+	@Query("select from DAOTestClass")
+	public List<IDAOTestClass> findAllWithLinks();
+	
+	@Query("select from DAOTestClass where name = 'root'")
+	public IDAOTestClass findRoot();
+	
+	@Fetch("child")
+	@Query("select from DAOTestClass where name = 'root'")
+	public IDAOTestClass findRootWithChildren();
+	
+	@Query("select from DAOTestClass")
+	public CompletableFuture<List<IDAOTestClass>> findAllAsync();
+	
+	@Query("select from DAOTestClass where name like 'Child%'")
+	public Slice<IDAOTestClass> findChildrenSliced(@PageSize int pageSize, @After Object after);
+	
+	@Query("select from DAOTestClass order by name")
+	public Slice<IDAOTestClass> findAllOrderedSliced(@PageSize int pageSize, @After Object after);
+	
 	@Sudo
 	public default String sudoWhoAmI() {
 		return whoAmI();
@@ -0,0 +1,375 @@
+package org.orienteer.transponder.processor;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import org.orienteer.transponder.InvocationPlan;
+import org.orienteer.transponder.Precompiled;
+import org.orienteer.transponder.ProxyType;
+import org.orienteer.transponder.annotation.AdviceAnnotation;
+import org.orienteer.transponder.annotation.Command;
+import org.orienteer.transponder.annotation.DefaultValue;
+import org.orienteer.transponder.annotation.DelegateAnnotation;
+import org.orienteer.transponder.annotation.EntityProperty;
+import org.orienteer.transponder.annotation.LiveCollection;
+import org.orienteer.transponder.annotation.Lookup;
+import org.orienteer.transponder.annotation.OverrideByThis;
+import org.orienteer.transponder.annotation.Query;
+import org.orienteer.transponder.annotation.Size;
+
+/**
+ * Generator of source code for a single precompiled class.
+ * Mirrors behavior of {@link org.orienteer.transponder.mutator.StackedMutator#ENTITY_MUTATOR}
+ * and {@link org.orienteer.transponder.mutator.StackedMutator#DAO_MUTATOR}.
+ * Throws {@link IllegalStateException} if the interface can't be precompiled.
+ */
+class PrecompiledClassGenerator {
+	private static final String PRECOMPILED = Precompiled.class.getName();
+
+	private final Elements elements;
+	private final Types types;
+	private final TypeElement mainClass;
+	private final TypeElement baseClass;
+	private final ProxyType proxyType;
+	private final String packageName;
+	private final String className;
+
+	private final StringBuilder fields = new StringBuilder();
+	private final StringBuilder methods = new StringBuilder();
+	private int counter = 0;
+
+	PrecompiledClassGenerator(ProcessingEnvironment env, TypeElement mainClass, TypeElement baseClass, ProxyType proxyType) {
+		this.elements = env.getElementUtils();
+		this.types = env.getTypeUtils();
+		this.mainClass = mainClass;
+		this.baseClass = baseClass;
+		this.proxyType = proxyType;
+		this.packageName = elements.getPackageOf(mainClass).getQualifiedName().toString();
+		String binaryName = Precompiled.className(elements.getBinaryName(mainClass).toString(),
+												  elements.getBinaryName(baseClass).toString(), proxyType);
+		this.className = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length()+1);
+	}
+
+	/**
+	 * @return fully qualified name of the class to be generated
+	 */
+	public String getClassName() {
+		return packageName.isEmpty() ? className : packageName + "." + className;
+	}
+
+	/**
+	 * Generate source code
+	 * @return source code of precompiled class
+	 */
+	public String generate() {
+		checkType();
+		Set<String> signatures = new HashSet<>();
+		DeclaredType mainType = (DeclaredType) mainClass.asType();
+		for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(mainClass))) {
+			if(method.getModifiers().contains(Modifier.STATIC)
+					|| !method.getEnclosingElement().getKind().equals(ElementKind.INTERFACE)) continue;
+			ExecutableType methodType = (ExecutableType) types.asMemberOf(mainType, method);
+			if(!signatures.add(signature(method))) continue;
+			if(isImplementedByBaseClass(method)) continue;
+			generateMethod(method, methodType);
+		}
+		generateConstructors();
+		return generateClass();
+	}
+
+	private void checkType() {
+		if(!mainClass.getTypeParameters().isEmpty()) throw new IllegalStateException("generic interfaces are not supported");
+		if(baseClass.getModifiers().contains(Modifier.FINAL) || baseClass.getModifiers().contains(Modifier.ABSTRACT)
+				|| !baseClass.getKind().equals(ElementKind.CLASS))
+			throw new IllegalStateException("base class "+baseClass.getQualifiedName()+" can't be extended");
+		for (Element element = mainClass; element instanceof TypeElement; element = element.getEnclosingElement()) {
+			if(!element.getModifiers().contains(Modifier.PUBLIC)) throw new IllegalStateException("interface is not public");
+		}
+	}
+
+	private boolean isImplementedByBaseClass(ExecutableElement method) {
+		for (ExecutableElement baseMethod : ElementFilter.methodsIn(elements.getAllMembers(baseClass))) {
+			if(!baseMethod.getModifiers().contains(Modifier.ABSTRACT)
+					&& baseMethod.getModifiers().contains(Modifier.PUBLIC)
+					&& !baseMethod.getModifiers().contains(Modifier.STATIC)
+					&& signature(baseMethod).equals(signature(method))) return true;
+		}
+		return false;
+	}
+
+	private void generateMethod(ExecutableElement method, ExecutableType methodType) {
+		if(!method.getTypeParameters().isEmpty()) throw new IllegalStateException(method+" is generic");
+		for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+			Element annotationType = annotation.getAnnotationType().asElement();
+			if(!isAnnotationOf(annotationType, DefaultValue.class)
+					&& (annotationType.getAnnotation(AdviceAnnotation.class)!=null
+						|| annotationType.getAnnotation(AdviceAnnotation.List.class)!=null
+						|| annotationType.getAnnotation(DelegateAnnotation.class)!=null
+						|| isAnnotationOf(annotationType, OverrideByThis.class)))
+				throw new IllegalStateException(method+" has custom behavior");
+		}
+		boolean isAbstract = method.getModifiers().contains(Modifier.ABSTRACT);
+		TypeMirror returnType = methodType.getReturnType();
+		DefaultValue defaultValue = method.getAnnotation(DefaultValue.class);
+		if(defaultValue!=null && returnType.getKind().equals(TypeKind.VOID)) defaultValue = null;
+		if(!isAbstract && defaultValue==null) return;
+
+		String idx = Integer.toString(counter++);
+		List<? extends VariableElement> params = method.getParameters();
+		StringBuilder methodDeclaration = new StringBuilder("\tpublic ").append(returnType).append(' ')
+															.append(method.getSimpleName()).append('(');
+		StringBuilder args = new StringBuilder();
+		StringBuilder paramClasses = new StringBuilder();
+		for (int i = 0; i < params.size(); i++) {
+			if(i>0) {
+				methodDeclaration.append(", ");
+				args.append(", ");
+			}
+			methodDeclaration.append(methodType.getParameterTypes().get(i)).append(" arg").append(i);
+			args.append("arg").append(i);
+			paramClasses.append(", ").append(types.erasure(params.get(i).asType())).append(".class");
+		}
+		methodDeclaration.append(')');
+		if(!methodType.getThrownTypes().isEmpty()) {
+			methodDeclaration.append(" throws ");
+			for (int i = 0; i < methodType.getThrownTypes().size(); i++) {
+				if(i>0) methodDeclaration.append(", ");
+				methodDeclaration.append(methodType.getThrownTypes().get(i));
+			}
+		}
+		String declaringClass = ((TypeElement) method.getEnclosingElement()).getQualifiedName().toString();
+		field("java.lang.reflect.Method", "M"+idx,
+				PRECOMPILED+".method("+declaringClass+".class, \""+method.getSimpleName()+"\""+paramClasses+")");
+
+		String implementation;
+		if(isAbstract) implementation = implementation(method, methodType, idx, args.toString());
+		else implementation = mainClass.getQualifiedName()+".super."+method.getSimpleName()+"("+args+")";
+		if(defaultValue!=null) {
+			if(implementation.endsWith(";")) throw new IllegalStateException(method+" can't have default value");
+			field("Object", "D"+idx, "org.orienteer.transponder.CommonUtils.stringToInstance("
+					+elements.getConstantExpression(defaultValue.value())+", M"+idx+".getReturnType())");
+			implementation = PRECOMPILED+".defaultValue("+implementation+", "+stub(returnType)+", D"+idx+")";
+		}
+		methods.append(methodDeclaration).append(" {\n\t\t");
+		if(implementation.endsWith(";")) methods.append(implementation);
+		else if(returnType.getKind().equals(TypeKind.VOID)) methods.append(implementation).append(';');
+		else methods.append("return ").append(cast(returnType, implementation)).append(';');
+		methods.append("\n\t}\n\n");
+	}
+
+	private String implementation(ExecutableElement method, ExecutableType methodType, String idx, String args) {
+		String name = method.getSimpleName().toString();
+		TypeMirror returnType = methodType.getReturnType();
+		int paramsCount = method.getParameters().size();
+		if(method.getAnnotation(Query.class)!=null) return invocation(InvocationPlan.Kind.QUERY, idx, args);
+		else if(method.getAnnotation(Lookup.class)!=null) return invocation(InvocationPlan.Kind.LOOKUP, idx, args);
+		else if(ProxyType.ENTITY.equals(proxyType) && name.startsWith("set") && paramsCount==1) {
+			field("java.lang.reflect.Type", "T"+idx, "M"+idx+".getGenericParameterTypes()[0]");
+			conversionPlanField(idx);
+			String set = PRECOMPILED+".set(this, "+propertyName(method, name.substring(3))+", T"+idx+", P"+idx+", arg0);";
+			if(returnType.getKind().equals(TypeKind.VOID)) return set;
+			else if(returnType.getKind().isPrimitive()) throw new IllegalStateException(method+" returns primitive");
+			else if(types.isAssignable(mainClass.asType(), types.erasure(returnType))
+					|| types.isAssignable(baseClass.asType(), types.erasure(returnType)))
+				return set+"\n\t\treturn this;";
+			else return set+"\n\t\treturn null;";
+		} else if(ProxyType.ENTITY.equals(proxyType) && paramsCount==0 && isGetter(name, returnType)) {
+			String sizedProperty = sizedProperty(method, returnType);
+			if(sizedProperty!=null) {
+				String property = elements.getConstantExpression(sizedProperty);
+				field("java.lang.reflect.Type", "T"+idx, "org.orienteer.transponder.CommonUtils.resolvePropertyType("
+						+mainClass.getQualifiedName()+".class, "+property+")");
+				return PRECOMPILED+".getSize(this, "+property+", T"+idx+", M"+idx+".getReturnType())";
+			}
+			field("java.lang.reflect.Type", "T"+idx, "M"+idx+".getGenericReturnType()");
+			String property = propertyName(method, name.substring(name.startsWith("get")?3:2));
+			EntityProperty entityProperty = method.getAnnotation(EntityProperty.class);
+			if(entityProperty!=null && entityProperty.lazy()) return PRECOMPILED+".getLazy(this, "+property+", T"+idx+")";
+			conversionPlanField(idx);
+			if(method.getAnnotation(LiveCollection.class)!=null)
+				return PRECOMPILED+".getLive(this, "+property+", T"+idx+", P"+idx+")";
+			return PRECOMPILED+".get(this, "+property+", T"+idx+", P"+idx+", "+stub(returnType)+")";
+		} else if(method.getAnnotation(Command.class)!=null) return invocation(InvocationPlan.Kind.COMMAND, idx, args);
+		else throw new IllegalStateException(method+" can't be implemented");
+	}
+
+	private boolean isGetter(String name, TypeMirror returnType) {
+		if(returnType.getKind().equals(TypeKind.VOID)) return false;
+		if(name.startsWith("get")) return true;
+		if(name.startsWith("is")) {
+			return returnType.getKind().equals(TypeKind.BOOLEAN)
+					|| returnType.toString().equals(Boolean.class.getName());
+		}
+		return false;
+	}
+
+	private String sizedProperty(ExecutableElement method, TypeMirror returnType) {
+		Size size = method.getAnnotation(Size.class);
+		if(size==null) return null;
+		String property = size.value();
+		if(!isSizeType(returnType)) throw new IllegalStateException(method+" should return int or long");
+		//Collection property might be declared by any interface of the main class
+		for (ExecutableElement other : ElementFilter.methodsIn(elements.getAllMembers(mainClass))) {
+			if(other.getEnclosingElement().getKind().equals(ElementKind.INTERFACE)
+					&& other.getParameters().isEmpty() && other.getAnnotation(Size.class)==null
+					&& !other.getReturnType().getKind().equals(TypeKind.VOID)
+					&& property.equals(declaredPropertyName(other))) return property;
+		}
+		throw new IllegalStateException(method+" refers to undefined property");
+	}
+
+	private String declaredPropertyName(ExecutableElement method) {
+		EntityProperty entityProperty = method.getAnnotation(EntityProperty.class);
+		if(entityProperty!=null && !entityProperty.value().isEmpty()) return entityProperty.value();
+		String name = method.getSimpleName().toString();
+		String suffix = name.startsWith("get") ? name.substring(3) : (name.startsWith("is") ? name.substring(2) : null);
+		return suffix==null || suffix.isEmpty() ? null : Character.toLowerCase(suffix.charAt(0)) + suffix.substring(1);
+	}
+
+	private boolean isSizeType(TypeMirror type) {
+		return type.getKind().equals(TypeKind.INT) || type.getKind().equals(TypeKind.LONG)
+				|| type.toString().equals(Integer.class.getName()) || type.toString().equals(Long.class.getName());
+	}
+
+	private String propertyName(ExecutableElement method, String suffix) {
+		EntityProperty entityProperty = method.getAnnotation(EntityProperty.class);
+		String ret = entityProperty!=null ? entityProperty.value() : null;
+		if(ret==null || ret.isEmpty()) {
+			if(suffix.isEmpty()) throw new IllegalStateException(method+" doesn't define property name");
+			ret = Character.toLowerCase(suffix.charAt(0)) + suffix.substring(1);
+		}
+		return elements.getConstantExpression(ret);
+	}
+
+	private String invocation(InvocationPlan.Kind kind, String idx, String args) {
+		field(Precompiled.Invocation.class.getCanonicalName(), "I"+idx,
+				PRECOMPILED+".invocation("+InvocationPlan.Kind.class.getCanonicalName()+"."+kind.name()+", M"+idx+")");
+		return "I"+idx+".invoke(this, new Object[] {"+args+"})";
+	}
+
+	private String cast(TypeMirror type, String expression) {
+		if(type.getKind().isPrimitive()) {
+			return "(("+types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName()+") "+expression+")";
+		} else if(!types.isSameType(type, types.erasure(type))) {
+			//Plain cast to parameterized type is unchecked
+			return PRECOMPILED+".<"+type+">typed("+expression+")";
+		} else return "("+type+") "+expression;
+	}
+
+	private String stub(TypeMirror type) {
+		switch (type.getKind()) {
+			case BOOLEAN:
+				return "Boolean.FALSE";
+			case BYTE:
+				return "Byte.valueOf((byte) 0)";
+			case SHORT:
+				return "Short.valueOf((short) 0)";
+			case CHAR:
+				return "Character.valueOf((char) 0)";
+			case INT:
+				return "Integer.valueOf(0)";
+			case LONG:
+				return "Long.valueOf(0L)";
+			case FLOAT:
+				return "Float.valueOf(0f)";
+			case DOUBLE:
+				return "Double.valueOf(0d)";
+			default:
+				return "null";
+		}
+	}
+
+	private void generateConstructors() {
+		DeclaredType baseType = baseType();
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(baseClass.getEnclosedElements())) {
+			if(!constructor.getModifiers().contains(Modifier.PUBLIC)
+					&& !constructor.getModifiers().contains(Modifier.PROTECTED)) continue;
+			if(!constructor.getTypeParameters().isEmpty()) continue;
+			methods.append("\tpublic ").append(className).append('(');
+			StringBuilder args = new StringBuilder();
+			List<? extends TypeMirror> params = ((ExecutableType) types.asMemberOf(baseType, constructor)).getParameterTypes();
+			for (int i = 0; i < params.size(); i++) {
+				if(i>0) {
+					methods.append(", ");
+					args.append(", ");
+				}
+				methods.append(params.get(i)).append(" arg").append(i);
+				args.append("arg").append(i);
+			}
+			methods.append(')');
+			List<? extends TypeMirror> thrown = constructor.getThrownTypes();
+			for (int i = 0; i < thrown.size(); i++) {
+				methods.append(i==0?" throws ":", ").append(types.erasure(thrown.get(i)));
+			}
+			methods.append(" {\n\t\tsuper(").append(args).append(");\n\t}\n\n");
+		}
+	}
+
+	private String generateClass() {
+		StringBuilder sb = new StringBuilder();
+		if(!packageName.isEmpty()) sb.append("package ").append(packageName).append(";\n\n");
+		sb.append("@SuppressWarnings(\"all\")\n");
+		sb.append("public class ").append(className)
+		  .append(" extends ").append(baseType())
+		  .append(" implements ").append(mainClass.getQualifiedName())
+		  .append(", ").append(proxyType.getTransponderInterfaceToImplement().getCanonicalName()).append(" {\n\n");
+		sb.append(fields);
+		sb.append("\n\tprivate org.orienteer.transponder.Transponder $transponder;\n\n");
+		sb.append(methods);
+		sb.append("\t@Override\n\tpublic org.orienteer.transponder.Transponder get$transponder() {\n")
+		  .append("\t\treturn $transponder;\n\t}\n\n");
+		sb.append("\t@Override\n\tpublic void set$transponder(org.orienteer.transponder.Transponder transponder) {\n")
+		  .append("\t\tthis.$transponder = transponder;\n\t}\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Generic base classes are extended with erasures of their type parameters: raw types cause unchecked calls
+	 * @return type to extend
+	 */
+	private DeclaredType baseType() {
+		TypeMirror[] args = baseClass.getTypeParameters().stream()
+										.map(p -> types.erasure(p.asType())).toArray(TypeMirror[]::new);
+		return types.getDeclaredType(baseClass, args);
+	}
+
+	private void conversionPlanField(String idx) {
+		field("org.orienteer.transponder.ConversionPlan", "P"+idx, "org.orienteer.transponder.ConversionPlan.of(T"+idx+")");
+	}
+
+	private void field(String type, String name, String initializer) {
+		fields.append("\tprivate static final ").append(type).append(' ').append(name)
+			  .append(" = ").append(initializer).append(";\n");
+	}
+
+	private String signature(ExecutableElement method) {
+		StringBuilder sb = new StringBuilder(method.getSimpleName()).append('(');
+		for (VariableElement param : method.getParameters()) {
+			sb.append(types.erasure(param.asType())).append(';');
+		}
+		return sb.append(')').toString();
+	}
+
+	private static boolean isAnnotationOf(Element annotationType, Class<?> annotationClass) {
+		return annotationType instanceof TypeElement
+				&& ((TypeElement) annotationType).getQualifiedName().contentEquals(annotationClass.getName());
+	}
+}
@@ -0,0 +1,132 @@
+package org.orienteer.transponder.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import org.orienteer.transponder.ProxyType;
+import org.orienteer.transponder.annotation.Command;
+import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.annotation.Lookup;
+import org.orienteer.transponder.annotation.Query;
+
+/**
+ * Annotation processor which generates implementations for interfaces annotated by {@link EntityType}
+ * and for DAO interfaces with methods annotated by {@link Query}, {@link Lookup} or {@link Command}.
+ * Entities are generated for every base class listed in option <code>transponder.baseClasses</code>
+ * (comma separated binary names of classes used by drivers as base classes for wrappers).
+ * Interfaces which can't be precompiled are skipped and will be generated by {@link org.orienteer.transponder.Transponder}
+ * in runtime as usual.
+ */
+public class TransponderProcessor extends AbstractProcessor {
+
+	/**
+	 * Option to specify base classes for entities
+	 */
+	public static final String OPTION_BASE_CLASSES = "transponder.baseClasses";
+
+	private final Set<String> processed = new HashSet<>();
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return new HashSet<>(Arrays.asList(EntityType.class.getName(),
+										   Query.class.getName(),
+										   Lookup.class.getName(),
+										   Command.class.getName()));
+	}
+
+	@Override
+	public Set<String> getSupportedOptions() {
+		return Collections.singleton(OPTION_BASE_CLASSES);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<TypeElement> entities = new LinkedHashSet<>();
+		Set<TypeElement> daos = new LinkedHashSet<>();
+		for (Element element : roundEnv.getElementsAnnotatedWith(EntityType.class)) {
+			if(element.getKind().equals(ElementKind.INTERFACE)) entities.add((TypeElement) element);
+		}
+		for (Class<? extends Annotation> annotation : Arrays.asList(Query.class, Lookup.class, Command.class)) {
+			for (ExecutableElement method : ElementFilter.methodsIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+				Element enclosing = method.getEnclosingElement();
+				if(enclosing.getKind().equals(ElementKind.INTERFACE)
+						&& enclosing.getAnnotation(EntityType.class)==null) daos.add((TypeElement) enclosing);
+			}
+		}
+		List<TypeElement> baseClasses = getBaseClasses();
+		for (TypeElement entity : entities) {
+			for (TypeElement baseClass : baseClasses) {
+				generate(entity, baseClass, ProxyType.ENTITY);
+			}
+		}
+		TypeElement object = processingEnv.getElementUtils().getTypeElement(Object.class.getName());
+		for (TypeElement dao : daos) {
+			generate(dao, object, ProxyType.DAO);
+		}
+		return false;
+	}
+
+	private List<TypeElement> getBaseClasses() {
+		List<TypeElement> ret = new ArrayList<>();
+		String option = processingEnv.getOptions().get(OPTION_BASE_CLASSES);
+		if(option==null) return ret;
+		for (String name : option.split(",")) {
+			name = name.trim();
+			if(name.isEmpty()) continue;
+			TypeElement baseClass = processingEnv.getElementUtils().getTypeElement(name.replace('$', '.'));
+			if(baseClass==null) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+						"Transponder base class '"+name+"' was not found");
+			} else ret.add(baseClass);
+		}
+		return ret;
+	}
+
+	private void generate(TypeElement mainClass, TypeElement baseClass, ProxyType proxyType) {
+		PrecompiledClassGenerator generator = new PrecompiledClassGenerator(processingEnv, mainClass, baseClass, proxyType);
+		if(!processed.add(generator.getClassName())) return;
+		if(!mainClass.getModifiers().contains(Modifier.PUBLIC)) return;
+		String source;
+		try {
+			source = generator.generate();
+		} catch (IllegalStateException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+					"Transponder will generate "+mainClass.getQualifiedName()+" in runtime: "+e.getMessage(), mainClass);
+			return;
+		}
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(generator.getClassName(), mainClass);
+			try(Writer writer = file.openWriter()) {
+				writer.write(source);
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Can't write precompiled class "+generator.getClassName()+": "+e.getMessage(), mainClass);
+		}
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * Annotation processor which generates implementations of Transponder entities and DAOs at compile time.
+ * Generated classes are picked up by {@link org.orienteer.transponder.Transponder} instead of runtime generation:
+ * check {@link org.orienteer.transponder.Precompiled} for details.
+ */
+package org.orienteer.transponder.processor;
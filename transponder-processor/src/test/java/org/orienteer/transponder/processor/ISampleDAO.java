@@ -0,0 +1,25 @@
+package org.orienteer.transponder.processor;
+
+import java.util.List;
+
+import org.orienteer.transponder.annotation.Command;
+import org.orienteer.transponder.annotation.DefaultValue;
+import org.orienteer.transponder.annotation.Lookup;
+import org.orienteer.transponder.annotation.Query;
+
+public interface ISampleDAO {
+	
+	@Query(value = ".*", dialect = "test")
+	public List<ISampleEntity> getAll();
+	
+	@Lookup(value = "${name}", dialect = "test")
+	public ISampleEntity lookupByName(String name);
+	
+	@Command(value = "${name}", dialect = "test")
+	public void remove(String name);
+	
+	@DefaultValue("7")
+	public default int getSeven() {
+		return 0;
+	}
+}
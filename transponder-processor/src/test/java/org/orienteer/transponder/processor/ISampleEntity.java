@@ -0,0 +1,49 @@
+package org.orienteer.transponder.processor;
+
+import java.util.List;
+
+import org.orienteer.transponder.annotation.DefaultValue;
+import org.orienteer.transponder.annotation.EntityProperty;
+import org.orienteer.transponder.annotation.EntityType;
+import org.orienteer.transponder.annotation.Query;
+import org.orienteer.transponder.annotation.Size;
+
+@EntityType("PrecompiledSample")
+public interface ISampleEntity {
+	public String getName();
+	public ISampleEntity setName(String name);
+	
+	public int getCount();
+	public void setCount(int count);
+	
+	public boolean isEnabled();
+	public void setEnabled(boolean enabled);
+	
+	@EntityProperty("desc")
+	public String getDescription();
+	@EntityProperty("desc")
+	public void setDescription(String description);
+	
+	@DefaultValue("42")
+	public Integer getAnswer();
+	
+	public List<String> getTags();
+	public void setTags(List<String> tags);
+	
+	@Size("tags")
+	public int getTagsCount();
+	
+	@Size("tags")
+	public long getNumberOfTags();
+	
+	public ISampleEntity getOther();
+	public void setOther(ISampleEntity other);
+	
+	@Query(value = "${prefix}.*", dialect = "test")
+	public List<ISampleEntity> getSiblings(String prefix);
+	
+	@DefaultValue("Hello")
+	public default String getGreeting() {
+		return null;
+	}
+}
@@ -0,0 +1,69 @@
+package org.orienteer.transponder.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.orienteer.transponder.Precompiled;
+import org.orienteer.transponder.ProxyType;
+import org.orienteer.transponder.Transponder;
+import org.orienteer.transponder.orientdb.ODriver;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.type.ODocumentWrapper;
+
+public class PrecompiledODriverTest {
+	
+	private static final String DB_NAME = "PrecompiledTestDB";
+	
+	private static OrientDB orientDB;
+	private static ODatabaseSession db;
+	
+	@BeforeAll
+	public static void beforePrecompiledODriverTest() {
+		orientDB = new OrientDB("embedded:target/", OrientDBConfig.builder()
+													.addConfig(OGlobalConfiguration.CREATE_DEFAULT_USERS, true)
+													.build());
+		orientDB.createIfNotExists(DB_NAME, ODatabaseType.MEMORY);
+		db = orientDB.open(DB_NAME, "admin", "admin");
+	}
+	
+	@AfterAll
+	public static void afterPrecompiledODriverTest() {
+		db.close();
+		orientDB.close();
+	}
+	
+	@Test
+	public void testPrecompiledEntityWithDriverMutator() {
+		db.activateOnCurrentThread();
+		Transponder transponder = new Transponder(new ODriver());
+		transponder.define(ISampleEntity.class);
+		ISampleEntity entity = transponder.create(ISampleEntity.class);
+		//ODriver has own mutator: so precompiled class is subclassed to apply it
+		assertNotEquals(Precompiled.className(ISampleEntity.class.getName(), ODocumentWrapper.class.getName(), ProxyType.ENTITY),
+					 entity.getClass().getName());
+		assertEquals(Precompiled.className(ISampleEntity.class.getName(), ODocumentWrapper.class.getName(), ProxyType.ENTITY),
+					 entity.getClass().getSuperclass().getName());
+		assertSame(entity.getClass(), transponder.create(ISampleEntity.class).getClass());
+		
+		assertSame(entity, entity.setName("Sample"));
+		assertEquals("Sample", entity.getName());
+		entity.setCount(10);
+		assertEquals(10, entity.getCount());
+		entity.setDescription("Description");
+		ODocument doc = ((ODocumentWrapper) entity).getDocument();
+		assertEquals("Description", doc.field("desc"));
+		assertEquals("Description", entity.getDescription());
+		assertEquals(42, entity.getAnswer());
+		assertEquals("Hello", entity.getGreeting());
+	}
+}
@@ -0,0 +1,83 @@
+package org.orienteer.transponder.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+import org.orienteer.transponder.Precompiled;
+import org.orienteer.transponder.ProxyType;
+import org.orienteer.transponder.TestDriver;
+import org.orienteer.transponder.Transponder;
+
+public class PrecompiledTest {
+	
+	@Test
+	public void testPrecompiledEntity() {
+		Transponder transponder = new Transponder(new TestDriver());
+		ISampleEntity entity = transponder.create(ISampleEntity.class);
+		assertEquals(Precompiled.className(ISampleEntity.class.getName(), HashMap.class.getName(), ProxyType.ENTITY),
+					 entity.getClass().getName());
+		assertNull(entity.getName());
+		assertSame(entity, entity.setName("Sample"));
+		assertEquals("Sample", entity.getName());
+		assertEquals(0, entity.getCount());
+		entity.setCount(10);
+		assertEquals(10, entity.getCount());
+		assertFalse(entity.isEnabled());
+		entity.setEnabled(true);
+		assertTrue(entity.isEnabled());
+		entity.setDescription("Description");
+		assertEquals("Description", ((HashMap<?, ?>) entity).get("desc"));
+		assertEquals("Description", entity.getDescription());
+		assertEquals(42, entity.getAnswer());
+		assertEquals(0, entity.getTagsCount());
+		entity.setTags(Arrays.asList("a", "b"));
+		assertEquals(2, entity.getTagsCount());
+		assertEquals(2L, entity.getNumberOfTags());
+		assertEquals("Hello", entity.getGreeting());
+		
+		ISampleEntity other = transponder.create(ISampleEntity.class);
+		other.setName("Other");
+		entity.setOther(other);
+		assertEquals("Other", entity.getOther().getName());
+		assertEquals(entity.getClass(), entity.getOther().getClass());
+		
+		Transponder.save(entity);
+		Transponder.save(other);
+		assertEquals(1, entity.getSiblings("Oth").size());
+		assertEquals(2, entity.getSiblings("").size());
+	}
+	
+	@Test
+	public void testPrecompiledDAO() {
+		Transponder transponder = new Transponder(new TestDriver());
+		ISampleDAO dao = transponder.dao(ISampleDAO.class);
+		assertEquals(Precompiled.className(ISampleDAO.class.getName(), Object.class.getName(), ProxyType.DAO),
+					 dao.getClass().getName());
+		assertEquals(7, dao.getSeven());
+		assertTrue(dao.getAll().isEmpty());
+		Transponder.save(transponder.create(ISampleEntity.class).setName("First"));
+		Transponder.save(transponder.create(ISampleEntity.class).setName("Second"));
+		assertEquals(2, dao.getAll().size());
+		ISampleEntity first = dao.lookupByName("First");
+		assertEquals("First", first.getName());
+		dao.remove("First");
+		assertNull(dao.lookupByName("First"));
+		assertEquals(1, dao.getAll().size());
+	}
+	
+	@Test
+	public void testFallbackToRuntimeGeneration() {
+		Transponder transponder = new Transponder(new TestDriver());
+		ISampleEntity entity = transponder.create(ISampleEntity.class, Runnable.class);
+		assertFalse(entity.getClass().getName().contains(Precompiled.CLASS_NAME_SUFFIX));
+		entity.setName("Runtime");
+		assertEquals("Runtime", entity.getName());
+	}
+}